@@ -0,0 +1,123 @@
+import bench.Hotpaths;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+
+/**
+ * The implementation of the benchmark hot paths, in the default package to reach the application classes
+ */
+public class BenchmarkHotpaths implements Hotpaths {
+
+    @Override
+    public Hotpaths.Codec codec(String codecName, String messageType, int counterEntries) {
+        MessageCodec codec = MessageCodec.forName(codecName);
+        Message message = switch (MessageType.valueOf(messageType)) {
+            case REQUEST -> new Message(MessageType.REQUEST, 3, Direction.LEFT, 1_000_000_007L);
+            case REPLY, READY -> new Message(MessageType.valueOf(messageType), 3, Direction.RIGHT);
+            case PING -> new Message(MessageType.PING, 3, true, Direction.LEFT);
+            case COUNTER -> new Message(MessageType.COUNTER, 3, Direction.LEFT, filledCounter(3, counterEntries));
+            case DIGEST -> new Message(MessageType.DIGEST, 3, Direction.LEFT, counterEntries, 0x9E3779B97F4A7C15L);
+            case HELLO, WELCOME -> new Message(MessageType.valueOf(messageType), 3, Direction.LEFT, true);
+            case NEIGHBOR -> new Message(MessageType.NEIGHBOR, 3, Direction.LEFT, 5, "app5", 50005);
+        };
+        return new Hotpaths.Codec() {
+            @Override
+            public byte[] encode() throws IOException {
+                return codec.encode(message);
+            }
+
+            @Override
+            public Object decode(byte[] frame) throws IOException {
+                return codec.decode(ByteBuffer.wrap(frame, MessageCodec.LENGTH_PREFIX, frame.length - MessageCodec.LENGTH_PREFIX));
+            }
+        };
+    }
+
+    @Override
+    public Hotpaths.Counter counter(int philosopherId, int ringSize) {
+        return new CounterAdapter(filledCounter(philosopherId, ringSize));
+    }
+
+    @Override
+    public Hotpaths.Clock clock() {
+        LamportClock clock = new LamportClock();
+        return new Hotpaths.Clock() {
+            @Override
+            public long update() {
+                return clock.update();
+            }
+
+            @Override
+            public long synchronize(long receivedTimestamp) {
+                return clock.synchronize(receivedTimestamp);
+            }
+        };
+    }
+
+    @Override
+    public Hotpaths.Decision decision(boolean requesting) {
+        Philosopher philosopher = createPhilosopher(2);
+        philosopher.setRequesting(requesting);
+        return requestTimestamp -> Server.shouldReply(philosopher, new Message(MessageType.REQUEST, 1, Direction.LEFT, requestTimestamp));
+    }
+
+    /**
+     * Create a counter with one entry per philosopher of a ring
+     */
+    private static GCounter filledCounter(int philosopherId, int ringSize) {
+        GCounter gCounter = new GCounter(philosopherId);
+        for (int id = 1; id <= ringSize; id++) {
+            gCounter.merge(id, id);
+        }
+        return gCounter;
+    }
+
+    /**
+     * Create a philosopher without connecting to neighbors
+     */
+    private static Philosopher createPhilosopher(int philosopherId) {
+        try {
+            Field field = Philosopher.class.getDeclaredField("isTest");
+            field.setAccessible(true);
+            field.setBoolean(null, true);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create a philosopher without neighbors", e);
+        }
+        return new Philosopher(philosopherId, "localhost", 49152, "localhost", 49153);
+    }
+
+    /**
+     * A counter of the benchmarks backed by a G-Counter
+     */
+    private static final class CounterAdapter implements Hotpaths.Counter {
+        /**
+         * The G-Counter of the adapter
+         */
+        private final GCounter gCounter;
+
+        private CounterAdapter(GCounter gCounter) {
+            this.gCounter = gCounter;
+        }
+
+        @Override
+        public void increment() {
+            gCounter.increment();
+        }
+
+        @Override
+        public boolean merge(Hotpaths.Counter other) {
+            return gCounter.merge(((CounterAdapter) other).gCounter);
+        }
+
+        @Override
+        public boolean merge(int philosopherId, long count) {
+            return gCounter.merge(philosopherId, count);
+        }
+
+        @Override
+        public long query() {
+            return gCounter.query();
+        }
+    }
+}
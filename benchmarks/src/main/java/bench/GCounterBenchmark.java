@@ -0,0 +1,83 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of the G-Counter operations at different ring sizes
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GCounterBenchmark {
+    /**
+     * The number of philosophers of the ring
+     */
+    @Param({"5", "100", "10000", "100000"})
+    public int ringSize;
+    /**
+     * The counter of the philosopher
+     */
+    private Hotpaths.Counter counter;
+    /**
+     * The counter of a neighbor with the same entries
+     */
+    private Hotpaths.Counter replica;
+    /**
+     * The next philosopher id and count of a single-entry merge
+     */
+    private int nextId = 1;
+    private long nextCount;
+
+    @Setup
+    public void setup() {
+        Hotpaths hotpaths = Hotpaths.load();
+        counter = hotpaths.counter(1, ringSize);
+        replica = hotpaths.counter(2, ringSize);
+        nextCount = ringSize + 1;
+    }
+
+    @Benchmark
+    public void increment() {
+        counter.increment();
+    }
+
+    @Benchmark
+    public long query() {
+        return counter.query();
+    }
+
+    /**
+     * Merge the full state of a neighbor, the cost of a full state update
+     */
+    @Benchmark
+    public boolean mergeFullState() {
+        return counter.merge(replica);
+    }
+
+    /**
+     * Raise a single entry, the cost per entry of a delta update
+     */
+    @Benchmark
+    public boolean mergeEntry() {
+        if (++nextId > ringSize) {
+            nextId = 1;
+            nextCount++;
+        }
+        return counter.merge(nextId, nextCount);
+    }
+}
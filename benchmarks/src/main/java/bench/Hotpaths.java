@@ -0,0 +1,116 @@
+package bench;
+
+import java.io.IOException;
+
+/**
+ * The hot paths of the application as seen by the benchmarks
+ * <p>
+ * The application lives in the default package, which cannot be imported from a named package, and JMH requires
+ * named packages for the generated code. The benchmarks therefore reach the application through this interface,
+ * implemented by BenchmarkHotpaths in the default package.
+ */
+public interface Hotpaths {
+    /**
+     * Load the implementation from the default package
+     *
+     * @return The hot paths of the application
+     */
+    static Hotpaths load() {
+        try {
+            return (Hotpaths) Class.forName("BenchmarkHotpaths").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("BenchmarkHotpaths is not on the class path", e);
+        }
+    }
+
+    /**
+     * Prepare a message for a codec
+     *
+     * @param codecName      The name of the codec
+     * @param messageType    The name of the message type
+     * @param counterEntries The number of entries of a COUNTER message
+     * @return The prepared message and codec
+     */
+    Codec codec(String codecName, String messageType, int counterEntries);
+
+    /**
+     * Create a counter with one entry per philosopher of a ring
+     *
+     * @param philosopherId The id of the philosopher that the counter belongs to
+     * @param ringSize      The number of philosophers of the ring
+     * @return The counter
+     */
+    Counter counter(int philosopherId, int ringSize);
+
+    /**
+     * Create a Lamport clock
+     *
+     * @return The clock
+     */
+    Clock clock();
+
+    /**
+     * Create a philosopher to decide on incoming requests
+     *
+     * @param requesting True if the philosopher is requesting forks itself
+     * @return The decision path of the philosopher
+     */
+    Decision decision(boolean requesting);
+
+    /**
+     * A codec with a prepared message
+     */
+    interface Codec {
+        /**
+         * Encode the prepared message
+         *
+         * @return The frame including the length prefix
+         * @throws IOException If the message cannot be encoded
+         */
+        byte[] encode() throws IOException;
+
+        /**
+         * Decode a frame
+         *
+         * @param frame The frame including the length prefix
+         * @return The decoded message
+         * @throws IOException If the frame cannot be decoded
+         */
+        Object decode(byte[] frame) throws IOException;
+    }
+
+    /**
+     * A G-Counter
+     */
+    interface Counter {
+        void increment();
+
+        boolean merge(Counter other);
+
+        boolean merge(int philosopherId, long count);
+
+        long query();
+    }
+
+    /**
+     * A Lamport clock
+     */
+    interface Clock {
+        long update();
+
+        long synchronize(long receivedTimestamp);
+    }
+
+    /**
+     * The decision of a philosopher on an incoming request
+     */
+    interface Decision {
+        /**
+         * Decide on a request of the left neighbor
+         *
+         * @param requestTimestamp The timestamp of the request
+         * @return True if the request is answered right away
+         */
+        boolean decide(long requestTimestamp);
+    }
+}
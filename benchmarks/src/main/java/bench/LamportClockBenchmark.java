@@ -0,0 +1,61 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of the Lamport clock operations, alone and under contention of the game and message handler threads
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LamportClockBenchmark {
+    /**
+     * The clock shared by the threads of a group
+     */
+    private Hotpaths.Clock clock;
+    /**
+     * The timestamp of the received messages, always a little ahead of the clock
+     */
+    private long received;
+
+    @Setup
+    public void setup() {
+        clock = Hotpaths.load().clock();
+    }
+
+    @Benchmark
+    @Group("uncontended")
+    public long update() {
+        return clock.update();
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(2)
+    public long contendedUpdate() {
+        return clock.update();
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(2)
+    public long contendedSynchronize() {
+        return clock.synchronize(received += 2);
+    }
+}
@@ -0,0 +1,67 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of encoding and decoding one message with each codec
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageCodecBenchmark {
+    /**
+     * The name of the codec
+     */
+    @Param({"binary", "serialization"})
+    public String codec;
+    /**
+     * The type of the message
+     */
+    @Param({"REQUEST", "REPLY", "PING", "COUNTER"})
+    public String messageType;
+    /**
+     * The number of entries of a COUNTER message
+     */
+    @Param({"5"})
+    public int counterEntries;
+    /**
+     * The codec with the prepared message
+     */
+    private Hotpaths.Codec preparedCodec;
+    /**
+     * The encoded message
+     */
+    private byte[] frame;
+
+    @Setup
+    public void setup() throws IOException {
+        preparedCodec = Hotpaths.load().codec(codec, messageType, counterEntries);
+        frame = preparedCodec.encode();
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return preparedCodec.encode();
+    }
+
+    @Benchmark
+    public Object decode() throws IOException {
+        return preparedCodec.decode(frame);
+    }
+}
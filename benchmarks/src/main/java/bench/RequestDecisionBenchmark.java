@@ -0,0 +1,50 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of the decision of Server.receiveRequest, including the clock synchronization
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestDecisionBenchmark {
+    /**
+     * True if the receiving philosopher is requesting forks itself, so the request order is compared
+     */
+    @Param({"false", "true"})
+    public boolean requesting;
+    /**
+     * The decision path of the receiving philosopher
+     */
+    private Hotpaths.Decision decision;
+    /**
+     * The timestamp of the next request
+     */
+    private long timestamp;
+
+    @Setup
+    public void setup() {
+        decision = Hotpaths.load().decision(requesting);
+    }
+
+    @Benchmark
+    public boolean decide() {
+        return decision.decide(++timestamp);
+    }
+}
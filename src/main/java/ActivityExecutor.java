@@ -0,0 +1,94 @@
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs the long-lived activity loops of a philosopher (game, counter, ping, connect and message handler loops)
+ * either on platform threads or on virtual threads
+ * <p>
+ * Virtual threads are looked up reflectively so that the project still builds on Java 18;
+ * they are used when -Dddpp.threads=virtual is set and the runtime is Java 21 or newer. Virtual threads are always
+ * daemon threads, so the first virtual activity starts a platform thread that keeps the JVM alive like the platform
+ * activity threads do.
+ */
+public final class ActivityExecutor {
+    /**
+     * The logger for the ActivityExecutor class
+     */
+    private static final Logger logger = LogManager.getLogger(ActivityExecutor.class);
+    /**
+     * The factory of virtual threads, or null if platform threads are used
+     */
+    private static final ThreadFactory virtualThreadFactory = createVirtualThreadFactory();
+    /**
+     * The non-daemon thread that keeps the JVM alive while the activities run on virtual threads, null before
+     */
+    private static Thread keeper;
+
+    private ActivityExecutor() {
+    }
+
+    /**
+     * Start an activity on a new thread
+     *
+     * @param name The name of the thread
+     * @param task The activity to run
+     * @return The started thread
+     */
+    public static Thread execute(String name, Runnable task) {
+        Thread thread;
+        if (virtualThreadFactory != null) {
+            startKeeper();
+            thread = virtualThreadFactory.newThread(task);
+            thread.setName(name);
+        } else {
+            thread = new Thread(task, name);
+        }
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Check if activities run on virtual threads
+     *
+     * @return True if activities run on virtual threads
+     */
+    public static boolean isVirtual() {
+        return virtualThreadFactory != null;
+    }
+
+    /**
+     * Start the keeper thread once, it parks until the JVM is stopped
+     */
+    private static synchronized void startKeeper() {
+        if (keeper != null) {
+            return;
+        }
+        keeper = new Thread(() -> {
+            while (true) {
+                LockSupport.park();
+            }
+        }, "activity-keeper");
+        keeper.start();
+    }
+
+    /**
+     * Create the factory of virtual threads if they are selected and supported by the runtime
+     *
+     * @return The factory of virtual threads, or null if platform threads are used
+     */
+    private static ThreadFactory createVirtualThreadFactory() {
+        if (!Configuration.virtualThreads()) {
+            return null;
+        }
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            logger.warn("Virtual threads are not supported by this runtime, falling back to platform threads");
+            return null;
+        }
+    }
+}
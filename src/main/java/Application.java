@@ -2,6 +2,8 @@ import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
+
 /**
  * Main class to be run with docker
  */
@@ -14,12 +16,18 @@ public class Application {
 
     public static void main(String[] args) {
         Philosopher philosopher = new Philosopher(Integer.parseInt(args[0]), args[2], Integer.parseInt(args[3]), args[4], Integer.parseInt(args[5]));
+        philosopher.start();
         Server server = new Server(philosopher, Integer.parseInt(args[1]));
+        if (Configuration.metricsPort() > 0) {
+            try {
+                MetricsServer.start(Configuration.metricsPort(), MetricsRegistry.getDefault());
+            } catch (IOException e) {
+                logger.error("Error while starting the metrics server", e);
+            }
+        }
         try {
-            // Wait for the server to finish
+            // Wait until the philosopher and its neighbors are connected
             server.getServerLatch().await();
-            // used to keep the container running in docker
-            Thread.sleep(10000);
         } catch (InterruptedException e) {
             logger.error("Error while waiting for server to finish", e);
         }
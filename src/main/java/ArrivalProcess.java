@@ -0,0 +1,186 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An open-loop arrival process: the times at which meals are intended to start, independent of when earlier meals
+ * actually started or ended
+ * <p>
+ * A process is used by a single thread, see {@link LoadGenerator}. The same seed always gives the same arrivals.
+ */
+public interface ArrivalProcess {
+    /**
+     * Get the next arrival
+     *
+     * @return The intended start of the next meal in nanoseconds since the start of the run, or -1 if no meal follows
+     */
+    long next();
+
+    /**
+     * Get the eating time of the last arrival, if the process prescribes one
+     *
+     * @return The eating time in milliseconds, or -1 to draw it from the profile
+     */
+    default int eatTime() {
+        return -1;
+    }
+
+    /**
+     * Create the arrival process of a profile
+     *
+     * @param profile The profile with an open-loop arrival process
+     * @param seed    The seed of the random arrivals
+     * @return The arrival process
+     * @throws IOException If the trace file cannot be read
+     */
+    static ArrivalProcess forProfile(WorkloadProfile profile, long seed) throws IOException {
+        switch (profile.getArrival()) {
+            case POISSON:
+                return new Poisson(profile.getRate(), 1, seed);
+            case BURSTY:
+                return new Poisson(profile.getRate(), profile.getBurstSize(), seed);
+            case TRACE:
+                return Trace.load(profile.getTrace());
+            default:
+                throw new IllegalArgumentException("The " + profile.getArrival() + " workload has no arrival process");
+        }
+    }
+
+    /**
+     * Meals arrive in bursts of a fixed size, the bursts form a Poisson process
+     * With a burst size of 1 this is a Poisson process of single meals with exponential gaps.
+     */
+    final class Poisson implements ArrivalProcess {
+        /**
+         * The mean gap between two bursts in nanoseconds
+         */
+        private final double meanGapNanos;
+        /**
+         * The number of meals per burst
+         */
+        private final int burstSize;
+        private final SplittableRandom random;
+        /**
+         * The time of the current burst and the meals of it that are left
+         */
+        private double time;
+        private int left;
+
+        /**
+         * Create a process
+         *
+         * @param rate      The mean number of meals per second
+         * @param burstSize The number of meals that arrive at the same time
+         * @param seed      The seed of the random gaps
+         */
+        public Poisson(double rate, int burstSize, long seed) {
+            if (!(rate > 0) || burstSize < 1) {
+                throw new IllegalArgumentException("The rate and the burst size must be greater than 0");
+            }
+            this.meanGapNanos = TimeUnit.SECONDS.toNanos(1) * burstSize / rate;
+            this.burstSize = burstSize;
+            this.random = new SplittableRandom(seed);
+        }
+
+        @Override
+        public long next() {
+            if (left == 0) {
+                // Inverse transform sampling of the exponential distribution, 1 - u is never 0
+                time += -Math.log(1 - random.nextDouble()) * meanGapNanos;
+                left = burstSize;
+            }
+            left--;
+            return (long) time;
+        }
+    }
+
+    /**
+     * Meals arrive at the times of a recorded trace
+     */
+    final class Trace implements ArrivalProcess {
+        /**
+         * The arrival times in nanoseconds and the eating times in milliseconds, -1 if not recorded
+         */
+        private final long[] arrivals;
+        private final int[] eatTimes;
+        /**
+         * The index of the next arrival
+         */
+        private int index;
+
+        /**
+         * Create a process from arrival and eating times
+         *
+         * @param arrivals The arrival times in nanoseconds since the start, not decreasing
+         * @param eatTimes The eating times in milliseconds, -1 to draw them from the profile
+         */
+        public Trace(long[] arrivals, int[] eatTimes) {
+            if (arrivals.length != eatTimes.length) {
+                throw new IllegalArgumentException("Every arrival needs an eating time");
+            }
+            for (int i = 1; i < arrivals.length; i++) {
+                if (arrivals[i] < arrivals[i - 1]) {
+                    throw new IllegalArgumentException("The arrivals of a trace must be in order");
+                }
+            }
+            this.arrivals = arrivals.clone();
+            this.eatTimes = eatTimes.clone();
+        }
+
+        /**
+         * Read a trace file, one arrival per line with its time in milliseconds and optionally its eating time
+         *
+         * @param file The trace file
+         * @return The arrival process of the trace
+         * @throws IOException If the file cannot be read
+         */
+        public static Trace load(Path file) throws IOException {
+            List<long[]> entries = new ArrayList<>();
+            int lineNumber = 0;
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("[\\s,]+");
+                try {
+                    long arrival = Long.parseLong(fields[0]);
+                    long eatTime = fields.length > 1 ? Integer.parseInt(fields[1]) : -1;
+                    if (arrival < 0 || fields.length > 1 && eatTime < 0 || fields.length > 2) {
+                        throw new NumberFormatException();
+                    }
+                    entries.add(new long[]{TimeUnit.MILLISECONDS.toNanos(arrival), eatTime});
+                } catch (NumberFormatException e) {
+                    throw new IOException("Invalid line " + lineNumber + " of the trace " + file + ": " + line);
+                }
+            }
+            long[] arrivals = new long[entries.size()];
+            int[] eatTimes = new int[entries.size()];
+            for (int i = 0; i < arrivals.length; i++) {
+                arrivals[i] = entries.get(i)[0];
+                eatTimes[i] = (int) entries.get(i)[1];
+            }
+            try {
+                return new Trace(arrivals, eatTimes);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Invalid trace " + file + ": " + e.getMessage());
+            }
+        }
+
+        @Override
+        public long next() {
+            return index < arrivals.length ? arrivals[index++] : -1;
+        }
+
+        @Override
+        public int eatTime() {
+            return index == 0 ? -1 : eatTimes[index - 1];
+        }
+    }
+}
@@ -0,0 +1,254 @@
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A compact hand-written binary codec for messages
+ * <p>
+ * Payload layout (version 1):
+ * <pre>
+ * byte    version
+ * byte    message type
+ * byte    direction
+ * byte    flags (bit 0: hasReceivedPing, bit 1: accepted)
+ * varint  philosopher id
+ * REQUEST: varlong timestamp
+ * COUNTER: varint owner id, varint entry count, entry count * (varint philosopher id, varlong count)
+ * DIGEST:  varint entry count, long digest
+ * NEIGHBOR: varint neighbor id, varint port, varint host length, host length * byte (UTF-8 host)
+ * </pre>
+ * Integers are written as unsigned LEB128 varints so small ids and counts take a single byte
+ */
+public class BinaryCodec implements MessageCodec {
+    /**
+     * The name of the codec
+     */
+    public static final String NAME = "binary";
+    /**
+     * The version of the payload layout
+     */
+    public static final byte VERSION = 1;
+    /**
+     * The size of the fixed payload header in bytes
+     */
+    private static final int HEADER = 4;
+    /**
+     * The flag for the hasReceivedPing field
+     */
+    private static final int FLAG_RECEIVED_PING = 1;
+    /**
+     * The flag for the accepted field
+     */
+    private static final int FLAG_ACCEPTED = 2;
+    /**
+     * Cached enum values to avoid a copy per decoded message
+     */
+    private static final MessageType[] TYPES = MessageType.values();
+    private static final Direction[] DIRECTIONS = Direction.values();
+    /**
+     * Per-thread buffer for a consistent snapshot of the counter entries while encoding
+     */
+    private static final ThreadLocal<EntryBuffer> entryBuffers = ThreadLocal.withInitial(EntryBuffer::new);
+
+    /**
+     * A reusable buffer of counter entries
+     */
+    private static final class EntryBuffer implements GCounter.EntryConsumer {
+        private int[] ids = new int[16];
+        private long[] counts = new long[16];
+        private int size;
+
+        @Override
+        public void accept(int philosopherId, long count) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                counts = Arrays.copyOf(counts, size * 2);
+            }
+            ids[size] = philosopherId;
+            counts[size] = count;
+            size++;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] encode(Message message) throws IOException {
+        MessageType type = message.getType();
+        EntryBuffer entries = null;
+        byte[] host = null;
+        int length = HEADER + varIntSize(message.getPhilosopherId());
+        if (type == MessageType.REQUEST) {
+            length += varLongSize(message.getTimestamp());
+        } else if (type == MessageType.DIGEST) {
+            length += varIntSize(message.getDigestSize()) + Long.BYTES;
+        } else if (type == MessageType.NEIGHBOR) {
+            if (message.getNeighborHost() == null) {
+                throw new ProtocolException("NEIGHBOR message without host");
+            }
+            host = message.getNeighborHost().getBytes(StandardCharsets.UTF_8);
+            length += varIntSize(message.getNeighborId()) + varIntSize(message.getNeighborPort()) + varIntSize(host.length) + host.length;
+        } else if (type == MessageType.COUNTER) {
+            GCounter gCounter = message.getGCounter();
+            if (gCounter == null) {
+                throw new ProtocolException("COUNTER message without counter");
+            }
+            // Take a snapshot first so that concurrent increments cannot change the size between the two passes
+            entries = entryBuffers.get();
+            entries.size = 0;
+            gCounter.forEach(entries);
+            length += varIntSize(gCounter.getPhilosopherId()) + varIntSize(entries.size);
+            for (int i = 0; i < entries.size; i++) {
+                length += varIntSize(entries.ids[i]) + varLongSize(entries.counts[i]);
+            }
+        }
+        byte[] frame = new byte[LENGTH_PREFIX + length];
+        ByteBuffer out = ByteBuffer.wrap(frame);
+        out.putInt(length);
+        out.put(VERSION);
+        out.put((byte) type.ordinal());
+        out.put((byte) message.getDirection().ordinal());
+        out.put((byte) ((message.getHasReceivedPing() ? FLAG_RECEIVED_PING : 0) | (message.isAccepted() ? FLAG_ACCEPTED : 0)));
+        putVarInt(out, message.getPhilosopherId());
+        if (type == MessageType.REQUEST) {
+            putVarLong(out, message.getTimestamp());
+        } else if (type == MessageType.DIGEST) {
+            putVarInt(out, message.getDigestSize());
+            out.putLong(message.getDigest());
+        } else if (host != null) {
+            putVarInt(out, message.getNeighborId());
+            putVarInt(out, message.getNeighborPort());
+            putVarInt(out, host.length);
+            out.put(host);
+        } else if (entries != null) {
+            putVarInt(out, message.getGCounter().getPhilosopherId());
+            putVarInt(out, entries.size);
+            for (int i = 0; i < entries.size; i++) {
+                putVarInt(out, entries.ids[i]);
+                putVarLong(out, entries.counts[i]);
+            }
+        }
+        return frame;
+    }
+
+    @Override
+    public Message decode(ByteBuffer payload) throws IOException {
+        try {
+            byte version = payload.get();
+            if (version != VERSION) {
+                throw new ProtocolException("Unsupported frame version: " + version);
+            }
+            MessageType type = TYPES[checkIndex(payload.get(), TYPES.length, "message type")];
+            Direction direction = DIRECTIONS[checkIndex(payload.get(), DIRECTIONS.length, "direction")];
+            int flags = payload.get();
+            int philosopherId = getVarInt(payload);
+            return switch (type) {
+                case REQUEST -> new Message(type, philosopherId, direction, getVarLong(payload));
+                case REPLY, READY -> new Message(type, philosopherId, direction);
+                case PING -> new Message(type, philosopherId, (flags & FLAG_RECEIVED_PING) != 0, direction);
+                case DIGEST -> new Message(type, philosopherId, direction, getVarInt(payload), payload.getLong());
+                case HELLO, WELCOME -> new Message(type, philosopherId, direction, (flags & FLAG_ACCEPTED) != 0);
+                case NEIGHBOR -> {
+                    int neighborId = getVarInt(payload);
+                    int neighborPort = getVarInt(payload);
+                    int hostLength = getVarInt(payload);
+                    if (hostLength < 0 || hostLength > payload.remaining()) {
+                        throw new ProtocolException("Invalid host length: " + hostLength);
+                    }
+                    byte[] host = new byte[hostLength];
+                    payload.get(host);
+                    yield new Message(type, philosopherId, direction, neighborId, new String(host, StandardCharsets.UTF_8), neighborPort);
+                }
+                case COUNTER -> {
+                    GCounter gCounter = new GCounter(getVarInt(payload));
+                    int entries = getVarInt(payload);
+                    for (int i = 0; i < entries; i++) {
+                        gCounter.merge(getVarInt(payload), getVarLong(payload));
+                    }
+                    yield new Message(type, philosopherId, direction, gCounter);
+                }
+            };
+        } catch (BufferUnderflowException e) {
+            throw new ProtocolException("Truncated frame");
+        }
+    }
+
+    /**
+     * Check that an encoded enum index is in range
+     */
+    private static int checkIndex(byte value, int size, String field) throws ProtocolException {
+        if (value < 0 || value >= size) {
+            throw new ProtocolException("Invalid " + field + ": " + value);
+        }
+        return value;
+    }
+
+    /**
+     * Get the number of bytes of an unsigned varint
+     */
+    static int varIntSize(int value) {
+        return varLongSize(value & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Get the number of bytes of an unsigned varlong
+     */
+    static int varLongSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * Write an unsigned varint
+     */
+    static void putVarInt(ByteBuffer out, int value) {
+        putVarLong(out, value & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Write an unsigned varlong
+     */
+    static void putVarLong(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    /**
+     * Read an unsigned varint
+     */
+    static int getVarInt(ByteBuffer in) throws ProtocolException {
+        long value = getVarLong(in);
+        if (value > 0xFFFFFFFFL) {
+            throw new ProtocolException("Varint overflow");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Read an unsigned varlong
+     */
+    static long getVarLong(ByteBuffer in) throws ProtocolException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new ProtocolException("Varlong overflow");
+    }
+}
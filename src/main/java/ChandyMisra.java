@@ -0,0 +1,255 @@
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The Chandy-Misra protocol with clean and dirty forks
+ * <p>
+ * Every fork shared by two neighbors exists once, together with one request token. A REQUEST message passes the
+ * token to the holder of the fork, a REPLY message passes the fork. A philosopher keeps its forks after eating, so it
+ * eats again without any message until a neighbor asks for a fork. Forks get dirty by eating; a requested fork is
+ * handed over if it is dirty or its holder is not hungry, and it is always cleaned on the way. The initial dirty forks
+ * go to the smaller id of each pair, which keeps the precedence graph acyclic, so no timestamps are needed.
+ * <p>
+ * The fork shared with a failed neighbor is lost with it. A new fork is created for the philosopher that takes the
+ * seat, and it is only used once both ends of the new connection sent READY, so a meal that started before the repair
+ * ends before the new neighbor may eat.
+ */
+public class ChandyMisra implements ForkProtocol {
+    /**
+     * The name of the protocol
+     */
+    public static final String NAME = "chandy-misra";
+    /**
+     * The logger for the ChandyMisra class
+     */
+    private static final Logger logger = LogManager.getLogger(ChandyMisra.class);
+    private final Level NOTICE = Level.forName("NOTICE", 350);
+    /**
+     * The philosopher the protocol belongs to
+     */
+    private final Philosopher philosopher;
+    /**
+     * The lock that guards the forks and tokens, the condition is signalled when a fork arrives
+     * Forks and tokens are sent while the lock is held, so they leave in the order of the state changes
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition forksChanged = lock.newCondition();
+    /**
+     * The forks shared with the neighbors, indexed by the ordinal of the side
+     */
+    private final boolean[] fork = new boolean[2];
+    private final boolean[] dirty = new boolean[2];
+    /**
+     * The request tokens of the forks shared with the neighbors, indexed by the ordinal of the side
+     */
+    private final boolean[] token = new boolean[2];
+    /**
+     * The connections to the neighbors, indexed by the ordinal of the side
+     */
+    private final TransportChannel[] channels = new TransportChannel[2];
+    /**
+     * The flags to indicate that the neighbors sent READY on their connections, indexed by the ordinal of the side
+     */
+    private final boolean[] linkReady = new boolean[2];
+    /**
+     * The state of the philosopher
+     */
+    private boolean hungry = false;
+    private boolean eating = false;
+
+    /**
+     * Create the protocol of a philosopher
+     *
+     * @param philosopher The philosopher the protocol belongs to
+     */
+    public ChandyMisra(Philosopher philosopher) {
+        this.philosopher = philosopher;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void neighborConnected(Direction side, int neighborId, TransportChannel channel) {
+        int id = philosopher.getPhilosopherId();
+        // The smaller id starts with the dirty fork, in a ring of one philosopher the left side
+        boolean holder = id != neighborId ? id < neighborId : side == Direction.LEFT;
+        lock.lock();
+        try {
+            channels[side.ordinal()] = channel;
+            fork[side.ordinal()] = holder;
+            dirty[side.ordinal()] = holder;
+            token[side.ordinal()] = !holder;
+            linkReady[side.ordinal()] = false;
+            update();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void neighborReady(Direction side) {
+        lock.lock();
+        try {
+            linkReady[side.ordinal()] = true;
+            forksChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void neighborFailed(Direction side, TransportChannel channel) {
+        lock.lock();
+        try {
+            channels[side.ordinal()] = null;
+            fork[side.ordinal()] = false;
+            dirty[side.ordinal()] = false;
+            token[side.ordinal()] = false;
+            linkReady[side.ordinal()] = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean acquire(long timeoutNanos) {
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            hungry = true;
+            philosopher.setRequesting(true);
+            update();
+            long remaining = timeoutNanos;
+            while (!(fork[0] && fork[1] && linkReady[0] && linkReady[1])) {
+                try {
+                    if (timeoutNanos < 0) {
+                        forksChanged.await();
+                    } else if (remaining > 0) {
+                        remaining = forksChanged.awaitNanos(remaining);
+                    } else {
+                        // Give up, the forks that arrive are handed over on request
+                        hungry = false;
+                        philosopher.setRequesting(false);
+                        update();
+                        logger.info("Philosopher " + philosopher.getPhilosopherId() + " abandoned the request for forks.");
+                        return false;
+                    }
+                } catch (InterruptedException e) {
+                    logger.error("An error occurred while waiting for forks", e);
+                }
+            }
+            hungry = false;
+            eating = true;
+            dirty[0] = true;
+            dirty[1] = true;
+            philosopher.setCriticalSection(true);
+            philosopher.setRequesting(false);
+        } finally {
+            lock.unlock();
+        }
+        philosopher.getMetrics().getForkAcquisition().observeNanos(System.nanoTime() - start);
+        logger.debug("Philosopher " + philosopher.getPhilosopherId() + " entered the critical section.");
+        return true;
+    }
+
+    @Override
+    public void release() {
+        lock.lock();
+        try {
+            eating = false;
+            philosopher.setCriticalSection(false);
+            // Hand the dirty forks to the neighbors that asked for them while eating
+            update();
+        } finally {
+            lock.unlock();
+        }
+        logger.info("Philosopher " + philosopher.getPhilosopherId() + " is releasing forks.");
+        logger.log(NOTICE, "Philosophers have eaten a total of " + philosopher.getLocalGCounter().query() + " times.");
+    }
+
+    @Override
+    public boolean hasFork(Direction side) {
+        lock.lock();
+        try {
+            return fork[side.ordinal()];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int deferredRequests() {
+        lock.lock();
+        try {
+            // A neighbor waits for a fork while this philosopher holds both the fork and the request token
+            int deferred = 0;
+            for (int i = 0; i < 2; i++) {
+                if (fork[i] && token[i]) {
+                    deferred++;
+                }
+            }
+            return deferred;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void receiveRequest(TransportChannel channel, Message message) {
+        logger.debug("Philosopher " + philosopher.getPhilosopherId() + " received the request token from Philosopher " + message.getPhilosopherId() + " " + message.getDirection());
+        lock.lock();
+        try {
+            token[message.getDirection().ordinal()] = true;
+            update();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void receiveReply(Message message) {
+        logger.debug("Philosopher " + philosopher.getPhilosopherId() + " received the fork from Philosopher " + message.getPhilosopherId() + " " + message.getDirection());
+        lock.lock();
+        try {
+            fork[message.getDirection().ordinal()] = true;
+            dirty[message.getDirection().ordinal()] = false;
+            update();
+            forksChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Hand over the requested forks that may be given away and request the missing forks while hungry
+     * The lock must be held
+     */
+    private void update() {
+        for (Direction side : Direction.values()) {
+            int i = side.ordinal();
+            if (channels[i] == null) {
+                // The neighbor failed, the next one is not connected yet
+                continue;
+            }
+            // The message arrives at the other side of the neighbor
+            Direction direction = philosopher.reverseDirection(side);
+            if (fork[i] && token[i] && !eating && (dirty[i] || !hungry)) {
+                // The token stays, so the fork can be requested back
+                fork[i] = false;
+                dirty[i] = false;
+                philosopher.sendReply(channels[i], direction);
+            }
+            if (hungry && !fork[i] && token[i]) {
+                token[i] = false;
+                philosopher.sendRequest(channels[i], direction, 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A schedule that lets the philosophers of a ring eat in rounds of non-conflicting seats
+ * <p>
+ * The philosophers sit in the order of their ids, philosopher 1 is the right neighbor of philosopher n. Time is divided
+ * into turns of equal length. In every turn every other seat may eat, starting at a seat that moves on by one each
+ * turn, so n/2 philosophers that share no fork ask for them at once. A ring of even size alternates between the two
+ * colors of its seats. A ring of odd size 2k+1 is colored circularly: the round has 2k+1 turns, in each of them k
+ * philosophers eat, and every philosopher eats in k of them. The forks are still acquired with the fork protocol,
+ * the schedule only decides when a philosopher asks for them.
+ */
+public class ColoringSchedule {
+    /**
+     * The name of the schedule
+     */
+    public static final String NAME = "coloring";
+    /**
+     * The number of philosophers at the table
+     */
+    private final int philosophers;
+    /**
+     * The length of a turn in nanoseconds
+     */
+    private final long turnNanos;
+
+    /**
+     * Create the schedule of a ring
+     *
+     * @param philosophers The number of philosophers at the table
+     * @param turn         The length of a turn
+     * @param unit         The unit of the turn
+     */
+    public ColoringSchedule(int philosophers, long turn, TimeUnit unit) {
+        if (philosophers < 2) {
+            throw new IllegalArgumentException("A ring needs at least 2 philosophers");
+        }
+        if (turn <= 0) {
+            throw new IllegalArgumentException("Turn must be positive");
+        }
+        this.philosophers = philosophers;
+        this.turnNanos = unit.toNanos(turn);
+    }
+
+    /**
+     * Get the number of turns after which the schedule repeats
+     *
+     * @return 2 for a ring of even size, the size of the ring otherwise
+     */
+    public int turnsPerRound() {
+        return philosophers % 2 == 0 ? 2 : philosophers;
+    }
+
+    /**
+     * Get the number of turns of a round in which a philosopher eats
+     *
+     * @return 1 for a ring of even size, half the size of the ring rounded down otherwise
+     */
+    public int mealsPerRound() {
+        return philosophers % 2 == 0 ? 1 : philosophers / 2;
+    }
+
+    /**
+     * Check if a philosopher may eat in a turn
+     *
+     * @param philosopherId The id of the philosopher
+     * @param turn          The number of the turn since the start of the shared clock
+     * @return True if the philosopher asks for the forks in the turn
+     */
+    public boolean eatsInTurn(int philosopherId, long turn) {
+        checkId(philosopherId);
+        // The seats at an even distance from the first seat of the turn, without the last one of an odd ring
+        long distance = Math.floorMod(philosopherId - 1 - turn, (long) philosophers);
+        return distance % 2 == 0 && distance < philosophers - philosophers % 2;
+    }
+
+    /**
+     * Get the id of the neighbor of a philosopher in the layout of the schedule
+     *
+     * @param philosopherId The id of the philosopher
+     * @param side          The side of the neighbor
+     * @return The id of the neighbor
+     */
+    public int neighbor(int philosopherId, Direction side) {
+        checkId(philosopherId);
+        if (side == Direction.LEFT) {
+            return philosopherId == 1 ? philosophers : philosopherId - 1;
+        }
+        return philosopherId == philosophers ? 1 : philosopherId + 1;
+    }
+
+    /**
+     * Check if the actual neighbors of a philosopher match the layout of the schedule
+     *
+     * @param philosopherId   The id of the philosopher
+     * @param leftNeighborId  The id of the connected left neighbor
+     * @param rightNeighborId The id of the connected right neighbor
+     * @return True if the schedule may be used by the philosopher
+     */
+    public boolean matches(int philosopherId, int leftNeighborId, int rightNeighborId) {
+        return philosopherId >= 1 && philosopherId <= philosophers
+                && neighbor(philosopherId, Direction.LEFT) == leftNeighborId
+                && neighbor(philosopherId, Direction.RIGHT) == rightNeighborId;
+    }
+
+    /**
+     * Get the start of the next turn of a philosopher
+     *
+     * @param philosopherId The id of the philosopher
+     * @param nowNanos      The current time in nanoseconds, on a clock shared by the whole table
+     * @return The start of the first turn of the philosopher that does not start before now
+     */
+    public long nextTurn(int philosopherId, long nowNanos) {
+        long turn = Math.floorDiv(nowNanos, turnNanos);
+        if (Math.floorMod(nowNanos, turnNanos) != 0) {
+            turn++;
+        }
+        // At most two turns in a row are skipped
+        while (!eatsInTurn(philosopherId, turn)) {
+            turn++;
+        }
+        return turn * turnNanos;
+    }
+
+    /**
+     * Get the length of a turn
+     *
+     * @return The length of a turn in nanoseconds
+     */
+    public long getTurnNanos() {
+        return turnNanos;
+    }
+
+    public int getPhilosophers() {
+        return philosophers;
+    }
+
+    private void checkId(int philosopherId) {
+        if (philosopherId < 1 || philosopherId > philosophers) {
+            throw new IllegalArgumentException("Philosopher " + philosopherId + " is not seated at a ring of " + philosophers);
+        }
+    }
+}
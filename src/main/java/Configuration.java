@@ -0,0 +1,306 @@
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+
+/**
+ * Runtime switches of the application, read from system properties (e.g. -Dddpp.codec=serialization)
+ */
+public final class Configuration {
+    /**
+     * The system property that selects the message codec
+     */
+    public static final String CODEC = "ddpp.codec";
+    /**
+     * The system property that selects the server engine, "blocking" or "nio"
+     */
+    public static final String SERVER_ENGINE = "ddpp.server.engine";
+    /**
+     * The system property that sets the number of shared NIO event loops
+     */
+    public static final String NIO_LOOPS = "ddpp.nio.loops";
+    /**
+     * The system property that selects the kind of threads for the activity loops, "platform" or "virtual"
+     */
+    public static final String THREADS = "ddpp.threads";
+    /**
+     * The system property that selects the transport between the philosophers, "tcp" or "memory"
+     */
+    public static final String TRANSPORT = "ddpp.transport";
+    /**
+     * The system property that selects the fork protocol, "ricart-agrawala" or "chandy-misra"
+     */
+    public static final String PROTOCOL = "ddpp.protocol";
+    /**
+     * The system property that selects when the philosophers ask for the forks, "free" or "coloring"
+     */
+    public static final String SCHEDULE = "ddpp.schedule";
+    /**
+     * The system property that sets the number of philosophers at the table, needed by the coloring schedule
+     */
+    public static final String RING_SIZE = "ddpp.ring.size";
+    /**
+     * The system property that sets the maximum number of meals per acquisition of the forks, 1 disables batching
+     */
+    public static final String BATCH_SIZE = "ddpp.batch.size";
+    /**
+     * The system property that sets the time in milliseconds after which a batch starts no further meal, 0 for no limit
+     */
+    public static final String BATCH_BUDGET = "ddpp.batch.budget";
+    /**
+     * The system property that sets how long before the end of thinking the forks are requested: 0 after thinking,
+     * a time in milliseconds or "auto" for the measured round-trip time to the neighbors
+     */
+    public static final String PREFETCH_MARGIN = "ddpp.prefetch.margin";
+    /**
+     * The system property that sets the properties file of the workload, unset keeps the default closed loop
+     */
+    public static final String WORKLOAD = "ddpp.workload";
+    /**
+     * The system property that sets the port of the metrics endpoint, 0 disables it
+     */
+    public static final String METRICS_PORT = "ddpp.metrics.port";
+    /**
+     * The system property that sets the number of frames that can be queued per neighbor connection
+     */
+    public static final String OUTBOUND_CAPACITY = "ddpp.outbound.capacity";
+    /**
+     * The system property that selects the overflow policy of the outbound queues, "block", "drop_newest" or "drop_oldest"
+     */
+    public static final String OUTBOUND_OVERFLOW = "ddpp.outbound.overflow";
+    /**
+     * The system property that sets the directory of the counter files, unset keeps the counters only in memory
+     */
+    public static final String COUNTER_DIRECTORY = "ddpp.counter.dir";
+
+    private static String workloadFile;
+    private static WorkloadProfile workloadProfile;
+
+    private Configuration() {
+    }
+
+    /**
+     * Get the message codec selected for this process
+     *
+     * @return The message codec, the binary codec by default
+     */
+    public static MessageCodec codec() {
+        return MessageCodec.forName(System.getProperty(CODEC, BinaryCodec.NAME));
+    }
+
+    /**
+     * Get the transport selected for this process
+     *
+     * @return The transport, TCP by default
+     */
+    public static Transport transport() {
+        return Transport.forName(System.getProperty(TRANSPORT, TcpTransport.NAME));
+    }
+
+    /**
+     * Get the name of the fork protocol selected for this process
+     *
+     * @return The name of the protocol, Ricart-Agrawala by default
+     */
+    public static String protocol() {
+        String protocol = System.getProperty(PROTOCOL, RicartAgrawala.NAME).toLowerCase();
+        if (!protocol.equals(RicartAgrawala.NAME) && !protocol.equals(ChandyMisra.NAME)) {
+            throw new IllegalArgumentException("Unknown fork protocol: " + protocol);
+        }
+        return protocol;
+    }
+
+    /**
+     * Check if the philosophers eat in the turns of a {@link ColoringSchedule} instead of after random think times
+     *
+     * @return True if the coloring schedule is selected
+     */
+    public static boolean coloringSchedule() {
+        String schedule = System.getProperty(SCHEDULE, "free");
+        if (!schedule.equalsIgnoreCase("free") && !schedule.equalsIgnoreCase(ColoringSchedule.NAME)) {
+            throw new IllegalArgumentException("Unknown schedule: " + schedule);
+        }
+        return schedule.equalsIgnoreCase(ColoringSchedule.NAME);
+    }
+
+    /**
+     * Get the number of philosophers at the table
+     *
+     * @return The size of the ring, 0 if it is not known (the default)
+     */
+    public static int ringSize() {
+        int size = Integer.getInteger(RING_SIZE, 0);
+        if (size < 0) {
+            throw new IllegalArgumentException("The size of the ring cannot be negative");
+        }
+        return size;
+    }
+
+    /**
+     * Get the maximum number of tasks that a {@link CriticalSectionBatcher} runs per acquisition of the forks
+     *
+     * @return The batch size, 1 by default
+     */
+    public static int batchSize() {
+        int size = Integer.getInteger(BATCH_SIZE, 1);
+        if (size < 1) {
+            throw new IllegalArgumentException("The batch size must be greater than 0");
+        }
+        return size;
+    }
+
+    /**
+     * Get the time after which a {@link CriticalSectionBatcher} starts no further task of a batch
+     *
+     * @return The time budget in milliseconds, 0 to end a batch once a neighbor waits for a fork (the default)
+     */
+    public static long batchBudget() {
+        long budget = Long.getLong(BATCH_BUDGET, 0L);
+        if (budget < 0) {
+            throw new IllegalArgumentException("The time budget of a batch cannot be negative");
+        }
+        return budget;
+    }
+
+    /**
+     * Check if the server should run on the NIO event loops instead of a thread per connection
+     *
+     * @return True if the NIO server engine is selected
+     */
+    public static boolean nioServer() {
+        String engine = System.getProperty(SERVER_ENGINE, "blocking");
+        if (!engine.equalsIgnoreCase("blocking") && !engine.equalsIgnoreCase("nio")) {
+            throw new IllegalArgumentException("Unknown server engine: " + engine);
+        }
+        return engine.equalsIgnoreCase("nio");
+    }
+
+    /**
+     * Get the number of shared NIO event loops
+     *
+     * @return The number of event loops, 1 by default
+     */
+    public static int nioLoops() {
+        int loops = Integer.getInteger(NIO_LOOPS, 1);
+        if (loops < 1) {
+            throw new IllegalArgumentException("The number of NIO event loops must be greater than 0");
+        }
+        return loops;
+    }
+
+    /**
+     * Check if the activity loops should run on virtual threads
+     *
+     * @return True if virtual threads are selected
+     */
+    public static boolean virtualThreads() {
+        String threads = System.getProperty(THREADS, "platform");
+        if (!threads.equalsIgnoreCase("platform") && !threads.equalsIgnoreCase("virtual")) {
+            throw new IllegalArgumentException("Unknown thread mode: " + threads);
+        }
+        return threads.equalsIgnoreCase("virtual");
+    }
+
+    /**
+     * Get the number of frames that can be queued per neighbor connection
+     *
+     * @return The capacity of the outbound queues, 1024 by default
+     */
+    public static int outboundCapacity() {
+        int capacity = Integer.getInteger(OUTBOUND_CAPACITY, 1024);
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity of the outbound queues must be greater than 0");
+        }
+        return capacity;
+    }
+
+    /**
+     * Get the overflow policy of the outbound queues
+     *
+     * @return The overflow policy, block by default
+     */
+    public static OutboundQueue.OverflowPolicy outboundOverflow() {
+        String policy = System.getProperty(OUTBOUND_OVERFLOW, "block");
+        try {
+            return OutboundQueue.OverflowPolicy.valueOf(policy.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown overflow policy: " + policy);
+        }
+    }
+
+    /**
+     * Get the directory in which the philosophers keep their counters across restarts
+     *
+     * @return The directory, or null if the counters live only in memory (the default)
+     */
+    public static Path counterDirectory() {
+        String directory = System.getProperty(COUNTER_DIRECTORY, "");
+        if (directory.isBlank()) {
+            return null;
+        }
+        try {
+            return Path.of(directory);
+        } catch (InvalidPathException e) {
+            throw new IllegalArgumentException("Invalid counter directory: " + directory);
+        }
+    }
+
+    /**
+     * Get the time before the end of thinking at which a philosopher requests the forks
+     *
+     * @return The margin in milliseconds, 0 to request the forks after thinking (the default) or -1 to estimate it from
+     * the round-trip times to the neighbors
+     */
+    public static long prefetchMargin() {
+        String margin = System.getProperty(PREFETCH_MARGIN, "0").trim();
+        if (margin.equalsIgnoreCase("auto")) {
+            return -1;
+        }
+        try {
+            long millis = Long.parseLong(margin);
+            if (millis >= 0) {
+                return millis;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("The prefetch margin must be auto or 0 or more milliseconds: " + margin);
+    }
+
+    /**
+     * Get the workload of the philosophers of this process
+     *
+     * The file is read once and the profile is kept until the property names another file.
+     *
+     * @return The profile read from the workload file, the default profile if none is set
+     */
+    public static synchronized WorkloadProfile workload() {
+        String file = System.getProperty(WORKLOAD, "");
+        if (workloadProfile != null && file.equals(workloadFile)) {
+            return workloadProfile;
+        }
+        if (file.isBlank()) {
+            workloadProfile = WorkloadProfile.defaults();
+        } else {
+            try {
+                workloadProfile = WorkloadProfile.load(Path.of(file));
+            } catch (IOException | InvalidPathException e) {
+                throw new IllegalArgumentException("Cannot read the workload profile " + file, e);
+            }
+        }
+        workloadFile = file;
+        return workloadProfile;
+    }
+
+    /**
+     * Get the port of the metrics endpoint
+     *
+     * @return The port, or 0 if the endpoint is disabled (the default)
+     */
+    public static int metricsPort() {
+        int port = Integer.getInteger(METRICS_PORT, 0);
+        if (port < 0 || port > 65535) {
+            throw new IllegalArgumentException("Metrics port is out of the valid range of 0-65535");
+        }
+        return port;
+    }
+}
@@ -0,0 +1,397 @@
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Delta-state replication of the G-Counter to the two neighbors
+ * <p>
+ * For each neighbor the gossip remembers the counts that were last written to it and the ids raised since, so a
+ * round only visits the raised entries and its cost follows the meal rate, not the size of the ring. A periodic
+ * digest round repairs gaps: each philosopher acknowledges the digest of the counts it received from a neighbor, and
+ * the neighbor compares it with the states it wrote to the connection before. Deltas still in flight match an older
+ * state, so only a lost delta makes a neighbor miss all of them. A neighbor that misses them in
+ * {@link #MISMATCH_LIMIT} digest rounds in a row gets the full state on the next round. The interval between rounds
+ * backs off while nothing changes.
+ */
+public class CounterGossip {
+    /**
+     * The shortest interval between gossip rounds in milliseconds
+     */
+    public static final long MIN_INTERVAL = 100;
+    /**
+     * The longest interval between gossip rounds in milliseconds while the counter is idle
+     */
+    public static final long MAX_INTERVAL = 3200;
+    /**
+     * The interval between anti-entropy digest rounds in milliseconds
+     */
+    public static final long ANTI_ENTROPY_INTERVAL = 5000;
+    /**
+     * The number of digest rounds in a row with a diverging digest after which a neighbor gets the full state
+     */
+    public static final int MISMATCH_LIMIT = 3;
+    /**
+     * The number of written states per neighbor that an acknowledgement is compared with
+     */
+    public static final int HISTORY_LIMIT = 128;
+    /**
+     * The counter that is replicated
+     */
+    private final GCounter gCounter;
+    /**
+     * The counts last written to each neighbor
+     */
+    private final Map<Direction, GCounter> sent = new EnumMap<>(Direction.class);
+    /**
+     * The digests of the counts written to each neighbor since the last acknowledged one, oldest first
+     */
+    private final Map<Direction, Deque<Digest>> history = new EnumMap<>(Direction.class);
+    /**
+     * The counts received from each neighbor over its current connection
+     */
+    private final Map<Direction, GCounter> received = new EnumMap<>(Direction.class);
+    /**
+     * The ids of the entries that may have been raised since they were last written to each neighbor
+     */
+    private final Map<Direction, Set<Integer>> pending = new EnumMap<>(Direction.class);
+    /**
+     * The number of digest rounds in a row in which the digest of each neighbor differed
+     */
+    private final Map<Direction, Integer> mismatches = new EnumMap<>(Direction.class);
+    /**
+     * The lock that guards the gossip state and the condition that wakes up the gossip loop
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    /**
+     * The current interval between gossip rounds in milliseconds
+     */
+    private long interval = MIN_INTERVAL;
+    /**
+     * The flag to indicate that the counter changed since the last round
+     */
+    private boolean dirty = true;
+    /**
+     * The time of the last anti-entropy round in nanoseconds
+     */
+    private long lastAntiEntropy = System.nanoTime();
+
+    /**
+     * Create a new gossip for a counter
+     *
+     * @param gCounter The counter that is replicated
+     */
+    public CounterGossip(GCounter gCounter) {
+        this.gCounter = gCounter;
+        for (Direction direction : Direction.values()) {
+            sent.put(direction, new GCounter(gCounter.getPhilosopherId()));
+            history.put(direction, new ArrayDeque<>());
+            history.get(direction).add(new Digest(0, 0));
+            received.put(direction, new GCounter(gCounter.getPhilosopherId()));
+            pending.put(direction, ConcurrentHashMap.newKeySet());
+            mismatches.put(direction, 0);
+        }
+        gCounter.setListener(this::entryRaised);
+        // The entries of a restored counter are pending until they are marked as sent
+        gCounter.forEach(this::entryRaised);
+    }
+
+    /**
+     * Wait for the next gossip round
+     * Returns after the current interval, or after the minimal interval if the counter changed
+     *
+     * @throws InterruptedException If the thread is interrupted while waiting
+     */
+    public void awaitRound() throws InterruptedException {
+        lock.lock();
+        try {
+            long start = System.nanoTime();
+            // Wait at least the minimal interval so that bursts of changes are coalesced
+            long earliest = start + TimeUnit.MILLISECONDS.toNanos(MIN_INTERVAL);
+            long latest = start + TimeUnit.MILLISECONDS.toNanos(interval);
+            while (true) {
+                long now = System.nanoTime();
+                if (now - latest >= 0 || (dirty && now - earliest >= 0)) {
+                    break;
+                }
+                changed.awaitNanos((dirty ? earliest : latest) - now);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Notify the gossip that the counter changed
+     */
+    public void counterChanged() {
+        lock.lock();
+        try {
+            if (!dirty) {
+                dirty = true;
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the entries that grew since they were last written to a neighbor
+     *
+     * @param neighbor The side of the neighbor
+     * @return A counter with the changed entries, or null if nothing changed
+     */
+    public GCounter delta(Direction neighbor) {
+        lock.lock();
+        try {
+            GCounter lastSent = sent.get(neighbor);
+            Set<Integer> raised = pending.get(neighbor);
+            GCounter delta = new GCounter(gCounter.getPhilosopherId());
+            for (Iterator<Integer> iterator = raised.iterator(); iterator.hasNext(); ) {
+                int philosopherId = iterator.next();
+                long count = gCounter.get(philosopherId);
+                if (count > lastSent.get(philosopherId)) {
+                    delta.merge(philosopherId, count);
+                } else {
+                    iterator.remove();
+                    recheck(neighbor, philosopherId);
+                }
+            }
+            return delta.size() == 0 ? null : delta;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Record that a delta was written to a neighbor
+     *
+     * @param neighbor The side of the neighbor
+     * @param delta    The delta that was written
+     */
+    public void markSent(Direction neighbor, GCounter delta) {
+        lock.lock();
+        try {
+            GCounter lastSent = sent.get(neighbor);
+            lastSent.merge(delta);
+            Deque<Digest> written = history.get(neighbor);
+            if (written.size() == HISTORY_LIMIT) {
+                written.removeFirst();
+            }
+            written.addLast(new Digest(lastSent.size(), lastSent.digest()));
+            Set<Integer> raised = pending.get(neighbor);
+            delta.forEach((philosopherId, count) -> {
+                raised.remove(philosopherId);
+                recheck(neighbor, philosopherId);
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Finish a gossip round and adapt the interval
+     *
+     * @param sentAnything True if a delta was written in this round
+     */
+    public void roundFinished(boolean sentAnything) {
+        lock.lock();
+        try {
+            dirty = false;
+            interval = sentAnything ? MIN_INTERVAL : Math.min(interval * 2, MAX_INTERVAL);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Check if an anti-entropy digest round is due and start it
+     *
+     * @return True if the digests should be sent now
+     */
+    public boolean antiEntropyDue() {
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            if (now - lastAntiEntropy < TimeUnit.MILLISECONDS.toNanos(ANTI_ENTROPY_INTERVAL)) {
+                return false;
+            }
+            lastAntiEntropy = now;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Record the counts received from a neighbor, they are acknowledged with the next digest
+     *
+     * @param neighbor The side of the neighbor
+     * @param counter  The counter or the delta of the counter of the neighbor
+     */
+    public void counterReceived(Direction neighbor, GCounter counter) {
+        lock.lock();
+        try {
+            received.get(neighbor).merge(counter);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the digest of the counts received from a neighbor, sent to it as the acknowledgement of its deltas
+     *
+     * @param neighbor The side of the neighbor
+     * @return The digest of the received counts
+     */
+    public Digest acknowledgement(Direction neighbor) {
+        lock.lock();
+        try {
+            GCounter counts = received.get(neighbor);
+            return new Digest(counts.size(), counts.digest());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Compare the acknowledgement of a neighbor with the states written to it
+     * The acknowledged state and the states written after it are kept, older ones are dropped. After
+     * {@link #MISMATCH_LIMIT} acknowledgements in a row that match no written state the full state is sent to the
+     * neighbor on the next round.
+     *
+     * @param neighbor The side of the neighbor
+     * @param size     The number of entries the neighbor received
+     * @param digest   The digest of the counts the neighbor received
+     * @return True if the acknowledgement matches no written state
+     */
+    public boolean receiveDigest(Direction neighbor, int size, long digest) {
+        boolean resync;
+        lock.lock();
+        try {
+            Deque<Digest> written = history.get(neighbor);
+            for (Digest state : written) {
+                if (state.getSize() == size && state.getDigest() == digest) {
+                    while (written.peekFirst() != state) {
+                        written.removeFirst();
+                    }
+                    mismatches.put(neighbor, 0);
+                    return false;
+                }
+            }
+            int count = mismatches.get(neighbor) + 1;
+            resync = count >= MISMATCH_LIMIT;
+            mismatches.put(neighbor, resync ? 0 : count);
+        } finally {
+            lock.unlock();
+        }
+        if (resync) {
+            resync(neighbor);
+        }
+        return true;
+    }
+
+    /**
+     * Start over with a neighbor that was replaced by another philosopher
+     * The full state is sent to it on the next round and its acknowledgements only cover the new connection
+     *
+     * @param neighbor The side of the neighbor
+     */
+    public void neighborChanged(Direction neighbor) {
+        lock.lock();
+        try {
+            received.put(neighbor, new GCounter(gCounter.getPhilosopherId()));
+            history.get(neighbor).clear();
+            history.get(neighbor).add(new Digest(0, 0));
+            resync(neighbor);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Send the full state to a neighbor on the next round
+     *
+     * @param neighbor The side of the neighbor
+     */
+    private void resync(Direction neighbor) {
+        lock.lock();
+        try {
+            sent.put(neighbor, new GCounter(gCounter.getPhilosopherId()));
+            Set<Integer> raised = pending.get(neighbor);
+            gCounter.forEach((philosopherId, count) -> raised.add(philosopherId));
+            mismatches.put(neighbor, 0);
+            dirty = true;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remember a raised entry for both neighbors, called by the counter after the count was raised
+     */
+    private void entryRaised(int philosopherId, long count) {
+        for (Set<Integer> raised : pending.values()) {
+            raised.add(philosopherId);
+        }
+    }
+
+    /**
+     * Keep an entry pending if it was raised again while it was removed, the counter adds it before or after
+     */
+    private void recheck(Direction neighbor, int philosopherId) {
+        if (gCounter.get(philosopherId) > sent.get(neighbor).get(philosopherId)) {
+            pending.get(neighbor).add(philosopherId);
+        }
+    }
+
+    /**
+     * Get the current interval between gossip rounds
+     *
+     * @return The interval in milliseconds
+     */
+    public long getInterval() {
+        lock.lock();
+        try {
+            return interval;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The number of entries and the digest of a state of a counter
+     */
+    public static final class Digest {
+        private final int size;
+        private final long digest;
+
+        /**
+         * Create a new digest
+         *
+         * @param size   The number of entries of the counter
+         * @param digest The digest of the counter, see {@link GCounter#digest()}
+         */
+        public Digest(int size, long digest) {
+            this.size = size;
+            this.digest = digest;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public long getDigest() {
+            return digest;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A memory-mapped file that keeps the counts of a {@link GCounter} across restarts
+ * <p>
+ * The file starts with a header of a magic number, a version and the number of entries, followed by one slot of 16
+ * bytes per philosopher with its id and its count. A raised count is written to its slot in place with a
+ * compare-and-set, so the file is never rewritten and concurrent merges cannot lower a count. A new slot is written
+ * before it is counted in the header, so a torn write is ignored on the next start. The writes land in the page cache
+ * and survive a killed process; only a crash of the operating system can lose the writes since the last flush.
+ */
+public class CounterStore implements Closeable {
+    /**
+     * The magic number and the version of the file format
+     */
+    private static final int MAGIC = 0x44445043;
+    private static final int VERSION = 1;
+    /**
+     * The sizes of the header and of a slot in bytes
+     */
+    private static final int HEADER = 16;
+    private static final int SLOT = 16;
+    /**
+     * The offset of the number of entries in the header
+     */
+    private static final int ENTRIES = 8;
+    /**
+     * The number of slots of a new file, the file doubles when it is full
+     */
+    private static final int INITIAL_SLOTS = 256;
+    /**
+     * The ordered and atomic access to the longs of the mapped file
+     */
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    /**
+     * The file of the store
+     */
+    private final FileChannel channel;
+    /**
+     * The mapping of the file, replaced by a larger one when the file grows
+     * Writers holding an older mapping still write to the same pages of the file
+     */
+    private volatile MappedByteBuffer buffer;
+    /**
+     * The slots of the philosophers by id
+     */
+    private final Map<Integer, Integer> slots = new ConcurrentHashMap<>();
+    /**
+     * The number of slots in use and the number of slots of the mapping, guarded by the store
+     */
+    private int entries;
+    private int capacity;
+
+    /**
+     * Open a store, creating the file if it does not exist
+     *
+     * @param file The file of the store
+     * @throws IOException If the file cannot be opened or is not a counter file
+     */
+    public CounterStore(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long size = channel.size();
+            if (size == 0) {
+                map(INITIAL_SLOTS);
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(Integer.BYTES, VERSION);
+                LONGS.setRelease(buffer, ENTRIES, 0L);
+                return;
+            }
+            if (size < HEADER || (size - HEADER) % SLOT != 0) {
+                throw new IOException("Not a counter file: " + file);
+            }
+            map((int) ((size - HEADER) / SLOT));
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(Integer.BYTES) != VERSION) {
+                throw new IOException("Not a counter file: " + file);
+            }
+            long stored = (long) LONGS.getAcquire(buffer, ENTRIES);
+            if (stored < 0 || stored > capacity) {
+                throw new IOException("Corrupt counter file: " + file);
+            }
+            entries = (int) stored;
+            for (int slot = 0; slot < entries; slot++) {
+                slots.put((int) buffer.getLong(HEADER + slot * SLOT), slot);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Load the stored counts into a counter and write every later change of the counter to the store
+     *
+     * @param counter The counter, usually empty
+     */
+    public void attach(GCounter counter) {
+        MappedByteBuffer buffer = this.buffer;
+        for (Map.Entry<Integer, Integer> slot : slots.entrySet()) {
+            counter.merge(slot.getKey(), (long) LONGS.getVolatile(buffer, HEADER + slot.getValue() * SLOT + Long.BYTES));
+        }
+        // Counts of the counter that are not stored yet
+        counter.forEach(this::write);
+        counter.setStore(this);
+    }
+
+    /**
+     * Raise the stored count of a philosopher to the given value if it is larger
+     *
+     * @param philosopherId The id of the philosopher
+     * @param count         The count of the philosopher
+     */
+    public void write(int philosopherId, long count) {
+        Integer slot = slots.get(philosopherId);
+        if (slot == null) {
+            slot = allocate(philosopherId);
+        }
+        int offset = HEADER + slot * SLOT + Long.BYTES;
+        MappedByteBuffer buffer = this.buffer;
+        long current;
+        do {
+            current = (long) LONGS.getVolatile(buffer, offset);
+            if (count <= current) {
+                return;
+            }
+        } while (!LONGS.compareAndSet(buffer, offset, current, count));
+    }
+
+    /**
+     * Get the stored count of a philosopher
+     *
+     * @param philosopherId The id of the philosopher
+     * @return The stored count, 0 if unknown
+     */
+    public long get(int philosopherId) {
+        Integer slot = slots.get(philosopherId);
+        return slot == null ? 0 : (long) LONGS.getVolatile(buffer, HEADER + slot * SLOT + Long.BYTES);
+    }
+
+    /**
+     * Get the number of philosophers with a slot
+     *
+     * @return The number of entries of the store
+     */
+    public synchronized int size() {
+        return entries;
+    }
+
+    /**
+     * Flush the file and close it
+     *
+     * @throws IOException If the file cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    /**
+     * Add the slot of a philosopher, growing the file if it is full
+     * The id is written before the slot is counted in the header
+     */
+    private synchronized int allocate(int philosopherId) {
+        Integer existing = slots.get(philosopherId);
+        if (existing != null) {
+            return existing;
+        }
+        if (entries == capacity) {
+            try {
+                map(capacity * 2);
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot grow the counter file", e);
+            }
+        }
+        int slot = entries;
+        buffer.putLong(HEADER + slot * SLOT, philosopherId);
+        entries++;
+        LONGS.setRelease(buffer, ENTRIES, (long) entries);
+        slots.put(philosopherId, slot);
+        return slot;
+    }
+
+    /**
+     * Map the file with room for the given number of slots, extending the file if needed
+     */
+    private void map(int slots) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER + (long) slots * SLOT);
+        capacity = slots;
+    }
+}
@@ -0,0 +1,187 @@
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the tasks submitted to a philosopher in batches, one acquisition of the forks per batch
+ * <p>
+ * The tasks are queued and a single thread drains them: once a task is queued it takes the
+ * {@link DistributedMutex} of the philosopher and runs the queued tasks until the batch holds the maximum number of
+ * tasks, the time budget of the batch is spent or the queue is empty. Then it releases the forks. Under load one
+ * REQUEST/REPLY round with the neighbors serves many tasks instead of one.
+ * <p>
+ * A neighbor that asks for a fork during a batch waits at most for the rest of the batch: a task is only started
+ * within the budget, or, without a budget, while no neighbor waits, and the forks are released after every batch. Both protocols hand the forks to the waiting
+ * neighbor before the next batch, Ricart-Agrawala because the next request has a later timestamp and Chandy-Misra
+ * because the forks are dirty.
+ */
+public class CriticalSectionBatcher implements Executor {
+    /**
+     * The logger for the CriticalSectionBatcher class
+     */
+    private static final Logger logger = LogManager.getLogger(CriticalSectionBatcher.class);
+    /**
+     * The philosopher whose forks guard the tasks
+     */
+    private final Philosopher philosopher;
+    /**
+     * The maximum number of tasks per batch
+     */
+    private final int maxBatchSize;
+    /**
+     * The time in nanoseconds after which no further task of a batch is started, 0 to end the batch once a neighbor waits
+     */
+    private final long budgetNanos;
+    /**
+     * The queued tasks, a full queue blocks the submitters
+     */
+    private final BlockingQueue<Runnable> tasks;
+
+    /**
+     * Create a batcher with the batch size and time budget selected for this process, see
+     * {@link Configuration#batchSize()} and {@link Configuration#batchBudget()}
+     *
+     * @param philosopher The philosopher whose forks guard the tasks
+     */
+    public CriticalSectionBatcher(Philosopher philosopher) {
+        this(philosopher, Configuration.batchSize(), Configuration.batchBudget(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Create a batcher, the queue holds up to two batches
+     *
+     * @param philosopher  The philosopher whose forks guard the tasks
+     * @param maxBatchSize The maximum number of tasks per batch
+     * @param budget       The time after which no further task of a batch is started, 0 to end the batch once a
+     *                     neighbor waits
+     * @param unit         The unit of the budget
+     */
+    public CriticalSectionBatcher(Philosopher philosopher, int maxBatchSize, long budget, TimeUnit unit) {
+        this(philosopher, maxBatchSize, budget, unit, 2 * maxBatchSize);
+    }
+
+    /**
+     * Create a batcher
+     *
+     * @param philosopher  The philosopher whose forks guard the tasks
+     * @param maxBatchSize The maximum number of tasks per batch
+     * @param budget       The time after which no further task of a batch is started, 0 to end the batch once a
+     *                     neighbor waits
+     * @param unit         The unit of the budget
+     * @param capacity     The number of tasks that can be queued before the submitters wait
+     */
+    public CriticalSectionBatcher(Philosopher philosopher, int maxBatchSize, long budget, TimeUnit unit, int capacity) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("The batch size must be greater than 0");
+        }
+        if (budget < 0) {
+            throw new IllegalArgumentException("The time budget of a batch cannot be negative");
+        }
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity of the queue must be greater than 0");
+        }
+        this.philosopher = philosopher;
+        this.maxBatchSize = maxBatchSize;
+        this.budgetNanos = unit.toNanos(budget);
+        this.tasks = new LinkedBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Start the thread that runs the batches
+     */
+    public void start() {
+        ActivityExecutor.execute("batch-" + philosopher.getPhilosopherId(), () -> {
+            while (true) {
+                try {
+                    Runnable first = tasks.take();
+                    runBatch(first);
+                } catch (InterruptedException e) {
+                    logger.error("An error occurred while waiting for a task", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Queue a task, waiting while the queue is full
+     *
+     * @param task The task of the critical section
+     * @return The future that completes once the task ran, exceptionally if it failed
+     */
+    public CompletableFuture<Void> submit(Runnable task) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            tasks.put(() -> {
+                try {
+                    task.run();
+                    future.complete(null);
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        submit(task);
+    }
+
+    /**
+     * Get the number of queued tasks
+     *
+     * @return The number of tasks waiting for a batch
+     */
+    public int getQueued() {
+        return tasks.size();
+    }
+
+    /**
+     * Hold the forks for the first task and the tasks queued behind it
+     */
+    private void runBatch(Runnable first) {
+        DistributedMutex mutex = philosopher.getMutex();
+        int size = 0;
+        mutex.lock();
+        try {
+            long start = System.nanoTime();
+            Runnable task = first;
+            while (task != null) {
+                task.run();
+                size++;
+                if (size == maxBatchSize || budgetSpent(start)) {
+                    break;
+                }
+                task = tasks.poll();
+            }
+        } finally {
+            mutex.unlock();
+        }
+        philosopher.getMetrics().getBatchSize().observe(size);
+        logger.debug("Philosopher " + philosopher.getPhilosopherId() + " ran a batch of " + size + " tasks");
+    }
+
+    /**
+     * Check if a batch that started at a time may start no further task
+     * Without a time budget the batch ends as soon as a neighbor waits for a fork, so a neighbor waits for one task at
+     * most instead of the whole batch.
+     *
+     * @param start The start of the batch as returned by {@link System#nanoTime()}
+     * @return True if the batch should release the forks
+     */
+    private boolean budgetSpent(long start) {
+        if (budgetNanos > 0) {
+            return System.nanoTime() - start >= budgetNanos;
+        }
+        return philosopher.getForkProtocol().deferredRequests() > 0;
+    }
+}
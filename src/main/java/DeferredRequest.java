@@ -1,13 +1,11 @@
-import java.net.Socket;
-
 /**
  * A deferred request is a request that has been received but cannot be processed yet
  */
 public class DeferredRequest {
     /**
-     * The socket of the client that sent the request
+     * The channel to the neighbor that sent the request
      */
-    private final Socket socket;
+    private final TransportChannel channel;
 
     /**
      * The direction of the request
@@ -17,21 +15,21 @@ public class DeferredRequest {
     /**
      * Create a new deferred request
      *
-     * @param socket    The socket of the client that sent the request
+     * @param channel   The channel to the neighbor that sent the request
      * @param direction The direction of the request
      */
-    public DeferredRequest(Socket socket, Direction direction) {
-        this.socket = socket;
+    public DeferredRequest(TransportChannel channel, Direction direction) {
+        this.channel = channel;
         this.direction = direction;
     }
 
     /**
-     * Get the socket of the client that sent the request
+     * Get the channel to the neighbor that sent the request
      *
-     * @return The socket of the client that sent the request
+     * @return The channel the reply is sent on
      */
-    public Socket getSocket() {
-        return socket;
+    public TransportChannel getChannel() {
+        return channel;
     }
 
     /**
@@ -46,8 +44,8 @@ public class DeferredRequest {
     @Override
     public String toString() {
         return "DeferredRequest{" +
-                "socket=" + socket +
+                "channel=" + channel +
                 ", direction='" + direction + '\'' +
                 '}';
     }
-}
\ No newline at end of file
+}
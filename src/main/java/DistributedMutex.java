@@ -0,0 +1,141 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A mutual exclusion lock shared by a philosopher with its neighbors
+ * <p>
+ * Holding the lock means holding both forks of the philosopher, so no neighbor holds its lock at the same time. The
+ * forks are acquired with the fork protocol of the philosopher, see {@link ForkProtocol}. The threads of the process
+ * that use the same philosopher take turns in the order they asked, before one of them asks the neighbors. The lock is
+ * not reentrant. The time to acquire the lock and the time it was held are recorded per call.
+ */
+public class DistributedMutex {
+    /**
+     * The philosopher whose forks guard the critical section
+     */
+    private final Philosopher philosopher;
+    /**
+     * The lock that lets one thread of the process at a time ask for the forks
+     */
+    private final ReentrantLock localLock = new ReentrantLock(true);
+    /**
+     * The time of {@link System#nanoTime()} at which the lock was acquired, guarded by the local lock
+     */
+    private long lockedNanos;
+
+    /**
+     * Create the lock of a philosopher
+     *
+     * @param philosopher The philosopher whose forks guard the critical section
+     */
+    public DistributedMutex(Philosopher philosopher) {
+        this.philosopher = philosopher;
+    }
+
+    /**
+     * Acquire the lock, waiting as long as it takes
+     */
+    public void lock() {
+        if (localLock.isHeldByCurrentThread()) {
+            throw new IllegalStateException("The lock of Philosopher " + philosopher.getPhilosopherId() + " is not reentrant");
+        }
+        long start = System.nanoTime();
+        localLock.lock();
+        philosopher.requestForks();
+        locked(start);
+    }
+
+    /**
+     * Acquire the lock if it is available within the given time
+     *
+     * @param timeout The maximum time to wait
+     * @param unit    The unit of the timeout
+     * @return True if the lock was acquired
+     * @throws InterruptedException If the thread was interrupted while waiting for another thread of the process
+     */
+    public boolean tryLock(long timeout, TimeUnit unit) throws InterruptedException {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Timeout cannot be negative");
+        }
+        if (localLock.isHeldByCurrentThread()) {
+            throw new IllegalStateException("The lock of Philosopher " + philosopher.getPhilosopherId() + " is not reentrant");
+        }
+        long start = System.nanoTime();
+        long deadline = start + unit.toNanos(timeout);
+        if (!localLock.tryLock(timeout, unit)) {
+            philosopher.getMetrics().getMutexTimeouts().increment();
+            return false;
+        }
+        if (!philosopher.requestForks(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS)) {
+            localLock.unlock();
+            philosopher.getMetrics().getMutexTimeouts().increment();
+            return false;
+        }
+        locked(start);
+        return true;
+    }
+
+    /**
+     * Release the lock and hand the forks to the neighbors that asked for them
+     */
+    public void unlock() {
+        if (!localLock.isHeldByCurrentThread()) {
+            throw new IllegalMonitorStateException("The lock of Philosopher " + philosopher.getPhilosopherId() + " is not held by this thread");
+        }
+        try {
+            philosopher.getMetrics().getMutexHold().observeNanos(System.nanoTime() - lockedNanos);
+            philosopher.releaseForks();
+        } finally {
+            localLock.unlock();
+        }
+    }
+
+    /**
+     * Run a task while holding the lock
+     *
+     * @param task The task of the critical section
+     */
+    public void withLock(Runnable task) {
+        lock();
+        try {
+            task.run();
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * Check if the current thread holds the lock
+     *
+     * @return True if the current thread holds the lock
+     */
+    public boolean isHeldByCurrentThread() {
+        return localLock.isHeldByCurrentThread();
+    }
+
+    /**
+     * Get the times from asking for the lock until holding it, including the wait for other threads of the process
+     *
+     * @return The histogram of the acquisition latencies
+     */
+    public MetricsRegistry.Histogram getAcquireLatency() {
+        return philosopher.getMetrics().getMutexAcquire();
+    }
+
+    /**
+     * Get the times the lock was held
+     *
+     * @return The histogram of the hold times
+     */
+    public MetricsRegistry.Histogram getHoldTime() {
+        return philosopher.getMetrics().getMutexHold();
+    }
+
+    /**
+     * Record the acquisition of the lock, the local lock is held
+     */
+    private void locked(long start) {
+        lockedNanos = System.nanoTime();
+        philosopher.getMetrics().getMutexAcquire().observeNanos(lockedNanos - start);
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * The number of philosophers of the process that eat at the same time
+ * <p>
+ * The time integral of the eaters is kept, so the average number of concurrent eaters since the first meal can be
+ * compared between scheduling modes. A ring spread over several processes adds up the averages of the processes.
+ */
+public class EaterUtilization {
+    /**
+     * The utilization of the process, served as ddpp_concurrent_eaters and ddpp_concurrent_eaters_average
+     */
+    private static final EaterUtilization DEFAULT = new EaterUtilization();
+    /**
+     * The number of philosophers eating right now
+     */
+    private int eaters;
+    /**
+     * The start of the measurement, or -1 before the first meal
+     */
+    private long startNanos = -1;
+    /**
+     * The time of the last change of the eaters and the integral of the eaters over time up to it
+     */
+    private long lastChangeNanos;
+    private double eaterNanos;
+
+    static {
+        DEFAULT.register(MetricsRegistry.getDefault());
+    }
+
+    /**
+     * Register the gauges of the utilization, once it is constructed
+     *
+     * @param registry The registry of the gauges
+     */
+    public void register(MetricsRegistry registry) {
+        registry.gauge("ddpp_concurrent_eaters", "Philosophers of the process eating right now", this::getEaters);
+        registry.gauge("ddpp_concurrent_eaters_average", "Average number of philosophers of the process eating at the same time since the first meal", this::getAverage);
+    }
+
+    /**
+     * Get the utilization of the process
+     *
+     * @return The default utilization
+     */
+    public static EaterUtilization getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Record that a philosopher started eating
+     */
+    public void startEating() {
+        change(1, System.nanoTime());
+    }
+
+    /**
+     * Record that a philosopher stopped eating
+     */
+    public void stopEating() {
+        change(-1, System.nanoTime());
+    }
+
+    synchronized void change(int delta, long nowNanos) {
+        if (startNanos < 0) {
+            startNanos = nowNanos;
+        } else {
+            eaterNanos += (double) eaters * (nowNanos - lastChangeNanos);
+        }
+        lastChangeNanos = nowNanos;
+        eaters += delta;
+    }
+
+    public synchronized int getEaters() {
+        return eaters;
+    }
+
+    /**
+     * Get the average number of concurrent eaters since the first meal
+     *
+     * @return The average, 0 before the first meal
+     */
+    public double getAverage() {
+        return getAverage(System.nanoTime());
+    }
+
+    synchronized double getAverage(long nowNanos) {
+        if (startNanos < 0 || nowNanos <= startNanos) {
+            return 0;
+        }
+        return (eaterNanos + (double) eaters * (nowNanos - lastChangeNanos)) / (nowNanos - startNanos);
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * The protocol that decides when a philosopher may use the forks it shares with its neighbors
+ * <p>
+ * The philosopher acquires and releases the forks around every meal, the server hands the REQUEST and REPLY messages
+ * of the neighbors to the protocol. The protocol is selected at startup, see {@link Configuration#protocol()}.
+ */
+public interface ForkProtocol {
+    /**
+     * Get the name of the protocol
+     *
+     * @return The name used to select the protocol
+     */
+    String getName();
+
+    /**
+     * Acquire both forks and enter the critical section
+     *
+     * @param timeoutNanos The maximum time to wait in nanoseconds, or a negative value to wait indefinitely
+     * @return True if the philosopher entered the critical section, false if the timeout elapsed
+     */
+    boolean acquire(long timeoutNanos);
+
+    /**
+     * Leave the critical section and hand the forks to the neighbors that asked for them
+     */
+    void release();
+
+    /**
+     * Check if the philosopher holds a fork
+     *
+     * @param side The side of the fork
+     * @return True if the philosopher holds the fork
+     */
+    boolean hasFork(Direction side);
+
+    /**
+     * Get the number of neighbors that asked for a fork and wait for this philosopher to hand it over
+     *
+     * @return The number of deferred requests
+     */
+    int deferredRequests();
+
+    /**
+     * Called once the connection to a neighbor is established, before any message of the neighbor is handled
+     *
+     * @param side       The side of the neighbor
+     * @param neighborId The id of the neighbor
+     * @param channel    The connection to the neighbor
+     */
+    void neighborConnected(Direction side, int neighborId, TransportChannel channel);
+
+    /**
+     * Called once the neighbor of a side sent READY, on startup and after the ring was repaired
+     *
+     * @param side The side of the neighbor
+     */
+    void neighborReady(Direction side);
+
+    /**
+     * Called once a neighbor is suspected to have failed and its connection is closed
+     * The state shared with the failed neighbor is dropped, the fork of the side is shared with the philosopher behind
+     * it once that one is connected, see {@link #neighborConnected}.
+     *
+     * @param side    The side of the failed neighbor
+     * @param channel The closed connection to the failed neighbor
+     */
+    void neighborFailed(Direction side, TransportChannel channel);
+
+    /**
+     * Receive a request of a neighbor
+     *
+     * @param channel The connection to the requesting neighbor
+     * @param message The request
+     */
+    void receiveRequest(TransportChannel channel, Message message);
+
+    /**
+     * Receive a reply of a neighbor
+     *
+     * @param message The reply
+     */
+    void receiveReply(Message message);
+}
@@ -1,19 +1,79 @@
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * A G-Counter is a grow-only counter that can only be incremented
+ * <p>
+ * The counts are stored unboxed in pages of an {@link AtomicLongArray} indexed by philosopher id, so increments and
+ * merges are lock-free and do not allocate once the pages of the known philosophers exist. Ids beyond the dense range
+ * fall back to a sparse map. The total and the digest are maintained on every change, so {@link #query()} and
+ * {@link #digest()} are O(1). A counter attached to a {@link CounterStore} writes every raised count to its file, and
+ * a {@link CounterGossip} is told the id of every raised count.
  */
 public class GCounter implements Serializable {
+    /**
+     * The number of bits of the index within a page
+     */
+    private static final int PAGE_BITS = 6;
+    /**
+     * The number of counts per page
+     */
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    /**
+     * Philosopher ids from 0 up to this limit are stored in pages, larger ids in the sparse map
+     */
+    private static final int DENSE_LIMIT = 1 << 20;
     /**
      * The id of the philosopher that the counter belongs to
      */
     private final int philosopherId;
     /**
-     * The map of philosopher ids to counts
+     * The pages of counts indexed by philosopher id, grown on demand
      */
-    private final Map<Integer, Integer> counters;
+    private volatile AtomicReferenceArray<AtomicLongArray> pages = new AtomicReferenceArray<>(0);
+    /**
+     * The counts of philosopher ids outside the dense range
+     */
+    private final ConcurrentHashMap<Integer, AtomicLong> sparse = new ConcurrentHashMap<>();
+    /**
+     * The sum of all counts
+     */
+    private final AtomicLong total = new AtomicLong();
+    /**
+     * The number of philosophers with a count
+     */
+    private final AtomicInteger size = new AtomicInteger();
+    /**
+     * The order-independent digest of all counts
+     */
+    private final AtomicLong digest = new AtomicLong();
+    /**
+     * The store that keeps the counts across restarts, or null if the counter lives only in memory
+     */
+    private transient volatile CounterStore store;
+    /**
+     * The consumer that is told about every raised count, or null
+     */
+    private transient volatile EntryConsumer listener;
+
+    /**
+     * A consumer of the entries of a counter
+     */
+    public interface EntryConsumer {
+        /**
+         * Accept an entry of a counter
+         *
+         * @param philosopherId The id of the philosopher
+         * @param count         The count of the philosopher
+         */
+        void accept(int philosopherId, long count);
+    }
 
     /**
      * Create a new G-Counter
@@ -22,14 +82,19 @@ public class GCounter implements Serializable {
      */
     public GCounter(int philosopherId) {
         this.philosopherId = philosopherId;
-        this.counters = new HashMap<>();
     }
 
     /**
      * Increment the counter
      */
-    public synchronized void increment() {
-        counters.put(philosopherId, counters.getOrDefault(philosopherId, 0) + 1);
+    public void increment() {
+        long current;
+        if (isDense(philosopherId)) {
+            current = page(philosopherId, true).getAndIncrement(philosopherId & (PAGE_SIZE - 1));
+        } else {
+            current = sparse.computeIfAbsent(philosopherId, id -> new AtomicLong()).getAndIncrement();
+        }
+        changed(philosopherId, current, current + 1);
     }
 
     /**
@@ -37,24 +102,235 @@ public class GCounter implements Serializable {
      *
      * @return The value of the counter
      */
-    public synchronized int query() {
-        int sum = 0;
-        for (int count : counters.values()) {
-            sum += count;
-        }
-        return sum;
+    public long query() {
+        return total.get();
     }
 
     /**
      * Merge this counter with another counter
      *
      * @param otherCounter The other counter
+     * @return True if any count of this counter was raised
+     */
+    public boolean merge(GCounter otherCounter) {
+        boolean[] changed = new boolean[1];
+        otherCounter.forEach((id, count) -> changed[0] |= merge(id, count));
+        return changed[0];
+    }
+
+    /**
+     * Raise the count of a single philosopher to the given value if it is larger
+     *
+     * @param philosopherId The id of the philosopher
+     * @param count         The count of the philosopher
+     * @return True if the count was raised
+     */
+    public boolean merge(int philosopherId, long count) {
+        if (count <= 0) {
+            return false;
+        }
+        if (isDense(philosopherId)) {
+            AtomicLongArray page = page(philosopherId, true);
+            int index = philosopherId & (PAGE_SIZE - 1);
+            long current;
+            do {
+                current = page.get(index);
+                if (count <= current) {
+                    return false;
+                }
+            } while (!page.compareAndSet(index, current, count));
+            changed(philosopherId, current, count);
+            return true;
+        }
+        AtomicLong slot = sparse.computeIfAbsent(philosopherId, id -> new AtomicLong());
+        long current;
+        do {
+            current = slot.get();
+            if (count <= current) {
+                return false;
+            }
+        } while (!slot.compareAndSet(current, count));
+        changed(philosopherId, current, count);
+        return true;
+    }
+
+    /**
+     * Get the count of a single philosopher
+     *
+     * @param philosopherId The id of the philosopher
+     * @return The count of the philosopher, 0 if unknown
+     */
+    public long get(int philosopherId) {
+        if (isDense(philosopherId)) {
+            AtomicLongArray page = page(philosopherId, false);
+            return page == null ? 0 : page.get(philosopherId & (PAGE_SIZE - 1));
+        }
+        AtomicLong slot = sparse.get(philosopherId);
+        return slot == null ? 0 : slot.get();
+    }
+
+    /**
+     * Visit every philosopher with a count
+     *
+     * @param consumer The consumer of the entries
+     */
+    public void forEach(EntryConsumer consumer) {
+        AtomicReferenceArray<AtomicLongArray> pages = this.pages;
+        for (int p = 0; p < pages.length(); p++) {
+            AtomicLongArray page = pages.get(p);
+            if (page == null) {
+                continue;
+            }
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                long count = page.get(i);
+                if (count > 0) {
+                    consumer.accept((p << PAGE_BITS) | i, count);
+                }
+            }
+        }
+        for (Map.Entry<Integer, AtomicLong> entry : sparse.entrySet()) {
+            long count = entry.getValue().get();
+            if (count > 0) {
+                consumer.accept(entry.getKey(), count);
+            }
+        }
+    }
+
+    /**
+     * Get a copy of the per-philosopher counts
+     *
+     * @return The map of philosopher ids to counts
+     */
+    public Map<Integer, Long> getCounters() {
+        Map<Integer, Long> counters = new HashMap<>();
+        forEach(counters::put);
+        return counters;
+    }
+
+    /**
+     * Get the number of philosophers with a count
+     *
+     * @return The number of entries of the counter
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Get an order-independent 64 bit digest of the per-philosopher counts
+     * Two counters with the same size and digest hold the same counts with overwhelming probability
+     *
+     * @return The digest of the counter
+     */
+    public long digest() {
+        return digest.get();
+    }
+
+    /**
+     * Get the id of the philosopher that the counter belongs to
+     *
+     * @return The id of the philosopher
+     */
+    public int getPhilosopherId() {
+        return philosopherId;
+    }
+
+    /**
+     * Write every raised count to a store, see {@link CounterStore#attach}
+     *
+     * @param store The store of the counter
+     */
+    void setStore(CounterStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Tell a consumer about every raised count, after the count was raised
+     *
+     * @param listener The consumer of the raised entries
+     */
+    void setListener(EntryConsumer listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Update the total, size and digest after a count was raised, write it to the store and tell the listener
      */
-    public synchronized void merge(GCounter otherCounter) {
-        for (Map.Entry<Integer, Integer> entry : otherCounter.counters.entrySet()) {
-            Integer philosopherId = entry.getKey();
-            int count = entry.getValue();
-            counters.put(philosopherId, Math.max(counters.getOrDefault(philosopherId, 0), count));
+    private void changed(int philosopherId, long oldCount, long newCount) {
+        CounterStore store = this.store;
+        if (store != null) {
+            store.write(philosopherId, newCount);
+        }
+        total.addAndGet(newCount - oldCount);
+        if (oldCount == 0) {
+            size.incrementAndGet();
+            digest.addAndGet(mix(philosopherId, newCount));
+        } else {
+            digest.addAndGet(mix(philosopherId, newCount) - mix(philosopherId, oldCount));
         }
+        EntryConsumer listener = this.listener;
+        if (listener != null) {
+            listener.accept(philosopherId, newCount);
+        }
+    }
+
+    /**
+     * Check if a philosopher id is stored in the pages
+     */
+    private static boolean isDense(int philosopherId) {
+        return philosopherId >= 0 && philosopherId < DENSE_LIMIT;
+    }
+
+    /**
+     * Get the page of a philosopher id
+     *
+     * @param philosopherId The id of the philosopher
+     * @param create        True if a missing page should be created
+     * @return The page, or null if it does not exist and should not be created
+     */
+    private AtomicLongArray page(int philosopherId, boolean create) {
+        int pageIndex = philosopherId >>> PAGE_BITS;
+        AtomicReferenceArray<AtomicLongArray> pages = this.pages;
+        if (pageIndex < pages.length()) {
+            AtomicLongArray page = pages.get(pageIndex);
+            if (page != null || !create) {
+                return page;
+            }
+        } else if (!create) {
+            return null;
+        }
+        return createPage(pageIndex);
+    }
+
+    /**
+     * Create a page, growing the page table if needed
+     * Pages are never replaced, so writers holding an older page table still write to the current pages
+     */
+    private synchronized AtomicLongArray createPage(int pageIndex) {
+        AtomicReferenceArray<AtomicLongArray> pages = this.pages;
+        if (pageIndex >= pages.length()) {
+            AtomicReferenceArray<AtomicLongArray> grown = new AtomicReferenceArray<>(Math.max(pageIndex + 1, pages.length() * 2));
+            for (int p = 0; p < pages.length(); p++) {
+                grown.set(p, pages.get(p));
+            }
+            this.pages = grown;
+            pages = grown;
+        }
+        AtomicLongArray page = pages.get(pageIndex);
+        if (page == null) {
+            page = new AtomicLongArray(PAGE_SIZE);
+            pages.set(pageIndex, page);
+        }
+        return page;
+    }
+
+    /**
+     * Scramble the bits of an entry (SplitMix64 finalizer)
+     */
+    private static long mix(int philosopherId, long count) {
+        long value = ((long) philosopherId << 32) ^ count;
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
     }
-}
\ No newline at end of file
+}
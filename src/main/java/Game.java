@@ -1,32 +1,173 @@
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+
 /**
  * A game is responsible for running the game loop
+ * A meal is the work of the critical section, guarded by the {@link DistributedMutex} of the philosopher like any other
+ * With a batch size above 1 the meals are queued to a {@link CriticalSectionBatcher}, so the philosopher keeps thinking
+ * while it waits for the forks and eats the meals queued meanwhile in one go
+ * With a prefetch margin the forks are requested that long before the thinking ends, see {@link #prefetchAndEat}
+ * With an open-loop workload the meals arrive from a {@link LoadGenerator} instead, see {@link Configuration#workload()}
  */
 public class Game {
+    /**
+     * The logger for the Game class
+     */
+    private static final Logger logger = LogManager.getLogger(Game.class);
+    /**
+     * The time at the start of a turn in milliseconds in which the forks must arrive, the rest of the turn is for eating
+     */
+    private static final int ACQUIRE_WINDOW = 2000;
+    /**
+     * The number of turns in a row without the forks after which the schedule is given up
+     */
+    private static final int MAX_MISSED_TURNS = 3;
     /**
      * The philosopher that the game belongs to
      */
     private final Philosopher philosopher;
+    /**
+     * The number of philosophers at the table if the coloring schedule is used, 0 for random think times
+     */
+    private final int ringSize;
+    /**
+     * The batcher of the meals, or null if every meal acquires the forks on its own
+     */
+    private final CriticalSectionBatcher batcher;
+    /**
+     * The configured prefetch margin in milliseconds, read when the game is created, see {@link Configuration#prefetchMargin()}
+     */
+    private final long prefetchMargin;
 
     /**
-     * Create a new game
+     * Create a new game with the schedule selected for this process
      *
      * @param philosopher The philosopher that the game belongs to
      */
     public Game(Philosopher philosopher) {
+        this(philosopher, Configuration.ringSize());
+    }
+
+    /**
+     * Create a new game
+     *
+     * @param philosopher The philosopher that the game belongs to
+     * @param ringSize    The number of philosophers at the table, used by the coloring schedule
+     */
+    public Game(Philosopher philosopher, int ringSize) {
         this.philosopher = philosopher;
+        this.ringSize = Configuration.coloringSchedule() ? ringSize : 0;
+        this.batcher = Configuration.batchSize() > 1 ? new CriticalSectionBatcher(philosopher) : null;
+        this.prefetchMargin = Configuration.prefetchMargin();
+        if (Configuration.coloringSchedule() && ringSize < 2) {
+            throw new IllegalArgumentException("The coloring schedule needs the size of the ring, see " + Configuration.RING_SIZE);
+        }
     }
 
     /**
      * Run the game loop
      */
     public void start() {
-        new Thread(() -> {
+        WorkloadProfile workload = Configuration.workload();
+        if (workload.isOpenLoop()) {
+            logger.info("Philosopher " + philosopher.getPhilosopherId() + " runs the open-loop workload " + workload);
+            new LoadGenerator(philosopher, workload).start();
+            return;
+        }
+        ActivityExecutor.execute("game-" + philosopher.getPhilosopherId(), () -> {
+            if (ringSize > 0) {
+                playColoringSchedule();
+            }
+            if (batcher != null) {
+                batcher.start();
+                while (true) {
+                    philosopher.think();
+                    batcher.submit(philosopher::eat);
+                }
+            }
+            DistributedMutex mutex = philosopher.getMutex();
             while (true) {
-                philosopher.think();
-                philosopher.requestForks();
-                philosopher.eat();
-                philosopher.releaseForks();
+                long margin = philosopher.getPrefetchMargin(prefetchMargin);
+                if (margin > 0) {
+                    prefetchAndEat(mutex, margin);
+                } else {
+                    philosopher.think();
+                    mutex.withLock(philosopher::eat);
+                }
+            }
+        });
+    }
+
+    /**
+     * Think and request the forks a margin before the thinking ends, so the round trip to the neighbors overlaps the
+     * thinking instead of following it
+     * The request is the regular one of the fork protocol with a Lamport timestamp of the time it is sent. The meal still
+     * starts when the thinking ends; forks that arrive earlier are held until then.
+     *
+     * @param mutex       The mutex of the philosopher
+     * @param marginNanos The time before the end of thinking at which the forks are requested
+     */
+    private void prefetchAndEat(DistributedMutex mutex, long marginNanos) {
+        int thinkTime = philosopher.nextThinkTime();
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(thinkTime);
+        long marginMillis = (marginNanos + TimeUnit.MILLISECONDS.toNanos(1) - 1) / TimeUnit.MILLISECONDS.toNanos(1);
+        philosopher.think((int) Math.max(thinkTime - marginMillis, 0));
+        mutex.lock();
+        try {
+            long slack = end - System.nanoTime();
+            philosopher.getMetrics().getPrefetchSlack().observeNanos(Math.max(slack, 0));
+            if (slack > 0) {
+                TimeUnit.NANOSECONDS.sleep(slack);
+            }
+            philosopher.eat();
+        } catch (InterruptedException e) {
+            logger.error("An error occurred while waiting for the end of thinking", e);
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    /**
+     * Eat in the turns of the philosopher
+     * Returns once the schedule cannot be followed, the game continues with random think times and the fork protocol
+     * alone. This happens if the neighbors are not seated as the schedule expects or the forks do not arrive in time
+     * for several turns, e.g. because a neighbor failed or the clocks of the table drifted apart.
+     */
+    private void playColoringSchedule() {
+        int id = philosopher.getPhilosopherId();
+        ColoringSchedule schedule = new ColoringSchedule(ringSize, philosopher.getMaxEatTime() + ACQUIRE_WINDOW, TimeUnit.MILLISECONDS);
+        if (!schedule.matches(id, philosopher.getNeighborId(Direction.LEFT), philosopher.getNeighborId(Direction.RIGHT))) {
+            logger.warn("Philosopher " + id + " is not seated as the coloring schedule expects, falling back to random think times");
+            return;
+        }
+        logger.info("Philosopher " + id + " eats in " + schedule.mealsPerRound() + " of " + schedule.turnsPerRound() + " turns");
+        int missedTurns = 0;
+        while (missedTurns < MAX_MISSED_TURNS) {
+            // The wall clock is the clock shared by the table
+            long turn = schedule.nextTurn(id, TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis()));
+            try {
+                TimeUnit.NANOSECONDS.sleep(turn - TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                logger.error("An error occurred while waiting for the turn", e);
+            }
+            DistributedMutex mutex = philosopher.getMutex();
+            try {
+                if (mutex.tryLock(ACQUIRE_WINDOW, TimeUnit.MILLISECONDS)) {
+                    missedTurns = 0;
+                    try {
+                        philosopher.eat();
+                    } finally {
+                        mutex.unlock();
+                    }
+                } else {
+                    missedTurns++;
+                }
+            } catch (InterruptedException e) {
+                logger.error("An error occurred while waiting for the forks", e);
             }
-        }).start();
+        }
+        logger.warn("Philosopher " + id + " missed " + MAX_MISSED_TURNS + " turns in a row, falling back to random think times");
     }
 }
@@ -10,6 +10,7 @@ public class GenerateCompose {
 
         int numInstances = Integer.parseInt(args[0]);
         int serverPort = Integer.parseInt(args[1]);
+        int metricsPort = 9404;
         boolean isFirst = true;
         boolean isLast = false;
 
@@ -25,7 +26,7 @@ public class GenerateCompose {
                 }
                 writer.write("  app" + i + ":\n");
                 writer.write("    image: ddpp:latest\n");
-                writer.write("    command: ['java', '-jar', '/usr/app/ddpp-1.0.jar', '" + i + "', '" + leftNeighborPort + "', '" + (isFirst ? "app" + numInstances : "app" + (i - 1)) + "', '" + (isFirst ? leftNeighborPort + Integer.parseInt(args[0]) - 1 : leftNeighborPort - 1) + "', '" + (isLast ? "app" + (numInstances - i + 1) : "app" + (i + 1)) + "', '" + (isLast ? serverPort + 1 : leftNeighborPort + 1) + "']\n");
+                writer.write("    command: ['java', '-Dddpp.metrics.port=" + metricsPort + "', '-jar', '/usr/app/ddpp-1.0.jar', '" + i + "', '" + leftNeighborPort + "', '" + (isFirst ? "app" + numInstances : "app" + (i - 1)) + "', '" + (isFirst ? leftNeighborPort + Integer.parseInt(args[0]) - 1 : leftNeighborPort - 1) + "', '" + (isLast ? "app" + (numInstances - i + 1) : "app" + (i + 1)) + "', '" + (isLast ? serverPort + 1 : leftNeighborPort + 1) + "']\n");
                 writer.write("    networks:\n");
                 writer.write("      - network\n");
                 isFirst = false;
@@ -33,8 +34,18 @@ public class GenerateCompose {
             }
             writer.write("networks:\n");
             writer.write("  network:\n");
+            writer.write("    name: ddpp\n");
             writer.write("    driver: bridge");
 
+            // Targets of the philosophers for the Prometheus file service discovery
+            try (FileWriter targets = new FileWriter("philosophers.json")) {
+                targets.write("[{\"targets\": [");
+                for (int i = 1; i <= numInstances; i++) {
+                    targets.write((i > 1 ? ", " : "") + "\"app" + i + ":" + metricsPort + "\"");
+                }
+                targets.write("]}]\n");
+            }
+
             System.out.println("docker-compose.yml file with " + numInstances + " instances of philosophers has been generated.");
         } catch (IOException e) {
             e.printStackTrace();
@@ -0,0 +1,637 @@
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The transport of a {@link PhilosopherHost} that runs many philosophers in one process
+ * <p>
+ * Every philosopher of the host listens on a seat, an address that only exists inside the transport. Neighbors on the
+ * same host are connected through an {@link InMemoryTransport}. A connection to a neighbor on another host is a virtual
+ * connection over the shared TCP link to that host: it is opened with the seat of the neighbor and a connection id,
+ * and every frame on the link carries the id in front of the encoded message. Both hosts bridge the virtual connection
+ * to their philosopher through an in-memory connection, so messages flow in both directions.
+ * <p>
+ * Either host may dial the link of a pair of hosts, the other host accepts it and uses it for its own connections as
+ * well. The dialing host introduces itself with its port and a random instance id. If both hosts dial at the same
+ * time, only the link dialed by the host with the larger instance id is accepted, so a pair of hosts shares one link.
+ */
+public class HostTransport implements Transport {
+    /**
+     * The name of the transport
+     */
+    public static final String NAME = "host";
+    /**
+     * The logger for the HostTransport class
+     */
+    private static final Logger logger = LogManager.getLogger(HostTransport.class);
+    private final Level NOTICE = Level.forName("NOTICE", 350);
+    /**
+     * The kinds of the frames between hosts: a new connection to a seat, a message to the seat, the closing of the
+     * connection by the dialing philosopher, a message of the seat back to the dialing philosopher, the introduction of
+     * the dialing host and the answer of the accepting host
+     */
+    private static final byte OPEN = 0;
+    private static final byte DATA = 1;
+    private static final byte CLOSE = 2;
+    private static final byte ANSWER = 3;
+    private static final byte HELLO = 4;
+    private static final byte WELCOME = 5;
+    /**
+     * Called for the messages sent by the bridges of the transport, which are counted by the philosophers
+     */
+    private static final MessageListener NOT_COUNTED = (message, frameSize) -> {
+    };
+    /**
+     * The size of the header of a frame between hosts: the kind and the connection id
+     */
+    private static final int HEADER = Byte.BYTES + Integer.BYTES;
+    /**
+     * The maximum time to wait for a seat of the host to be taken, and for another host to accept a link
+     */
+    private static final long SEAT_TIMEOUT_SECONDS = 10;
+    /**
+     * The codec used to encode and decode the messages between hosts
+     */
+    private final MessageCodec codec;
+    /**
+     * The port of the host
+     */
+    private final int port;
+    /**
+     * The random id of this instance of the host, decides which link is kept when two hosts dial each other
+     */
+    private final long instanceId = ThreadLocalRandom.current().nextLong();
+    /**
+     * The transports between the philosophers of the host, one per seat address, since an in-memory transport tells
+     * its listeners apart by port only
+     */
+    private final Map<InetAddress, InMemoryTransport> banks = new ConcurrentHashMap<>();
+    /**
+     * Completed once the philosopher of a seat of the host listens
+     */
+    private final Map<InetSocketAddress, CompletableFuture<Void>> seats = new HashMap<>();
+    /**
+     * The hosts of the remote seats
+     */
+    private final Map<InetSocketAddress, InetSocketAddress> remoteSeats;
+    /**
+     * The shared connections to the other hosts, completed once the link is accepted
+     */
+    private final Map<InetSocketAddress, CompletableFuture<Link>> links = new HashMap<>();
+    /**
+     * The id of the next connection opened to a seat of another host
+     */
+    private final AtomicInteger nextConnection = new AtomicInteger();
+
+    /**
+     * Create a new host transport
+     *
+     * @param codec       The codec used to encode and decode the messages between hosts
+     * @param port        The port of the host
+     * @param localSeats  The seats of the philosophers of the host
+     * @param remoteSeats The hosts of the seats of the neighbors on other hosts
+     */
+    public HostTransport(MessageCodec codec, int port, Iterable<InetSocketAddress> localSeats, Map<InetSocketAddress, InetSocketAddress> remoteSeats) {
+        this.codec = codec;
+        this.port = port;
+        for (InetSocketAddress seat : localSeats) {
+            seats.put(seat, new CompletableFuture<>());
+        }
+        for (InetSocketAddress seat : remoteSeats.keySet()) {
+            if (seats.containsKey(seat)) {
+                throw new IllegalArgumentException("Seat " + seat + " cannot be local and remote");
+            }
+        }
+        this.remoteSeats = Map.copyOf(remoteSeats);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Start accepting the shared connections of the other hosts
+     *
+     * @throws IOException If the port of the host cannot be bound
+     */
+    public void start() throws IOException {
+        ServerSocketChannel serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        logger.log(NOTICE, "Host started on port " + port + " with " + seats.size() + " seats");
+        ActivityExecutor.execute("host-" + port, () -> {
+            while (true) {
+                try {
+                    SocketChannel channel = serverChannel.accept();
+                    logger.log(NOTICE, "Host connected: " + channel.socket().getInetAddress().getHostAddress() + ":" + channel.socket().getPort());
+                    new Link("host-" + port + "-" + channel.socket().getPort(), channel, null, null);
+                } catch (IOException e) {
+                    logger.error("Error accepting host connection", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Listen on the seat with the port on the loopback address
+     */
+    @Override
+    public Closeable listen(int port, ChannelListener receiver, MessageListener onSent) throws IOException {
+        return listen(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), receiver, onSent);
+    }
+
+    @Override
+    public Closeable listen(InetSocketAddress address, ChannelListener receiver, MessageListener onSent) throws IOException {
+        if (address.getAddress() != null && address.getAddress().isAnyLocalAddress()) {
+            address = new InetSocketAddress(InetAddress.getLoopbackAddress(), address.getPort());
+        }
+        CompletableFuture<Void> seat = seats.get(address);
+        if (seat == null) {
+            throw new IllegalArgumentException(address + " is not a seat of the host");
+        }
+        Closeable listener = bank(address).listen(address.getPort(), receiver, onSent);
+        seat.complete(null);
+        return listener;
+    }
+
+    @Override
+    public TransportChannel connect(InetSocketAddress address, String name, ChannelListener receiver, MessageListener onSent) throws IOException {
+        InetSocketAddress host = remoteSeats.get(address);
+        if (host == null) {
+            awaitSeat(address);
+            return bank(address).connect(address, name, receiver, onSent);
+        }
+        Link link = link(host);
+        int connection = nextConnection.getAndIncrement();
+        // The bridge forwards the messages of the philosopher to the link and hands it the answers of the seat
+        TransportChannel[] ends = InMemoryTransport.pair(name, address.getPort(), receiver, onSent,
+                (bridge, message, frameSize) -> link.forward(DATA, connection, message), NOT_COUNTED);
+        link.dialed.put(connection, ends[1]);
+        byte[] seat = address.getAddress().getAddress();
+        byte[] frame = header(OPEN, connection, Byte.BYTES + seat.length + Integer.BYTES);
+        ByteBuffer.wrap(frame, HEADER, frame.length - HEADER).put((byte) seat.length).put(seat).putInt(address.getPort());
+        link.offer(frame);
+        return new RoutedChannel(link, connection, address, ends[0]);
+    }
+
+    /**
+     * Get the in-memory transport of the seats with the address of a seat
+     */
+    private InMemoryTransport bank(InetSocketAddress seat) {
+        return banks.computeIfAbsent(seat.getAddress(), address -> new InMemoryTransport());
+    }
+
+    /**
+     * Wait until the philosopher of a seat of the host listens
+     *
+     * @param address The seat
+     * @throws ConnectException If the address is not a seat of the host or nobody takes it in time
+     */
+    private void awaitSeat(InetSocketAddress address) throws ConnectException {
+        CompletableFuture<Void> seat = seats.get(address);
+        if (seat == null) {
+            throw new ConnectException(address + " is not a seat of the host");
+        }
+        try {
+            seat.get(SEAT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            throw new ConnectException("Seat " + address + " is not taken");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConnectException("Interrupted while waiting for seat " + address);
+        }
+    }
+
+    /**
+     * Get the shared connection to a host, dialing it unless a link of either host exists
+     */
+    private Link link(InetSocketAddress host) throws IOException {
+        CompletableFuture<Link> future;
+        boolean dial;
+        synchronized (links) {
+            future = links.get(host);
+            dial = future == null || (future.isDone() && (future.isCompletedExceptionally() || future.join().queue.isClosed()));
+            if (dial) {
+                future = new CompletableFuture<>();
+                links.put(host, future);
+            }
+        }
+        if (dial) {
+            try {
+                SocketChannel channel = SocketChannel.open(host);
+                Link link = new Link("host-" + host.getPort(), channel, host, future);
+                byte[] frame = header(HELLO, 0, Long.BYTES + Integer.BYTES);
+                ByteBuffer.wrap(frame, HEADER, frame.length - HEADER).putLong(instanceId).putInt(port);
+                link.offer(frame);
+                logger.log(NOTICE, "Connected to host: " + channel.socket());
+            } catch (IOException e) {
+                future.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return future.get(SEAT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            // The next connection dials again
+            future.completeExceptionally(e);
+            throw new ConnectException("Host " + host + " did not accept the link");
+        } catch (ExecutionException e) {
+            throw new ConnectException("Cannot link to host " + host + ": " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConnectException("Interrupted while linking to host " + host);
+        }
+    }
+
+    /**
+     * Decide on a link dialed by another host
+     *
+     * @param host     The address of the other host
+     * @param remoteId The instance id of the other host
+     * @param link     The link dialed by the other host
+     * @return True if the link is accepted, false if the link dialed by this host at the same time is kept instead
+     */
+    private boolean accept(InetSocketAddress host, long remoteId, Link link) {
+        synchronized (links) {
+            CompletableFuture<Link> future = links.get(host);
+            if (future != null && !future.isDone() && remoteId < instanceId) {
+                return false;
+            }
+            if (future == null || future.isDone()) {
+                // A live link of an earlier instance of the other host keeps serving its connections until it fails
+                future = new CompletableFuture<>();
+                links.put(host, future);
+            }
+            future.complete(link);
+            return true;
+        }
+    }
+
+    /**
+     * Create a frame between hosts with room for a body
+     */
+    private static byte[] header(byte kind, int connection, int bodyLength) {
+        byte[] frame = new byte[HEADER + bodyLength];
+        ByteBuffer.wrap(frame).put(kind).putInt(connection);
+        return frame;
+    }
+
+    /**
+     * A shared connection to another host, dialed by either host
+     * <p>
+     * The connections dialed by this host and the connections dialed by the other host have separate ids. DATA and
+     * CLOSE frames refer to a connection dialed by the sending host, ANSWER frames to a connection dialed by the
+     * receiving host.
+     */
+    private final class Link {
+        /**
+         * The name of the link, used for threads and logs
+         */
+        private final String name;
+        /**
+         * The socket channel of the link
+         */
+        private final SocketChannel channel;
+        /**
+         * The future completed once the other host accepted the link, null if the link was dialed by the other host
+         */
+        private final CompletableFuture<Link> dialing;
+        /**
+         * The address of the other host, known once it introduced itself if the link was dialed by the other host
+         */
+        private volatile InetSocketAddress host;
+        /**
+         * The queue of the frames to write
+         */
+        private final OutboundQueue queue;
+        /**
+         * The bridges of the connections dialed by the philosophers of this host
+         */
+        private final Map<Integer, TransportChannel> dialed = new ConcurrentHashMap<>();
+        /**
+         * The connections dialed by the philosophers of the other host, only used by the reader
+         */
+        private final Map<Integer, AcceptedConnection> accepted = new HashMap<>();
+
+        /**
+         * Create a link and start its reader
+         *
+         * @param name    The name of the link
+         * @param channel The connected socket channel
+         * @param host    The address of the other host if this host dialed it, otherwise null
+         * @param dialing The future completed once the other host accepted the link, null if it dialed the link
+         */
+        private Link(String name, SocketChannel channel, InetSocketAddress host, CompletableFuture<Link> dialing) {
+            this.name = name;
+            this.channel = channel;
+            this.host = host;
+            this.dialing = dialing;
+            this.queue = new OutboundQueue(name, channel, Configuration.outboundCapacity(), Configuration.outboundOverflow());
+            queue.start();
+            ActivityExecutor.execute("reader-" + name, this::readLoop);
+        }
+
+        /**
+         * Queue a frame
+         */
+        private void offer(byte[] frame) throws IOException {
+            try {
+                if (!queue.offer(frame, false)) {
+                    throw new IOException("Link is closed: " + name);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while queueing a frame", e);
+            }
+        }
+
+        /**
+         * Forward a message of a bridge to the other host
+         */
+        private void forward(byte kind, int connection, Message message) {
+            try {
+                byte[] encoded = codec.encode(message);
+                byte[] frame = header(kind, connection, encoded.length);
+                System.arraycopy(encoded, 0, frame, HEADER, encoded.length);
+                offer(frame);
+            } catch (IOException e) {
+                logger.error("Dropped a " + message.getType() + " for connection " + connection, e);
+            }
+        }
+
+        /**
+         * Read the frames of the other host until the link fails
+         */
+        private void readLoop() {
+            OutboundQueue.markReader();
+            try {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+                while (true) {
+                    byte kind = in.readByte();
+                    int connection = in.readInt();
+                    if (kind == HELLO) {
+                        long remoteId = in.readLong();
+                        InetSocketAddress remote = new InetSocketAddress(((InetSocketAddress) channel.getRemoteAddress()).getAddress(), in.readInt());
+                        host = remote;
+                        boolean accepted = accept(remote, remoteId, this);
+                        byte[] frame = header(WELCOME, 0, Byte.BYTES);
+                        frame[HEADER] = (byte) (accepted ? 1 : 0);
+                        offer(frame);
+                    } else if (kind == WELCOME) {
+                        if (in.readByte() == 0) {
+                            // The other host keeps the link it dialed at the same time
+                            logger.debug("Host " + host + " kept its own link instead of " + name);
+                            break;
+                        }
+                        dialing.complete(this);
+                        if (dialing.isCompletedExceptionally()) {
+                            break;
+                        }
+                    } else if (kind == OPEN) {
+                        byte[] seat = new byte[in.readUnsignedByte()];
+                        in.readFully(seat);
+                        open(connection, new InetSocketAddress(InetAddress.getByAddress(seat), in.readInt()));
+                    } else if (kind == CLOSE) {
+                        AcceptedConnection bridge = accepted.remove(connection);
+                        if (bridge != null) {
+                            bridge.close();
+                        }
+                    } else {
+                        Message message = codec.decode(ByteBuffer.wrap(codec.readPayload(in)));
+                        if (kind == DATA) {
+                            AcceptedConnection bridge = accepted.get(connection);
+                            if (bridge == null) {
+                                logger.debug("Dropped a " + message.getType() + " for closed connection " + connection);
+                            } else {
+                                bridge.send(message);
+                            }
+                        } else {
+                            TransportChannel bridge = dialed.get(connection);
+                            if (bridge == null || !bridge.isConnected()) {
+                                logger.debug("Dropped a " + message.getType() + " for closed connection " + connection);
+                            } else {
+                                bridge.send(message, false);
+                            }
+                        }
+                    }
+                }
+            } catch (EOFException e) {
+                logger.error("Host disconnected: " + name, e);
+            } catch (IOException e) {
+                logger.error("Error while handling host frames", e);
+            } finally {
+                closed();
+            }
+        }
+
+        /**
+         * Close the link and its connections, and forget it unless another link to the host replaced it
+         */
+        private void closed() {
+            queue.close();
+            NioEventLoop.close(channel);
+            accepted.values().forEach(AcceptedConnection::close);
+            dialed.values().forEach(TransportChannel::close);
+            if (dialing != null) {
+                dialing.completeExceptionally(new ConnectException("Link closed: " + name));
+            }
+            InetSocketAddress host = this.host;
+            if (host != null) {
+                synchronized (links) {
+                    CompletableFuture<Link> future = links.get(host);
+                    if (future != null && future.isDone() && !future.isCompletedExceptionally() && future.join() == this) {
+                        links.remove(host);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Bridge a connection dialed by a philosopher of the other host to the philosopher on a seat of this host, without
+         * making the reader wait for the seat
+         */
+        private void open(int connection, InetSocketAddress seat) {
+            AcceptedConnection bridge = new AcceptedConnection();
+            accepted.put(connection, bridge);
+            CompletableFuture<Void> taken = seats.get(seat);
+            if (taken == null) {
+                logger.error(seat + " is not a seat of the host");
+                bridge.close();
+                return;
+            }
+            taken.copy().orTimeout(SEAT_TIMEOUT_SECONDS, TimeUnit.SECONDS).whenComplete((ignored, failure) -> {
+                if (failure != null) {
+                    logger.error("Seat " + seat + " was not taken for a host");
+                    bridge.close();
+                    return;
+                }
+                try {
+                    bridge.opened(bank(seat).connect(seat, name + "-" + connection,
+                            (channel, message, frameSize) -> forward(ANSWER, connection, message), NOT_COUNTED));
+                } catch (IOException e) {
+                    logger.error("Error while opening seat " + seat + " for a host", e);
+                    bridge.close();
+                }
+            });
+        }
+    }
+
+    /**
+     * A connection dialed by a philosopher of another host, whose messages are held until its seat is taken
+     */
+    private static final class AcceptedConnection {
+        /**
+         * The in-memory connection to the seat, null until the seat is taken
+         */
+        private TransportChannel bridge;
+        /**
+         * The messages received before the seat was taken, in order
+         */
+        private List<Message> held = new ArrayList<>();
+        /**
+         * The flag to indicate that the connection was closed
+         */
+        private boolean closed = false;
+        /**
+         * Orders the messages of the reader after the held messages, a ReentrantLock since sending may block
+         */
+        private final ReentrantLock lock = new ReentrantLock();
+
+        /**
+         * Hand a message to the seat, or hold it until the seat is taken
+         */
+        private void send(Message message) throws IOException {
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                if (bridge == null) {
+                    held.add(message);
+                } else if (bridge.isConnected()) {
+                    bridge.send(message, false);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Connect the seat and hand it the held messages
+         */
+        private void opened(TransportChannel bridge) throws IOException {
+            lock.lock();
+            try {
+                this.bridge = bridge;
+                if (closed) {
+                    bridge.close();
+                    return;
+                }
+                for (Message message : held) {
+                    bridge.send(message, false);
+                }
+                held = null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Close the connection to the seat and drop the held messages
+         */
+        private void close() {
+            lock.lock();
+            try {
+                closed = true;
+                held = null;
+                if (bridge != null) {
+                    bridge.close();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * A connection to a seat of another host over the shared connection to that host
+     */
+    private static final class RoutedChannel implements TransportChannel {
+        /**
+         * The shared connection to the host of the seat
+         */
+        private final Link link;
+        /**
+         * The id of the connection on the link
+         */
+        private final int connection;
+        /**
+         * The seat of the neighbor
+         */
+        private final InetSocketAddress seat;
+        /**
+         * The end of the in-memory bridge held by the philosopher
+         */
+        private final TransportChannel end;
+
+        private RoutedChannel(Link link, int connection, InetSocketAddress seat, TransportChannel end) {
+            this.link = link;
+            this.connection = connection;
+            this.seat = seat;
+            this.end = end;
+        }
+
+        @Override
+        public boolean send(Message message, boolean droppable) throws IOException {
+            return end.send(message, droppable);
+        }
+
+        @Override
+        public boolean isConnected() {
+            return end.isConnected() && !link.queue.isClosed();
+        }
+
+        @Override
+        public void close() {
+            end.close();
+            if (link.dialed.remove(connection) != null) {
+                try {
+                    link.offer(header(CLOSE, connection, 0));
+                } catch (IOException e) {
+                    logger.debug("Could not close connection " + connection + " on " + link.name, e);
+                }
+            }
+            // The shared connection stays open for the other seats
+        }
+
+        @Override
+        public String toString() {
+            return "RoutedChannel[" + link.channel.socket() + " -> seat=" + seat + ", connection=" + connection + "]";
+        }
+    }
+}
@@ -0,0 +1,223 @@
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.BindException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * The transport between philosophers of the same process
+ * <p>
+ * Messages are handed over as objects without serialization. Both ends of a connection have an inbox and their own
+ * consumer, so messages of a connection are delivered in order and a handler never runs on the thread of the sender.
+ * Listeners are bound by port in the registry of the transport; the host of an address is ignored.
+ */
+public class InMemoryTransport implements Transport {
+    /**
+     * The name of the transport
+     */
+    public static final String NAME = "memory";
+    /**
+     * The logger for the InMemoryTransport class
+     */
+    private static final Logger logger = LogManager.getLogger(InMemoryTransport.class);
+    private final Level NOTICE = Level.forName("NOTICE", 350);
+    /**
+     * The transport shared by all philosophers of the process that select the in-memory transport
+     */
+    private static final InMemoryTransport DEFAULT = new InMemoryTransport();
+    /**
+     * The listeners bound to a port
+     */
+    private final Map<Integer, Listener> listeners = new ConcurrentHashMap<>();
+
+    /**
+     * A listener bound to a port
+     */
+    private static final class Listener {
+        /**
+         * The receiver of the messages of all accepted connections
+         */
+        private final ChannelListener receiver;
+        /**
+         * Called for every message sent on an accepted connection
+         */
+        private final MessageListener onSent;
+
+        private Listener(ChannelListener receiver, MessageListener onSent) {
+            this.receiver = receiver;
+            this.onSent = onSent;
+        }
+    }
+
+    /**
+     * Get the transport shared by the philosophers of the process
+     *
+     * @return The default in-memory transport
+     */
+    public static InMemoryTransport getDefault() {
+        return DEFAULT;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public Closeable listen(int port, ChannelListener receiver, MessageListener onSent) throws IOException {
+        Listener listener = new Listener(receiver, onSent);
+        if (listeners.putIfAbsent(port, listener) != null) {
+            throw new BindException("Port " + port + " is already in use");
+        }
+        logger.log(NOTICE, "Server started on port " + port + " (memory)");
+        return () -> listeners.remove(port, listener);
+    }
+
+    @Override
+    public TransportChannel connect(InetSocketAddress address, String name, ChannelListener receiver, MessageListener onSent) throws IOException {
+        Listener listener = listeners.get(address.getPort());
+        if (listener == null) {
+            throw new ConnectException("Connection refused: " + address);
+        }
+        TransportChannel channel = pair(name, address.getPort(), receiver, onSent, listener.receiver, listener.onSent)[0];
+        logger.log(NOTICE, "Client connected: " + channel);
+        return channel;
+    }
+
+    /**
+     * Create the two ends of a connection
+     *
+     * @param name             The name of the connection
+     * @param port             The port the connection is bound to
+     * @param dialerReceiver   The receiver of the messages sent to the dialing end
+     * @param dialerOnSent     Called for every message sent by the dialing end
+     * @param acceptorReceiver The receiver of the messages sent to the accepting end
+     * @param acceptorOnSent   Called for every message sent by the accepting end
+     * @return The dialing end and the accepting end
+     */
+    static TransportChannel[] pair(String name, int port, ChannelListener dialerReceiver, MessageListener dialerOnSent,
+                                   ChannelListener acceptorReceiver, MessageListener acceptorOnSent) {
+        InMemoryChannel dialer = new InMemoryChannel(name, port, dialerOnSent);
+        InMemoryChannel acceptor = new InMemoryChannel("accepted-" + name, port, acceptorOnSent);
+        dialer.peer = acceptor;
+        acceptor.peer = dialer;
+        dialer.start(dialerReceiver);
+        acceptor.start(acceptorReceiver);
+        return new TransportChannel[]{dialer, acceptor};
+    }
+
+    /**
+     * One end of a connection, whose received messages are delivered to its receiver by its own consumer
+     */
+    private static class InMemoryChannel implements TransportChannel {
+        /**
+         * Queued after the messages of a closed end to stop its consumer
+         */
+        private static final Message CLOSED = new Message(MessageType.PING, 0, false, Direction.LEFT);
+        /**
+         * The name of the end
+         */
+        private final String name;
+        /**
+         * The port the connection is bound to
+         */
+        private final int port;
+        /**
+         * The messages sent to this end that are not yet delivered
+         */
+        private final BlockingQueue<Message> inbox = new LinkedBlockingQueue<>();
+        /**
+         * The other end of the connection
+         */
+        private InMemoryChannel peer;
+        /**
+         * The flag to indicate that the connection was closed
+         */
+        private volatile boolean closed = false;
+        /**
+         * Called for every sent message
+         */
+        private final MessageListener onSent;
+
+        /**
+         * Create a new end of a connection
+         *
+         * @param name   The name of the end
+         * @param port   The port the connection is bound to
+         * @param onSent Called for every sent message
+         */
+        private InMemoryChannel(String name, int port, MessageListener onSent) {
+            this.name = name;
+            this.port = port;
+            this.onSent = onSent;
+        }
+
+        /**
+         * Start the consumer of the end
+         *
+         * @param receiver The receiver of the messages sent to this end
+         */
+        private void start(ChannelListener receiver) {
+            ActivityExecutor.execute("inbox-" + name, () -> {
+                // The handlers may send over a host link, they must never wait for a congested one
+                OutboundQueue.markReader();
+                while (!closed) {
+                    try {
+                        Message message = inbox.take();
+                        if (message != CLOSED) {
+                            receiver.onMessage(this, message, 0);
+                        }
+                    } catch (InterruptedException e) {
+                        logger.error("Inbox " + name + " interrupted", e);
+                        return;
+                    } catch (RuntimeException e) {
+                        logger.error("Error while handling client request", e);
+                    }
+                }
+            });
+        }
+
+        @Override
+        public boolean send(Message message, boolean droppable) throws IOException {
+            if (closed) {
+                throw new IOException("Channel is closed: " + this);
+            }
+            peer.inbox.offer(message);
+            onSent.onMessage(message, 0);
+            return true;
+        }
+
+        @Override
+        public boolean isConnected() {
+            return !closed;
+        }
+
+        @Override
+        public void close() {
+            closeEnd();
+            peer.closeEnd();
+        }
+
+        /**
+         * Close this end and stop its consumer
+         */
+        private void closeEnd() {
+            closed = true;
+            inbox.clear();
+            inbox.offer(CLOSED);
+        }
+
+        @Override
+        public String toString() {
+            return "InMemoryChannel[" + name + " -> port=" + port + "]";
+        }
+    }
+}
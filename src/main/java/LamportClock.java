@@ -1,20 +1,22 @@
 import java.io.Serializable;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Lamport logical clock implementation
+ * <p>
+ * The clock is a lock-free 64 bit counter, which cannot overflow in any realistic run time
  */
 public class LamportClock implements Serializable {
     /**
      * The current Lamport timestamp
      */
-    private final AtomicInteger timestamp;
+    private final AtomicLong timestamp;
 
     /**
      * Create a new Lamport clock
      */
     public LamportClock() {
-        this.timestamp = new AtomicInteger(0);
+        this.timestamp = new AtomicLong(0);
     }
 
     /**
@@ -22,26 +24,37 @@ public class LamportClock implements Serializable {
      *
      * @return The current Lamport timestamp
      */
-    public synchronized int getTimestamp() {
+    public long getTimestamp() {
         return timestamp.get();
     }
 
     /**
      * Update the Lamport timestamp
+     *
+     * @return The updated Lamport timestamp
      */
-    public synchronized void update() {
-        timestamp.incrementAndGet();
+    public long update() {
+        long current;
+        do {
+            current = timestamp.get();
+        } while (!timestamp.compareAndSet(current, Math.addExact(current, 1)));
+        return current + 1;
     }
 
     /**
      * Synchronize the Lamport timestamp with a received timestamp
      *
      * @param receivedTimestamp The received timestamp
+     * @return The synchronized Lamport timestamp
      */
-    public synchronized void synchronize(int receivedTimestamp) {
-        int currentTimestamp = timestamp.get();
-        int newTimestamp = Math.max(currentTimestamp, receivedTimestamp) + 1;
-        timestamp.set(newTimestamp);
+    public long synchronize(long receivedTimestamp) {
+        long current;
+        long next;
+        do {
+            current = timestamp.get();
+            next = Math.addExact(Math.max(current, receivedTimestamp), 1);
+        } while (!timestamp.compareAndSet(current, next));
+        return next;
     }
 
     /**
@@ -50,7 +63,22 @@ public class LamportClock implements Serializable {
      * @param otherTimestamp The other timestamp
      * @return -1 if the Lamport timestamp is smaller, 0 if they are equal, 1 if the Lamport timestamp is larger
      */
-    public int compare(int otherTimestamp) {
-        return Integer.compare(timestamp.get(), otherTimestamp);
+    public int compare(long otherTimestamp) {
+        return Long.compare(timestamp.get(), otherTimestamp);
+    }
+
+    /**
+     * Compare two requests in the total order of (timestamp, philosopher id)
+     * The request with the smaller timestamp comes first, ties are broken by the smaller philosopher id
+     *
+     * @param timestamp          The timestamp of the first request
+     * @param philosopherId      The id of the philosopher of the first request
+     * @param otherTimestamp     The timestamp of the second request
+     * @param otherPhilosopherId The id of the philosopher of the second request
+     * @return A negative value if the first request comes first, 0 if they are equal, a positive value otherwise
+     */
+    public static int compare(long timestamp, int philosopherId, long otherTimestamp, int otherPhilosopherId) {
+        int result = Long.compare(timestamp, otherTimestamp);
+        return result != 0 ? result : Integer.compare(philosopherId, otherPhilosopherId);
     }
 }
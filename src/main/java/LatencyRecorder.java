@@ -0,0 +1,126 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of latencies for percentiles
+ * <p>
+ * The buckets are log-linear: values below 128 ns have a bucket each, above that every power of two is split into 64
+ * buckets, so a percentile is reported with a relative error below 1.6% up to the largest long. Recording is lock-free
+ * and does not allocate; the whole range takes 3712 counts.
+ */
+public class LatencyRecorder {
+    /**
+     * The number of buckets per power of two as a power of two
+     */
+    private static final int SUB_BITS = 6;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    /**
+     * The number of buckets, the last one holds values up to {@link Long#MAX_VALUE}
+     */
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+    /**
+     * The number of values per bucket
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    /**
+     * The number, sum and maximum of the values
+     */
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record a latency
+     *
+     * @param nanos The latency in nanoseconds, negative values are recorded as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts.incrementAndGet(bucket(value));
+        count.increment();
+        sum.add(value);
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // Retry with the new maximum
+        }
+    }
+
+    /**
+     * Get the number of recorded latencies
+     *
+     * @return The number of latencies
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Get the largest recorded latency
+     *
+     * @return The maximum latency in nanoseconds, 0 if nothing was recorded
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Get the mean of the recorded latencies
+     *
+     * @return The mean latency in nanoseconds, 0 if nothing was recorded
+     */
+    public double getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) sum.sum() / count;
+    }
+
+    /**
+     * Get a percentile of the recorded latencies
+     *
+     * @param percentile The percentile between 0 and 100
+     * @return The largest latency of the bucket that holds the percentile in nanoseconds, at most the maximum, 0 if
+     * nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("The percentile must be between 0 and 100");
+        }
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank) {
+                return Math.min(highestValue(bucket), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Get the bucket of a value
+     */
+    static int bucket(long value) {
+        if (value < 2 * SUB_COUNT) {
+            return (int) value;
+        }
+        // The shift leaves the value with SUB_BITS + 1 bits, the highest of them set
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return (shift + 1) * SUB_COUNT + (int) (value >>> shift) - SUB_COUNT;
+    }
+
+    /**
+     * Get the largest value of a bucket
+     */
+    static long highestValue(int bucket) {
+        if (bucket < 2 * SUB_COUNT) {
+            return bucket;
+        }
+        int shift = bucket / SUB_COUNT - 1;
+        long sub = bucket % SUB_COUNT + SUB_COUNT;
+        return ((sub + 1) << shift) - 1;
+    }
+}
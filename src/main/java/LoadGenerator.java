@@ -0,0 +1,310 @@
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a philosopher with an open-loop workload: meals arrive at the times of an {@link ArrivalProcess}, whether or
+ * not the earlier meals are done
+ * <p>
+ * An arriving meal is queued to a {@link CriticalSectionBatcher} and eaten once the philosopher holds its forks. The
+ * latencies are measured from the intended start of a meal, the time the arrival process scheduled it, not from the
+ * time the generator got around to queue it. A ring that falls behind the offered load shows its backlog as a growing
+ * start delay instead of silently arriving less often (coordinated omission). The start delay covers the wait behind
+ * earlier meals and for the forks, the response time adds the meal itself.
+ */
+public class LoadGenerator {
+    /**
+     * The logger for the LoadGenerator class
+     */
+    private static final Logger logger = LogManager.getLogger(LoadGenerator.class);
+    private final Level NOTICE = Level.forName("NOTICE", 350);
+    /**
+     * The percentiles of a report
+     */
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 100};
+    /**
+     * The philosopher that eats the meals
+     */
+    private final Philosopher philosopher;
+    /**
+     * The workload of the philosopher
+     */
+    private final WorkloadProfile profile;
+    /**
+     * The batcher that eats the arrived meals, its queue never blocks the arrivals
+     */
+    private final CriticalSectionBatcher batcher;
+    /**
+     * The times from the intended start of a meal until it started and until it ended
+     */
+    private final LatencyRecorder startDelay = new LatencyRecorder();
+    private final LatencyRecorder responseTime = new LatencyRecorder();
+    /**
+     * The number of arrived and eaten meals
+     */
+    private final AtomicLong arrived = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    /**
+     * The time of {@link System#nanoTime()} at the start of the run, 0 before
+     */
+    private volatile long startNanos;
+
+    /**
+     * Create a generator with the batch size and time budget selected for this process
+     *
+     * @param philosopher The philosopher that eats the meals
+     * @param profile     The workload with an open-loop arrival process
+     */
+    public LoadGenerator(Philosopher philosopher, WorkloadProfile profile) {
+        this(philosopher, profile, Configuration.batchSize(), Configuration.batchBudget(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Create a generator
+     *
+     * @param philosopher  The philosopher that eats the meals
+     * @param profile      The workload with an open-loop arrival process
+     * @param maxBatchSize The maximum number of meals per acquisition of the forks
+     * @param budget       The time after which a batch starts no further meal, 0 to end a batch once a neighbor
+     *                     waits
+     * @param unit         The unit of the budget
+     */
+    public LoadGenerator(Philosopher philosopher, WorkloadProfile profile, int maxBatchSize, long budget, TimeUnit unit) {
+        if (!profile.isOpenLoop()) {
+            throw new IllegalArgumentException("The load generator needs an open-loop arrival process");
+        }
+        this.philosopher = philosopher;
+        this.profile = profile;
+        this.batcher = new CriticalSectionBatcher(philosopher, maxBatchSize, budget, unit, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Start generating the load until the arrival process ends, reporting in the interval of the profile
+     */
+    public void start() {
+        int id = philosopher.getPhilosopherId();
+        ActivityExecutor.execute("load-" + id, () -> {
+            try {
+                Report report = run(-1, TimeUnit.NANOSECONDS);
+                logger.log(NOTICE, "Philosopher " + id + " finished the workload: " + report);
+            } catch (IOException e) {
+                logger.error("Cannot read the arrivals of the workload", e);
+            } catch (InterruptedException e) {
+                logger.error("An error occurred while generating the load", e);
+            }
+        });
+        if (profile.getReportInterval() > 0) {
+            ActivityExecutor.execute("load-report-" + id, () -> {
+                while (true) {
+                    try {
+                        TimeUnit.SECONDS.sleep(profile.getReportInterval());
+                    } catch (InterruptedException e) {
+                        logger.error("An error occurred while waiting for the next report", e);
+                    }
+                    logger.log(NOTICE, "Philosopher " + id + " " + getReport());
+                }
+            });
+        }
+    }
+
+    /**
+     * Generate the load and wait until the arrived meals are eaten, a generator runs once
+     *
+     * @param duration The time in which meals arrive, or a negative value to run until the arrival process ends
+     * @param unit     The unit of the duration
+     * @return The report of the run
+     * @throws IOException          If the trace of the workload cannot be read
+     * @throws InterruptedException If the thread was interrupted while waiting for the next arrival
+     */
+    public Report run(long duration, TimeUnit unit) throws IOException, InterruptedException {
+        if (startNanos != 0) {
+            throw new IllegalStateException("The load generator already ran");
+        }
+        int id = philosopher.getPhilosopherId();
+        ArrivalProcess arrivals = ArrivalProcess.forProfile(profile, profile.getSeed() * 31 + id);
+        SplittableRandom random = new SplittableRandom(profile.getSeed() * 31 + id);
+        long limit = duration < 0 ? Long.MAX_VALUE : unit.toNanos(duration);
+        batcher.start();
+        long start = System.nanoTime();
+        startNanos = start;
+        CompletableFuture<Void> last = CompletableFuture.completedFuture(null);
+        long offset;
+        while ((offset = arrivals.next()) >= 0 && offset < limit) {
+            int eatTime = arrivals.eatTime() >= 0 ? arrivals.eatTime() : profile.getMinEat() + random.nextInt(profile.getMaxEat() - profile.getMinEat() + 1);
+            long intended = start + offset;
+            awaitArrival(intended);
+            arrived.incrementAndGet();
+            last = batcher.submit(() -> eat(intended, eatTime));
+        }
+        // The batcher eats the meals in the order they arrived
+        last.join();
+        return getReport();
+    }
+
+    /**
+     * Get a report of the meals eaten so far
+     *
+     * @return The report
+     */
+    public Report getReport() {
+        long start = startNanos;
+        return new Report(profile.getArrival(), start == 0 ? 0 : System.nanoTime() - start,
+                arrived.get(), completed.get(), startDelay, responseTime);
+    }
+
+    /**
+     * Get the times from the intended start of the meals until they started
+     *
+     * @return The recorder of the start delays
+     */
+    public LatencyRecorder getStartDelay() {
+        return startDelay;
+    }
+
+    /**
+     * Get the times from the intended start of the meals until they ended
+     *
+     * @return The recorder of the response times
+     */
+    public LatencyRecorder getResponseTime() {
+        return responseTime;
+    }
+
+    /**
+     * Wait until the intended start of the next meal, without drifting when the thread wakes up late
+     */
+    private static void awaitArrival(long intended) throws InterruptedException {
+        long remaining;
+        while ((remaining = intended - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    /**
+     * Eat a meal, the philosopher holds its forks
+     */
+    private void eat(long intended, int eatTime) {
+        long start = System.nanoTime();
+        startDelay.record(start - intended);
+        philosopher.getMetrics().getLoadStartDelay().observeNanos(start - intended);
+        philosopher.eat(eatTime);
+        long end = System.nanoTime();
+        responseTime.record(end - intended);
+        philosopher.getMetrics().getLoadResponse().observeNanos(end - intended);
+        completed.incrementAndGet();
+    }
+
+    /**
+     * The meals of a run and the percentiles of their latencies
+     */
+    public static final class Report {
+        /**
+         * The arrival process of the run
+         */
+        private final WorkloadProfile.Arrival arrival;
+        /**
+         * The time since the start of the run in nanoseconds
+         */
+        private final long elapsedNanos;
+        /**
+         * The number of arrived and eaten meals
+         */
+        private final long arrived;
+        private final long completed;
+        /**
+         * The start delays and response times at the {@link #PERCENTILES} in nanoseconds
+         */
+        private final long[] startDelay = new long[PERCENTILES.length];
+        private final long[] responseTime = new long[PERCENTILES.length];
+
+        private Report(WorkloadProfile.Arrival arrival, long elapsedNanos, long arrived, long completed,
+                       LatencyRecorder startDelay, LatencyRecorder responseTime) {
+            this.arrival = arrival;
+            this.elapsedNanos = elapsedNanos;
+            this.arrived = arrived;
+            this.completed = completed;
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                this.startDelay[i] = startDelay.getPercentile(PERCENTILES[i]);
+                this.responseTime[i] = responseTime.getPercentile(PERCENTILES[i]);
+            }
+        }
+
+        public long getArrived() {
+            return arrived;
+        }
+
+        public long getCompleted() {
+            return completed;
+        }
+
+        /**
+         * Get a percentile of the start delays
+         *
+         * @param percentile One of 50, 90, 99, 99.9 and 100
+         * @return The start delay in milliseconds
+         */
+        public double getStartDelayMillis(double percentile) {
+            return startDelay[index(percentile)] / 1e6;
+        }
+
+        /**
+         * Get a percentile of the response times
+         *
+         * @param percentile One of 50, 90, 99, 99.9 and 100
+         * @return The response time in milliseconds
+         */
+        public double getResponseTimeMillis(double percentile) {
+            return responseTime[index(percentile)] / 1e6;
+        }
+
+        /**
+         * Get the arrived meals per second, the offered load
+         *
+         * @return The arrival rate
+         */
+        public double getOfferedRate() {
+            return elapsedNanos == 0 ? 0 : arrived / (elapsedNanos / 1e9);
+        }
+
+        /**
+         * Get the eaten meals per second
+         *
+         * @return The throughput
+         */
+        public double getThroughput() {
+            return elapsedNanos == 0 ? 0 : completed / (elapsedNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("arrival=%s elapsed=%.1fs arrived=%d (%.2f/s) completed=%d (%.2f/s) "
+                            + "start delay(p50=%.1fms p90=%.1fms p99=%.1fms p99.9=%.1fms max=%.1fms) "
+                            + "response(p50=%.1fms p90=%.1fms p99=%.1fms p99.9=%.1fms max=%.1fms)",
+                    arrival.name().toLowerCase(), elapsedNanos / 1e9, arrived, getOfferedRate(), completed, getThroughput(),
+                    startDelay[0] / 1e6, startDelay[1] / 1e6, startDelay[2] / 1e6, startDelay[3] / 1e6, startDelay[4] / 1e6,
+                    responseTime[0] / 1e6, responseTime[1] / 1e6, responseTime[2] / 1e6, responseTime[3] / 1e6, responseTime[4] / 1e6);
+        }
+
+        /**
+         * Get the index of a reported percentile
+         */
+        private static int index(double percentile) {
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                if (PERCENTILES[i] == percentile) {
+                    return i;
+                }
+            }
+            throw new IllegalArgumentException("The report has no percentile " + percentile);
+        }
+    }
+}
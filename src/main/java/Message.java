@@ -23,11 +23,26 @@ public class Message implements Serializable {
     /**
      * The timestamp of the message
      */
-    private int timestamp;
+    private long timestamp;
     /**
      * The counter object of the message
      */
     private GCounter gCounter;
+    /**
+     * The number of entries and the digest of the counter of the sending philosopher
+     */
+    private int digestSize;
+    private long digest;
+    /**
+     * True if the connection offered by a hello message is accepted
+     */
+    private boolean accepted;
+    /**
+     * The id and the address of the neighbor on the other side of the sending philosopher
+     */
+    private int neighborId;
+    private String neighborHost;
+    private int neighborPort;
 
     /**
      * Create a new request message
@@ -37,7 +52,7 @@ public class Message implements Serializable {
      * @param direction     The direction of the message
      * @param timestamp     The timestamp of the message
      */
-    public Message(MessageType type, int philosopherId, Direction direction, int timestamp) {
+    public Message(MessageType type, int philosopherId, Direction direction, long timestamp) {
         this.type = type;
         this.philosopherId = philosopherId;
         this.direction = direction;
@@ -86,6 +101,57 @@ public class Message implements Serializable {
         this.gCounter = gCounter;
     }
 
+    /**
+     * Create a new digest message
+     *
+     * @param type          The type of the message
+     * @param philosopherId The id of the philosopher that sent the message
+     * @param direction     The direction of the message
+     * @param digestSize    The number of entries of the counter
+     * @param digest        The digest of the counter
+     */
+    public Message(MessageType type, int philosopherId, Direction direction, int digestSize, long digest) {
+        this.type = type;
+        this.philosopherId = philosopherId;
+        this.direction = direction;
+        this.digestSize = digestSize;
+        this.digest = digest;
+    }
+
+    /**
+     * Create a new hello or welcome message
+     *
+     * @param type          The type of the message
+     * @param philosopherId The id of the philosopher that sent the message
+     * @param direction     The side of the connection at the sending philosopher
+     * @param accepted      True if the connection is accepted, only used by welcome messages
+     */
+    public Message(MessageType type, int philosopherId, Direction direction, boolean accepted) {
+        this.type = type;
+        this.philosopherId = philosopherId;
+        this.direction = direction;
+        this.accepted = accepted;
+    }
+
+    /**
+     * Create a new neighbor message
+     *
+     * @param type          The type of the message
+     * @param philosopherId The id of the philosopher that sent the message
+     * @param direction     The direction of the message
+     * @param neighborId    The id of the neighbor on the other side of the sending philosopher
+     * @param neighborHost  The host of the neighbor
+     * @param neighborPort  The port of the neighbor
+     */
+    public Message(MessageType type, int philosopherId, Direction direction, int neighborId, String neighborHost, int neighborPort) {
+        this.type = type;
+        this.philosopherId = philosopherId;
+        this.direction = direction;
+        this.neighborId = neighborId;
+        this.neighborHost = neighborHost;
+        this.neighborPort = neighborPort;
+    }
+
     /**
      * Get the type of the message
      *
@@ -109,7 +175,7 @@ public class Message implements Serializable {
      *
      * @return The timestamp of the message
      */
-    public int getTimestamp() {
+    public long getTimestamp() {
         return timestamp;
     }
 
@@ -139,4 +205,48 @@ public class Message implements Serializable {
     public boolean getHasReceivedPing() {
         return hasReceivedPing;
     }
+
+    /**
+     * Get the number of entries of the counter of the sending philosopher
+     *
+     * @return The number of entries of the counter
+     */
+    public int getDigestSize() {
+        return digestSize;
+    }
+
+    /**
+     * Get the digest of the counter of the sending philosopher
+     *
+     * @return The digest of the counter
+     */
+    public long getDigest() {
+        return digest;
+    }
+
+    /**
+     * Check if the connection offered by a hello message is accepted
+     *
+     * @return True if the connection is accepted
+     */
+    public boolean isAccepted() {
+        return accepted;
+    }
+
+    /**
+     * Get the id of the neighbor on the other side of the sending philosopher
+     *
+     * @return The id of the neighbor
+     */
+    public int getNeighborId() {
+        return neighborId;
+    }
+
+    public String getNeighborHost() {
+        return neighborHost;
+    }
+
+    public int getNeighborPort() {
+        return neighborPort;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,101 @@
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+
+/**
+ * A message codec turns messages into length-prefixed frames and back
+ * <p>
+ * Every frame on the wire starts with a 4 byte big-endian payload length followed by the payload
+ * produced by the codec, so that any codec can be read from a stream or from a buffer
+ */
+public interface MessageCodec {
+    /**
+     * The size of the length prefix of a frame in bytes
+     */
+    int LENGTH_PREFIX = 4;
+    /**
+     * The maximum accepted payload length in bytes
+     */
+    int MAX_PAYLOAD = 1 << 24;
+
+    /**
+     * Get the name of the codec
+     *
+     * @return The name of the codec
+     */
+    String getName();
+
+    /**
+     * Encode a message into a complete frame including the length prefix
+     *
+     * @param message The message to encode
+     * @return The encoded frame
+     * @throws IOException If the message cannot be encoded
+     */
+    byte[] encode(Message message) throws IOException;
+
+    /**
+     * Decode a message from a frame payload without the length prefix
+     *
+     * @param payload The payload of the frame, positioned at its first byte
+     * @return The decoded message
+     * @throws IOException If the payload is not a valid message
+     */
+    Message decode(ByteBuffer payload) throws IOException;
+
+    /**
+     * Write a message as a single frame to a stream
+     *
+     * @param out     The stream to write to
+     * @param message The message to write
+     * @throws IOException If the message cannot be written
+     */
+    default void write(OutputStream out, Message message) throws IOException {
+        out.write(encode(message));
+    }
+
+    /**
+     * Read a single frame from a stream and decode it
+     *
+     * @param in The stream to read from
+     * @return The decoded message
+     * @throws IOException If the frame cannot be read or decoded
+     */
+    default Message read(DataInputStream in) throws IOException {
+        return decode(ByteBuffer.wrap(readPayload(in)));
+    }
+
+    /**
+     * Read the payload of a single frame from a stream without decoding it
+     *
+     * @param in The stream to read from
+     * @return The payload of the frame without the length prefix
+     * @throws IOException If the frame cannot be read or its length is invalid
+     */
+    default byte[] readPayload(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_PAYLOAD) {
+            throw new ProtocolException("Invalid frame length: " + length);
+        }
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        return payload;
+    }
+
+    /**
+     * Get a codec by its name
+     *
+     * @param name The name of the codec, either "binary" or "serialization"
+     * @return The codec
+     */
+    static MessageCodec forName(String name) {
+        if (BinaryCodec.NAME.equalsIgnoreCase(name)) {
+            return new BinaryCodec();
+        } else if (SerializationCodec.NAME.equalsIgnoreCase(name)) {
+            return new SerializationCodec();
+        }
+        throw new IllegalArgumentException("Unknown message codec: " + name);
+    }
+}
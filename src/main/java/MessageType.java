@@ -17,5 +17,25 @@ public enum MessageType {
     /**
      * A ping message
      */
-    PING
+    PING,
+    /**
+     * A digest of the counts received from a neighbor, used for anti-entropy
+     */
+    DIGEST,
+    /**
+     * The first message of a connection, offering it as the connection to a neighbor
+     */
+    HELLO,
+    /**
+     * The answer to a hello message, accepting or rejecting the connection
+     */
+    WELCOME,
+    /**
+     * Sent to both neighbors once the sender is connected to both of them
+     */
+    READY,
+    /**
+     * The id and address of the neighbor on the other side of the sender, used to route around a failed neighbor
+     */
+    NEIGHBOR
 }
\ No newline at end of file
@@ -0,0 +1,308 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * A registry of counters, gauges and histograms that are exported in the Prometheus text format
+ * <p>
+ * Recording is lock-free: counters and histogram buckets are {@link LongAdder}s, so the hot paths never contend on
+ * the registry. Metrics are identified by name and label pairs; registering the same metric twice returns the
+ * existing one.
+ */
+public class MetricsRegistry {
+    /**
+     * The registry of the process, exported by the metrics server
+     */
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+    /**
+     * The default buckets of latency histograms in seconds
+     */
+    public static final double[] LATENCY_BUCKETS = {0.001, 0.005, 0.01, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60};
+    /**
+     * The default buckets of size histograms, e.g. the number of tasks per batch
+     */
+    public static final double[] SIZE_BUCKETS = {1, 2, 4, 8, 16, 32, 64, 128, 256, 1024};
+    /**
+     * The metric families by name, sorted for a stable output
+     */
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    /**
+     * A family of metrics with the same name and type
+     */
+    private static final class Family {
+        /**
+         * The Prometheus type of the family
+         */
+        private final String type;
+        /**
+         * The help text of the family
+         */
+        private final String help;
+        /**
+         * The metrics by their rendered labels
+         */
+        private final Map<String, Object> metrics = new ConcurrentHashMap<>();
+
+        private Family(String type, String help) {
+            this.type = type;
+            this.help = help;
+        }
+    }
+
+    /**
+     * A monotonically increasing counter
+     */
+    public static final class Counter {
+        /**
+         * The value of the counter
+         */
+        private final LongAdder value = new LongAdder();
+
+        /**
+         * Increment the counter by one
+         */
+        public void increment() {
+            value.increment();
+        }
+
+        /**
+         * Increment the counter
+         *
+         * @param amount The amount to add, must not be negative
+         */
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        /**
+         * Get the value of the counter
+         *
+         * @return The value of the counter
+         */
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    /**
+     * A histogram of durations with fixed buckets
+     */
+    public static final class Histogram {
+        /**
+         * The upper bounds of the buckets, in seconds for durations
+         */
+        private final double[] bounds;
+        /**
+         * The number of observations per bucket, the last bucket is +Inf
+         */
+        private final LongAdder[] buckets;
+        /**
+         * The number of observations
+         */
+        private final LongAdder count = new LongAdder();
+        /**
+         * The sum of the observations, in seconds for durations
+         */
+        private final DoubleAdder sum = new DoubleAdder();
+
+        private Histogram(double[] bounds) {
+            this.bounds = bounds.clone();
+            this.buckets = new LongAdder[bounds.length + 1];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        /**
+         * Record a duration
+         *
+         * @param nanos The duration in nanoseconds
+         */
+        public void observeNanos(long nanos) {
+            observe(nanos / 1e9);
+        }
+
+        /**
+         * Record a value
+         *
+         * @param value The value, in seconds for durations
+         */
+        public void observe(double value) {
+            int bucket = 0;
+            while (bucket < bounds.length && value > bounds[bucket]) {
+                bucket++;
+            }
+            buckets[bucket].increment();
+            count.increment();
+            sum.add(value);
+        }
+
+        /**
+         * Get the number of observations
+         *
+         * @return The number of observations
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * Get the sum of the observations
+         *
+         * @return The sum of the observations, in seconds for durations
+         */
+        public double getSum() {
+            return sum.sum();
+        }
+    }
+
+    /**
+     * Get the registry of the process
+     *
+     * @return The default registry
+     */
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Get or create a counter
+     *
+     * @param name   The name of the metric
+     * @param help   The help text of the metric
+     * @param labels The label names and values, alternating
+     * @return The counter
+     */
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) family(name, "counter", help).metrics.computeIfAbsent(labels(labels), key -> new Counter());
+    }
+
+    /**
+     * Get or create a histogram
+     *
+     * @param name    The name of the metric
+     * @param help    The help text of the metric
+     * @param buckets The upper bounds of the buckets in seconds, in ascending order
+     * @param labels  The label names and values, alternating
+     * @return The histogram
+     */
+    public Histogram histogram(String name, String help, double[] buckets, String... labels) {
+        return (Histogram) family(name, "histogram", help).metrics.computeIfAbsent(labels(labels), key -> new Histogram(buckets));
+    }
+
+    /**
+     * Register a gauge, replacing a gauge with the same name and labels
+     *
+     * @param name     The name of the metric
+     * @param help     The help text of the metric
+     * @param supplier The supplier of the current value
+     * @param labels   The label names and values, alternating
+     */
+    public void gauge(String name, String help, DoubleSupplier supplier, String... labels) {
+        family(name, "gauge", help).metrics.put(labels(labels), supplier);
+    }
+
+    /**
+     * Register a counter whose value is read from a supplier, replacing a counter with the same name and labels
+     * The value may drop back to zero, e.g. when the connection it counts is replaced, which Prometheus handles as a
+     * counter reset
+     *
+     * @param name     The name of the metric
+     * @param help     The help text of the metric
+     * @param supplier The supplier of the current value
+     * @param labels   The label names and values, alternating
+     */
+    public void counter(String name, String help, DoubleSupplier supplier, String... labels) {
+        family(name, "counter", help).metrics.put(labels(labels), supplier);
+    }
+
+    /**
+     * Render all metrics in the Prometheus text format
+     *
+     * @return The metrics as text
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<String, Family> entry : families.entrySet()) {
+            String name = entry.getKey();
+            Family family = entry.getValue();
+            out.append("# HELP ").append(name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(family.type).append('\n');
+            for (Map.Entry<String, Object> metric : new ConcurrentSkipListMap<>(family.metrics).entrySet()) {
+                String labels = metric.getKey();
+                Object value = metric.getValue();
+                if (value instanceof Counter counter) {
+                    sample(out, name, labels, counter.get());
+                } else if (value instanceof DoubleSupplier gauge) {
+                    sample(out, name, labels, gauge.getAsDouble());
+                } else if (value instanceof Histogram histogram) {
+                    long cumulative = 0;
+                    for (int i = 0; i < histogram.buckets.length; i++) {
+                        cumulative += histogram.buckets[i].sum();
+                        String bound = i < histogram.bounds.length ? Double.toString(histogram.bounds[i]) : "+Inf";
+                        sample(out, name + "_bucket", withLabel(labels, "le", bound), cumulative);
+                    }
+                    sample(out, name + "_sum", labels, histogram.getSum());
+                    sample(out, name + "_count", labels, histogram.getCount());
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Get or create a metric family and check that the type matches
+     */
+    private Family family(String name, String type, String help) {
+        Family family = families.computeIfAbsent(name, key -> new Family(type, help));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a " + family.type);
+        }
+        return family;
+    }
+
+    /**
+     * Render label pairs as {name="value",...}
+     */
+    private static String labels(String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be given as name and value pairs");
+        }
+        if (labels.length == 0) {
+            return "";
+        }
+        StringBuilder out = new StringBuilder("{");
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(labels[i]).append("=\"").append(labels[i + 1].replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+        }
+        return out.append('}').toString();
+    }
+
+    /**
+     * Add a label to rendered labels
+     */
+    private static String withLabel(String labels, String name, String value) {
+        String label = name + "=\"" + value + "\"";
+        return labels.isEmpty() ? "{" + label + "}" : labels.substring(0, labels.length() - 1) + "," + label + "}";
+    }
+
+    /**
+     * Append a sample line
+     */
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name).append(labels).append(' ');
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+}
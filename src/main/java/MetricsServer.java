@@ -0,0 +1,57 @@
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An embedded HTTP server that serves a metrics registry on /metrics for Prometheus
+ */
+public final class MetricsServer {
+    /**
+     * The logger for the MetricsServer class
+     */
+    private static final Logger logger = LogManager.getLogger(MetricsServer.class);
+    private static final Level NOTICE = Level.forName("NOTICE", 350);
+    /**
+     * The content type of the Prometheus text format
+     */
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private MetricsServer() {
+    }
+
+    /**
+     * Start serving a registry
+     *
+     * @param port     The port to listen on
+     * @param registry The registry to serve
+     * @return The started HTTP server
+     * @throws IOException If the port cannot be bound
+     */
+    public static HttpServer start(int port, MetricsRegistry registry) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/metrics", exchange -> {
+            try (exchange) {
+                if (!exchange.getRequestMethod().equals("GET")) {
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
+                }
+                byte[] body = registry.scrape().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        });
+        server.setExecutor(null);
+        server.start();
+        logger.log(NOTICE, "Metrics served on port " + port + " at /metrics");
+        return server;
+    }
+}
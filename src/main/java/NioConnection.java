@@ -0,0 +1,97 @@
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A non-blocking connection that reads length-prefixed frames and hands the decoded messages to a consumer
+ * When the channel is writable again, the outbound queue of the connection continues to write its frames
+ */
+public class NioConnection implements NioEventLoop.Handler {
+    /**
+     * The logger for the NioConnection class
+     */
+    private static final Logger logger = LogManager.getLogger(NioConnection.class);
+    /**
+     * The initial size of the read buffer in bytes
+     */
+    private static final int INITIAL_BUFFER_SIZE = 16 * 1024;
+    /**
+     * The channel of the connection
+     */
+    private final SocketChannel channel;
+    /**
+     * The codec used to decode the frames
+     */
+    private final MessageCodec codec;
+    /**
+     * The consumer of the decoded messages
+     */
+    private final Transport.MessageListener consumer;
+    /**
+     * The queue of the frames written to the connection
+     */
+    private final OutboundQueue outboundQueue;
+    /**
+     * The read buffer, kept in write mode between reads
+     */
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+    /**
+     * Create a new connection
+     *
+     * @param channel       The channel of the connection
+     * @param codec         The codec used to decode the frames
+     * @param consumer      The consumer of the decoded messages
+     * @param outboundQueue The queue of the frames written to the connection, flushed on this event loop
+     */
+    public NioConnection(SocketChannel channel, MessageCodec codec, Transport.MessageListener consumer, OutboundQueue outboundQueue) {
+        this.channel = channel;
+        this.codec = codec;
+        this.consumer = consumer;
+        this.outboundQueue = outboundQueue;
+    }
+
+    @Override
+    public void handle(SelectionKey key) throws IOException {
+        if (key.isWritable()) {
+            outboundQueue.flush();
+        }
+        if (!key.isValid() || !key.isReadable()) {
+            return;
+        }
+        int read = channel.read(buffer);
+        if (read < 0) {
+            logger.warn("Client disconnected: " + channel.getRemoteAddress());
+            key.cancel();
+            channel.close();
+            return;
+        }
+        buffer.flip();
+        while (buffer.remaining() >= MessageCodec.LENGTH_PREFIX) {
+            int length = buffer.getInt(buffer.position());
+            if (length < 0 || length > MessageCodec.MAX_PAYLOAD) {
+                throw new ProtocolException("Invalid frame length: " + length);
+            }
+            if (buffer.remaining() < MessageCodec.LENGTH_PREFIX + length) {
+                break;
+            }
+            int payloadStart = buffer.position() + MessageCodec.LENGTH_PREFIX;
+            ByteBuffer payload = buffer.slice(payloadStart, length);
+            buffer.position(payloadStart + length);
+            consumer.onMessage(codec.decode(payload), MessageCodec.LENGTH_PREFIX + length);
+        }
+        buffer.compact();
+        // Grow the buffer if a single frame does not fit
+        if (!buffer.hasRemaining()) {
+            ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+    }
+}
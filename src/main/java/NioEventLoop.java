@@ -0,0 +1,184 @@
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An event loop that multiplexes many non-blocking channels on a single thread with a selector
+ */
+public class NioEventLoop implements Runnable {
+    /**
+     * The logger for the NioEventLoop class
+     */
+    private static final Logger logger = LogManager.getLogger(NioEventLoop.class);
+    /**
+     * The shared pool of event loops, created on first use
+     */
+    private static NioEventLoop[] loops;
+    /**
+     * The index of the next event loop to hand out
+     */
+    private static final AtomicInteger nextLoop = new AtomicInteger();
+    /**
+     * The selector of the event loop
+     */
+    private final Selector selector;
+    /**
+     * Registrations and tasks that have to be performed on the event loop thread
+     */
+    private final Queue<Runnable> pendingTasks = new ConcurrentLinkedQueue<>();
+
+    /**
+     * A handler is notified when its channel is ready for the registered operations
+     */
+    public interface Handler {
+        /**
+         * Handle the ready operations of a key
+         *
+         * @param key The selected key
+         * @throws IOException If the channel fails
+         */
+        void handle(SelectionKey key) throws IOException;
+    }
+
+    /**
+     * Create a new event loop and start its thread
+     *
+     * @param name The name of the event loop thread
+     */
+    private NioEventLoop(String name) {
+        try {
+            this.selector = Selector.open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open selector", e);
+        }
+        Thread thread = new Thread(() -> {
+            // Frames are sent from the handlers on this thread, they must never wait for a congested neighbor
+            OutboundQueue.markReader();
+            run();
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Get the next event loop of the shared pool in round-robin order
+     *
+     * @return An event loop
+     */
+    public static NioEventLoop next() {
+        NioEventLoop[] pool = pool();
+        return pool[Math.floorMod(nextLoop.getAndIncrement(), pool.length)];
+    }
+
+    /**
+     * Get the shared pool of event loops, creating it on first use
+     */
+    private static synchronized NioEventLoop[] pool() {
+        if (loops == null) {
+            int size = Configuration.nioLoops();
+            loops = new NioEventLoop[size];
+            for (int i = 0; i < size; i++) {
+                loops[i] = new NioEventLoop("nio-event-loop-" + i);
+            }
+        }
+        return loops;
+    }
+
+    /**
+     * Register a channel with the event loop
+     * The channel is switched to non-blocking mode and registered on the event loop thread
+     *
+     * @param channel The channel to register
+     * @param ops     The interest operations
+     * @param handler The handler that is notified when the channel is ready
+     */
+    public void register(SelectableChannel channel, int ops, Handler handler) {
+        pendingTasks.add(() -> {
+            try {
+                channel.configureBlocking(false);
+                channel.register(selector, ops, handler);
+            } catch (IOException e) {
+                logger.error("Error while registering channel " + channel, e);
+                close(channel);
+            }
+        });
+        selector.wakeup();
+    }
+
+    /**
+     * Run a task on the event loop thread
+     *
+     * @param task The task to run
+     */
+    public void execute(Runnable task) {
+        pendingTasks.add(task);
+        selector.wakeup();
+    }
+
+    /**
+     * Select or stop selecting if a registered channel is writable, must be called on the event loop thread
+     *
+     * @param channel The registered channel
+     * @param write   True to be notified when the channel is writable
+     */
+    void setWriteInterest(SelectableChannel channel, boolean write) {
+        SelectionKey key = channel.keyFor(selector);
+        if (key == null || !key.isValid()) {
+            return;
+        }
+        int ops = key.interestOps();
+        key.interestOps(write ? ops | SelectionKey.OP_WRITE : ops & ~SelectionKey.OP_WRITE);
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            try {
+                selector.select();
+                Runnable task;
+                while ((task = pendingTasks.poll()) != null) {
+                    task.run();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    try {
+                        ((Handler) key.attachment()).handle(key);
+                    } catch (IOException | RuntimeException e) {
+                        logger.error("Error while handling channel " + key.channel(), e);
+                        key.cancel();
+                        close(key.channel());
+                    }
+                }
+            } catch (IOException e) {
+                logger.error("Error in event loop", e);
+            }
+        }
+    }
+
+    /**
+     * Close a channel and log failures
+     *
+     * @param channel The channel to close
+     */
+    static void close(SelectableChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.error("Error while closing channel " + channel, e);
+        }
+    }
+}
@@ -0,0 +1,496 @@
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The bounded queue of outgoing frames of one neighbor connection, drained by its own writer or by an event loop
+ * <p>
+ * Senders only encode and enqueue, so a slow neighbor only stalls the frames to that neighbor. The writer takes all
+ * pending frames at once and writes them with a single gathering write. A queue of a non-blocking channel has no
+ * writer thread: the {@link NioEventLoop} of the channel writes what fits and continues once the channel is writable.
+ * <p>
+ * The capacity and the overflow policy only apply to the COUNTER, DIGEST and PING frames, which are repeated anyway.
+ * REQUEST, REPLY and the handshake frames are never dropped and never wait, the protocols keep only a few of them
+ * outstanding per neighbor. A frame offered on a thread that reads connections never waits either, it is dropped
+ * instead: a reader that waits for a congested neighbor stops reading, and two such neighbors would wait for each other.
+ */
+public class OutboundQueue {
+    /**
+     * The logger for the OutboundQueue class
+     */
+    private static final Logger logger = LogManager.getLogger(OutboundQueue.class);
+    /**
+     * The maximum number of frames written with one gathering write
+     */
+    private static final int MAX_BATCH = 64;
+    /**
+     * The flag of the threads that read connections and run the message handlers
+     */
+    private static final ThreadLocal<Boolean> READER = ThreadLocal.withInitial(() -> false);
+
+    /**
+     * What to do with a droppable frame when the queue is full
+     */
+    public enum OverflowPolicy {
+        /**
+         * Wait until there is space
+         */
+        BLOCK,
+        /**
+         * Discard the new frame
+         */
+        DROP_NEWEST,
+        /**
+         * Discard the oldest queued droppable frame, or wait if there is none
+         */
+        DROP_OLDEST
+    }
+
+    /**
+     * A queued frame
+     */
+    private static final class Frame {
+        /**
+         * The encoded frame including the length prefix
+         */
+        private final ByteBuffer buffer;
+        /**
+         * True if the frame may be discarded on overflow
+         */
+        private final boolean droppable;
+
+        private Frame(ByteBuffer buffer, boolean droppable) {
+            this.buffer = buffer;
+            this.droppable = droppable;
+        }
+    }
+
+    /**
+     * The name of the queue, used for the writer thread and the logs
+     */
+    private final String name;
+    /**
+     * The channel the frames are written to
+     */
+    private final GatheringByteChannel channel;
+    /**
+     * The event loop that writes the frames of a non-blocking channel, or null if the queue has a writer thread
+     */
+    private final NioEventLoop loop;
+    /**
+     * The maximum number of queued frames
+     */
+    private final int capacity;
+    /**
+     * The policy for droppable frames when the queue is full
+     */
+    private final OverflowPolicy overflowPolicy;
+    /**
+     * The queued frames
+     */
+    private final ArrayDeque<Frame> frames = new ArrayDeque<>();
+    /**
+     * The lock that guards the queue and the conditions for the writer and blocked senders
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    /**
+     * The flag to indicate that the channel failed and no more frames are accepted
+     */
+    private boolean closed = false;
+    /**
+     * The number of frames taken by the writer that are not yet written
+     */
+    private int inFlight = 0;
+    /**
+     * The flag to indicate that the event loop writes the queue, until the queue is empty
+     */
+    private boolean flushing = false;
+    /**
+     * The frames taken by the event loop that are not completely written yet, only used on the event loop thread
+     */
+    private final ByteBuffer[] loopBatch;
+    private int loopBatchCount = 0;
+    /**
+     * The metrics of the queue
+     */
+    private int maxDepth = 0;
+    private long dropped = 0;
+    private long batches = 0;
+    private long written = 0;
+
+    /**
+     * Create a new outbound queue with a writer thread, see {@link #start()}
+     *
+     * @param name           The name of the queue
+     * @param channel        The channel the frames are written to
+     * @param capacity       The maximum number of queued frames
+     * @param overflowPolicy The policy for droppable frames when the queue is full
+     */
+    public OutboundQueue(String name, GatheringByteChannel channel, int capacity, OverflowPolicy overflowPolicy) {
+        this(name, channel, null, capacity, overflowPolicy);
+    }
+
+    /**
+     * Create a new outbound queue of a non-blocking channel, written by the event loop the channel is registered with
+     * The handler of the channel calls {@link #flush()} when the channel is writable
+     *
+     * @param name           The name of the queue
+     * @param channel        The non-blocking channel the frames are written to
+     * @param loop           The event loop the channel is registered with
+     * @param capacity       The maximum number of queued frames
+     * @param overflowPolicy The policy for droppable frames when the queue is full
+     * @param <C>            The type of the channel
+     */
+    public <C extends SelectableChannel & GatheringByteChannel> OutboundQueue(String name, C channel, NioEventLoop loop, int capacity, OverflowPolicy overflowPolicy) {
+        this(name, (GatheringByteChannel) channel, loop, capacity, overflowPolicy);
+    }
+
+    private OutboundQueue(String name, GatheringByteChannel channel, NioEventLoop loop, int capacity, OverflowPolicy overflowPolicy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity of the outbound queue must be greater than 0");
+        }
+        this.name = name;
+        this.channel = channel;
+        this.loop = loop;
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.loopBatch = loop == null ? null : new ByteBuffer[MAX_BATCH];
+    }
+
+    /**
+     * Start the writer thread of a queue of a blocking channel
+     * Frames offered before stay queued until then. A queue written by an event loop has no writer thread.
+     */
+    public void start() {
+        if (loop == null) {
+            ActivityExecutor.execute("writer-" + name, this::writeLoop);
+        }
+    }
+
+    /**
+     * Mark the current thread as a reader of connections, frames offered on it never wait
+     */
+    public static void markReader() {
+        READER.set(true);
+    }
+
+    /**
+     * Queue a frame
+     *
+     * @param frame     The encoded frame including the length prefix
+     * @param droppable True if the frame may be discarded when the queue is full
+     * @return True if the frame was queued, false if it was dropped or the queue is closed
+     * @throws InterruptedException If the thread is interrupted while waiting for space
+     */
+    public boolean offer(byte[] frame, boolean droppable) throws InterruptedException {
+        lock.lock();
+        try {
+            while (droppable && !closed && frames.size() >= capacity) {
+                if (overflowPolicy == OverflowPolicy.DROP_OLDEST && dropOldest()) {
+                    break;
+                }
+                if (overflowPolicy != OverflowPolicy.BLOCK || READER.get()) {
+                    dropped++;
+                    return false;
+                }
+                notFull.await();
+            }
+            if (closed) {
+                return false;
+            }
+            frames.addLast(new Frame(ByteBuffer.wrap(frame), droppable));
+            maxDepth = Math.max(maxDepth, frames.size());
+            if (loop == null) {
+                notEmpty.signal();
+            } else if (!flushing) {
+                flushing = true;
+                loop.execute(this::flush);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait until all queued frames are written
+     *
+     * @param timeout The maximum time to wait
+     * @param unit    The unit of the timeout
+     * @return True if the queue was drained in time
+     * @throws InterruptedException If the thread is interrupted while waiting
+     */
+    public boolean awaitDrained(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while ((!frames.isEmpty() || inFlight > 0) && !closed) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            return frames.isEmpty() && inFlight == 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Discard the oldest droppable frame, the lock must be held
+     *
+     * @return True if a frame was discarded
+     */
+    private boolean dropOldest() {
+        Iterator<Frame> iterator = frames.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().droppable) {
+                iterator.remove();
+                dropped++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Write the queued frames until the channel fails
+     */
+    private void writeLoop() {
+        ByteBuffer[] batch = new ByteBuffer[MAX_BATCH];
+        while (true) {
+            int count;
+            lock.lock();
+            try {
+                while (frames.isEmpty() && !closed) {
+                    notEmpty.await();
+                }
+                if (closed) {
+                    return;
+                }
+                count = take(batch);
+            } catch (InterruptedException e) {
+                logger.error("Writer " + name + " interrupted", e);
+                return;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                long remaining = 0;
+                for (int i = 0; i < count; i++) {
+                    remaining += batch[i].remaining();
+                }
+                while (remaining > 0) {
+                    remaining -= channel.write(batch, 0, count);
+                }
+            } catch (IOException e) {
+                logger.error("An error occurred while writing to " + name, e);
+                close();
+                return;
+            } finally {
+                for (int i = 0; i < count; i++) {
+                    batch[i] = null;
+                }
+            }
+            batchWritten(count);
+        }
+    }
+
+    /**
+     * Write the queued frames to a non-blocking channel until the queue is empty or the channel is full, must be
+     * called on the event loop of the channel
+     * A full channel is selected for writing and the event loop calls this method again once it is writable.
+     */
+    void flush() {
+        try {
+            while (true) {
+                if (loopBatchCount == 0) {
+                    lock.lock();
+                    try {
+                        if (closed) {
+                            return;
+                        }
+                        if (frames.isEmpty()) {
+                            flushing = false;
+                            loop.setWriteInterest((SelectableChannel) channel, false);
+                            return;
+                        }
+                        loopBatchCount = take(loopBatch);
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+                channel.write(loopBatch, 0, loopBatchCount);
+                if (loopBatch[loopBatchCount - 1].hasRemaining()) {
+                    // The send buffer is full, continue when the channel is writable
+                    loop.setWriteInterest((SelectableChannel) channel, true);
+                    return;
+                }
+                int count = loopBatchCount;
+                for (int i = 0; i < count; i++) {
+                    loopBatch[i] = null;
+                }
+                loopBatchCount = 0;
+                batchWritten(count);
+            }
+        } catch (IOException e) {
+            logger.error("An error occurred while writing to " + name, e);
+            close();
+        }
+    }
+
+    /**
+     * Take up to {@link #MAX_BATCH} frames for one gathering write, the lock must be held
+     *
+     * @param batch The array the buffers of the frames are put into
+     * @return The number of taken frames
+     */
+    private int take(ByteBuffer[] batch) {
+        int count = Math.min(frames.size(), MAX_BATCH);
+        for (int i = 0; i < count; i++) {
+            batch[i] = frames.pollFirst().buffer;
+        }
+        inFlight = count;
+        notFull.signalAll();
+        return count;
+    }
+
+    /**
+     * Record that the taken frames were written
+     *
+     * @param count The number of written frames
+     */
+    private void batchWritten(int count) {
+        lock.lock();
+        try {
+            batches++;
+            written += count;
+            inFlight = 0;
+            if (frames.isEmpty()) {
+                notFull.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stop accepting frames, discard the queued frames, release all waiting senders and stop the writer
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            frames.clear();
+            inFlight = 0;
+            notFull.signalAll();
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of queued frames
+     *
+     * @return The current depth of the queue
+     */
+    public int getDepth() {
+        lock.lock();
+        try {
+            return frames.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the largest number of frames that were queued at the same time
+     *
+     * @return The maximum depth of the queue
+     */
+    public int getMaxDepth() {
+        lock.lock();
+        try {
+            return maxDepth;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of frames discarded by the overflow policy
+     *
+     * @return The number of dropped frames
+     */
+    public long getDropped() {
+        lock.lock();
+        try {
+            return dropped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of gathering writes
+     *
+     * @return The number of written batches
+     */
+    public long getBatches() {
+        lock.lock();
+        try {
+            return batches;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of frames written to the channel
+     *
+     * @return The number of written frames
+     */
+    public long getWritten() {
+        lock.lock();
+        try {
+            return written;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Check if the queue stopped accepting frames because the channel failed or was closed
+     *
+     * @return True if the queue is closed
+     */
+    public boolean isClosed() {
+        lock.lock();
+        try {
+            return closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the policy for droppable frames when the queue is full
+     *
+     * @return The overflow policy
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+}
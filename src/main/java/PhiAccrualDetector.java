@@ -0,0 +1,120 @@
+/**
+ * A phi-accrual failure detector for the connection to one neighbor
+ * <p>
+ * Every frame received from the neighbor counts as a heartbeat. The detector keeps a window of the intervals between
+ * heartbeats and reports the suspicion phi = -log10(P), where P is the probability that a heartbeat arrives later than
+ * the time since the last one, if the intervals are normally distributed. A phi of 1 means a 10% chance that the
+ * neighbor is still alive, a phi of 8 one in a hundred million. Longer pauses, e.g. of the garbage collector, are
+ * tolerated by adding an acceptable pause to the mean interval (see Hayashibara et al., "The phi accrual failure detector").
+ */
+public class PhiAccrualDetector {
+    /**
+     * The number of intervals kept in the window
+     */
+    private static final int WINDOW = 100;
+    /**
+     * The intervals of the window in milliseconds as a ring buffer, with their sum and sum of squares
+     */
+    private final double[] intervals = new double[WINDOW];
+    private int size = 0;
+    private int next = 0;
+    private double sum = 0;
+    private double squares = 0;
+    /**
+     * The lower bound of the standard deviation in milliseconds, so regular heartbeats do not make phi jump
+     */
+    private final double minStdDeviation;
+    /**
+     * The pause in milliseconds that is added to the mean interval before suspecting the neighbor
+     */
+    private final double acceptablePause;
+    /**
+     * The time of the last heartbeat in nanoseconds, or -1 before the first
+     */
+    private long lastHeartbeatNanos = -1;
+
+    /**
+     * Create a failure detector
+     *
+     * @param expectedInterval The expected interval between heartbeats in milliseconds, the first estimate of the window
+     * @param minStdDeviation  The lower bound of the standard deviation in milliseconds
+     * @param acceptablePause  The pause in milliseconds that is added to the mean interval
+     */
+    public PhiAccrualDetector(long expectedInterval, long minStdDeviation, long acceptablePause) {
+        if (expectedInterval <= 0 || minStdDeviation <= 0 || acceptablePause < 0) {
+            throw new IllegalArgumentException("Invalid failure detector parameters");
+        }
+        this.minStdDeviation = minStdDeviation;
+        this.acceptablePause = acceptablePause;
+        // Start with two samples around the expected interval, like a standard deviation of a quarter of it
+        add(expectedInterval - expectedInterval / 4.0);
+        add(expectedInterval + expectedInterval / 4.0);
+    }
+
+    /**
+     * Record a heartbeat of the neighbor
+     *
+     * @param nowNanos The current time of {@link System#nanoTime()}
+     */
+    public synchronized void heartbeat(long nowNanos) {
+        if (lastHeartbeatNanos >= 0) {
+            add((nowNanos - lastHeartbeatNanos) / 1e6);
+        }
+        lastHeartbeatNanos = nowNanos;
+    }
+
+    /**
+     * Get the suspicion level of the neighbor
+     *
+     * @param nowNanos The current time of {@link System#nanoTime()}
+     * @return The phi value, 0 before the first heartbeat
+     */
+    public synchronized double phi(long nowNanos) {
+        if (lastHeartbeatNanos < 0) {
+            return 0;
+        }
+        double elapsed = (nowNanos - lastHeartbeatNanos) / 1e6;
+        double mean = sum / size + acceptablePause;
+        double stdDeviation = Math.max(Math.sqrt(Math.max(squares / size - (sum / size) * (sum / size), 0)), minStdDeviation);
+        // Logistic approximation of the cumulative normal distribution, without the cancellation of 1 - CDF
+        double y = (elapsed - mean) / stdDeviation;
+        double e = Math.exp(-y * (1.5976 + 0.070566 * y * y));
+        if (elapsed > mean) {
+            return -Math.log10(e / (1 + e));
+        }
+        return -Math.log10(1 - 1 / (1 + e));
+    }
+
+    /**
+     * Forget the last heartbeat, e.g. when the connection is replaced by one to another neighbor
+     * The window of intervals is kept, the suspicion is 0 until the next heartbeat
+     */
+    public synchronized void reset() {
+        lastHeartbeatNanos = -1;
+    }
+
+    /**
+     * Get the time of the last heartbeat
+     *
+     * @return The time of {@link System#nanoTime()} of the last heartbeat, or -1 before the first
+     */
+    public synchronized long getLastHeartbeatNanos() {
+        return lastHeartbeatNanos;
+    }
+
+    /**
+     * Add an interval to the window, replacing the oldest one once the window is full
+     */
+    private void add(double interval) {
+        if (size == WINDOW) {
+            sum -= intervals[next];
+            squares -= intervals[next] * intervals[next];
+        } else {
+            size++;
+        }
+        intervals[next] = interval;
+        sum += interval;
+        squares += interval * interval;
+        next = (next + 1) % WINDOW;
+    }
+}
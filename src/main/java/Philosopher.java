@@ -3,12 +3,13 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
-import java.io.ObjectOutputStream;
 import java.net.InetSocketAddress;
-import java.net.Socket;
-import java.util.Random;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.nio.channels.UnresolvedAddressException;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * The Philosopher class represents a philosopher in the dining philosophers problem
@@ -25,42 +26,66 @@ public class Philosopher {
      */
     private static boolean isTest = false;
     /**
-     * The maximum number of retries
+     * The first and the longest interval between connection attempts in milliseconds
+     * The interval doubles after every failed attempt, a random half of it is skipped so the neighbors do not retry in lockstep
      */
-    private final int NUM_OF_RETRIES = 5;
+    private final int RETRY_INTERVAL = 50;
+    private final int MAX_RETRY_INTERVAL = 5000;
     /**
-     * The interval between retries in milliseconds
+     * The time in milliseconds after which connecting to a neighbor is given up
      */
-    private final int RETRY_INTERVAL = 5000;
+    private final int CONNECT_TIMEOUT = 30000;
     /**
      * Custom log level
      */
     private final Level NOTICE = Level.forName("NOTICE", 350);
     /**
-     * The interval for eating
+     * The interval for eating, from the workload of the process
      * The first element is the maximum time in milliseconds
      * The second element is the minimum time in milliseconds
      */
-    private final int[] eatInterval = new int[]{10000, 5000};
+    private final int[] eatInterval;
     /**
-     * The interval for thinking
+     * The interval for thinking, from the workload of the process
      * The first element is the maximum time in milliseconds
      * The second element is the minimum time in milliseconds
      */
-    private final int[] thinkInterval = new int[]{30000, 5000};
+    private final int[] thinkInterval;
     /**
      * The Lamport clock of the philosopher
      */
     private final LamportClock lamportClock = new LamportClock();
     /**
-     * The queue of deferred requests
+     * The interval of the failure detection in milliseconds, a PING is sent on a link that carried no frame during it
      */
-    private final BlockingQueue<DeferredRequest> deferredRequests = new LinkedBlockingQueue<>(2);
+    private final int PING_INTERVAL = 1000;
     /**
-     * The interval between updates sent to neighbors in milliseconds
+     * The phi value above which a neighbor is suspected to have failed
      */
-    private final int UPDATE_INTERVAL = 100;
-    private final int PING_INTERVAL = 5000;
+    private final double PHI_THRESHOLD = 8;
+    /**
+     * The pause in milliseconds of a neighbor, e.g. of its garbage collector, that is not suspicious yet
+     */
+    private final int ACCEPTABLE_PAUSE = 3000;
+    /**
+     * The failure detectors of the left and right neighbors, indexed by the ordinal of the side
+     */
+    private final PhiAccrualDetector[] failureDetectors = {
+            new PhiAccrualDetector(PING_INTERVAL, PING_INTERVAL / 5, ACCEPTABLE_PAUSE),
+            new PhiAccrualDetector(PING_INTERVAL, PING_INTERVAL / 5, ACCEPTABLE_PAUSE)};
+    /**
+     * The round-trip times to the left and right neighbors, measured with the pings, indexed by the ordinal of the side
+     */
+    private final RoundTripEstimator[] roundTrips = {new RoundTripEstimator(), new RoundTripEstimator()};
+    /**
+     * The time of {@link System#nanoTime()} at which the unanswered ping was sent to the left and right neighbors, 0 if
+     * there is none
+     */
+    private final AtomicLongArray pingSentNanos = new AtomicLongArray(2);
+    /**
+     * The time of {@link System#nanoTime()} at which the last frame was sent to the left and right neighbors
+     */
+    private final AtomicLongArray lastSentNanos = new AtomicLongArray(2);
     /**
      * The ID of the philosopher
      */
@@ -70,29 +95,97 @@ public class Philosopher {
      */
     private final GCounter localGCounter;
     /**
-     * The left fork of the philosopher
+     * The delta replication of the local counter to the neighbors
      */
-    private boolean hasLeftFork;
-    private boolean hasRightFork;
+    private final CounterGossip counterGossip;
     /**
-     * The socket of the left and right neighbors
+     * The file that keeps the local counter across restarts, or null if it lives only in memory
      */
-    private Socket leftNeighborSocket;
-    private Socket rightNeighborSocket;
+    private CounterStore counterStore;
     /**
-     * The state of the philosopher
+     * The transport used to connect to the neighbors
      */
-    private boolean inCriticalSection;
-    private boolean isRequesting;
+    private final Transport transport;
     /**
-     * The state of the ping
+     * The metrics of the philosopher
+     */
+    private final PhilosopherMetrics metrics;
+    /**
+     * The protocol that decides when the philosopher may use the forks
+     */
+    private final ForkProtocol forkProtocol;
+    /**
+     * The lock that runs work of the process in the critical section of the philosopher
+     */
+    private final DistributedMutex mutex;
+    /**
+     * The channel to the left and right neighbors
+     */
+    private volatile TransportChannel leftNeighborChannel;
+    private volatile TransportChannel rightNeighborChannel;
+    /**
+     * The ids of the left and right neighbors, 0 until connected
+     */
+    private volatile int leftNeighborId;
+    private volatile int rightNeighborId;
+    /**
+     * A latch that is released once the channels to both neighbors are connected
+     */
+    private final CountDownLatch neighborLatch = new CountDownLatch(2);
+    /**
+     * The addresses of the left and right neighbors, indexed by the ordinal of the side
+     * An address is replaced by the one of the philosopher behind a failed neighbor, guarded by the neighbor latch
+     */
+    private final InetSocketAddress[] neighborAddresses = new InetSocketAddress[2];
+    /**
+     * The ids and addresses of the philosophers behind the left and right neighbors, learned from the NEIGHBOR messages
+     * of the neighbors and guarded by the neighbor latch
+     */
+    private final int[] nextNeighborIds = new int[2];
+    private final InetSocketAddress[] nextNeighborAddresses = new InetSocketAddress[2];
+    /**
+     * The time of {@link System#nanoTime()} of the last frame of a failed neighbor, 0 once the side is repaired
+     */
+    private final long[] failedNanos = new long[2];
+    /**
+     * The sides whose new neighbor is sent READY once the philosopher leaves the critical section
+     */
+    private final boolean[] pendingReady = new boolean[2];
+    /**
+     * The receiver of the messages of the neighbors, used again to connect to the philosopher behind a failed neighbor
+     */
+    private volatile Transport.ChannelListener receiver;
+    /**
+     * Called once the channels to both neighbors are connected
+     */
+    private volatile Runnable onConnected = () -> {
+    };
+    /**
+     * Called once the channels to both neighbors are connected and both neighbors sent READY
      */
-    private boolean receivedPingLeft = false;
-    private boolean receivedPingRight = false;
+    private volatile Runnable onReady = () -> {
+    };
     /**
-     * The state of the reply
+     * Called once a neighbor failed, before connecting to the philosopher behind it
      */
-    private boolean hasReply = true;
+    private volatile Runnable onFailed = () -> {
+    };
+    /**
+     * The readiness of the philosopher and its neighbors, guarded by the neighbor latch
+     */
+    private boolean connected = false;
+    private final boolean[] neighborReady = new boolean[2];
+    private boolean ready = false;
+    /**
+     * The state of the philosopher, changed under the request lock and read without a lock by the handlers
+     */
+    private volatile boolean inCriticalSection;
+    private volatile boolean isRequesting;
+    /**
+     * The state of the ping
+     */
+    private volatile boolean receivedPingLeft = false;
+    private volatile boolean receivedPingRight = false;
 
     /**
      * Constructor for the Philosopher class
@@ -100,6 +193,31 @@ public class Philosopher {
      * @param philosopherId The ID of the philosopher
      */
     public Philosopher(int philosopherId, String leftNeighborAddress, int leftNeighborPort, String rightNeighborAddress, int rightNeighborPort) {
+        this(philosopherId, leftNeighborAddress, leftNeighborPort, rightNeighborAddress, rightNeighborPort, Configuration.transport());
+    }
+
+    /**
+     * Constructor for the Philosopher class with an explicit transport
+     *
+     * @param philosopherId The ID of the philosopher
+     * @param transport     The transport used to connect to the neighbors
+     */
+    public Philosopher(int philosopherId, String leftNeighborAddress, int leftNeighborPort, String rightNeighborAddress, int rightNeighborPort, Transport transport) {
+        this(philosopherId, leftNeighborAddress, leftNeighborPort, rightNeighborAddress, rightNeighborPort, transport, MetricsRegistry.getDefault());
+    }
+
+    /**
+     * Constructor for the Philosopher class with an explicit transport and metrics registry
+     *
+     * @param philosopherId The ID of the philosopher
+     * @param transport     The transport used to connect to the neighbors
+     * @param registry      The registry the metrics of the philosopher are registered in
+     */
+    public Philosopher(int philosopherId, String leftNeighborAddress, int leftNeighborPort, String rightNeighborAddress, int rightNeighborPort, Transport transport, MetricsRegistry registry) {
+        if (transport == null) {
+            logger.error("Transport is null");
+            throw new IllegalArgumentException("Transport cannot be null");
+        }
         if (philosopherId <= 0) {
             logger.error("Invalid philosopher ID: " + philosopherId);
             throw new IllegalArgumentException("Philosopher ID must be greater than 0");
@@ -117,121 +235,175 @@ public class Philosopher {
             throw new IllegalArgumentException("Port is out of the valid range of 49152-65535");
         }
         this.philosopherId = philosopherId;
-        this.hasLeftFork = false;
-        this.hasRightFork = false;
+        this.transport = transport;
+        WorkloadProfile workload = Configuration.workload();
+        this.eatInterval = new int[]{workload.getMaxEat(), workload.getMinEat()};
+        this.thinkInterval = new int[]{workload.getMaxThink(), workload.getMinThink()};
         this.inCriticalSection = false;
         this.isRequesting = false;
         this.localGCounter = new GCounter(philosopherId);
-        // Connect to left and right neighbors
+        boolean restored = restoreCounter();
+        this.counterGossip = new CounterGossip(localGCounter);
+        if (restored) {
+            // The neighbors saw these counts before the restart, the gossip continues with the new ones
+            for (Direction side : Direction.values()) {
+                counterGossip.markSent(side, localGCounter);
+            }
+        }
+        this.forkProtocol = ChandyMisra.NAME.equals(Configuration.protocol()) ? new ChandyMisra(this) : new RicartAgrawala(this);
+        this.metrics = new PhilosopherMetrics(registry, philosopherId);
+        this.mutex = new DistributedMutex(this);
+        this.neighborAddresses[Direction.LEFT.ordinal()] = new InetSocketAddress(leftNeighborAddress, leftNeighborPort);
+        this.neighborAddresses[Direction.RIGHT.ordinal()] = new InetSocketAddress(rightNeighborAddress, rightNeighborPort);
+    }
+
+    /**
+     * Load the counter from its file and keep the file up to date, if a counter directory is configured
+     *
+     * @return True if counts were loaded
+     */
+    private boolean restoreCounter() {
+        Path directory = Configuration.counterDirectory();
+        if (directory == null) {
+            return false;
+        }
+        Path file = directory.resolve("counter-" + philosopherId + ".bin");
+        try {
+            counterStore = new CounterStore(file);
+        } catch (IOException e) {
+            logger.error("Cannot open the counter file " + file + ", the counter lives only in memory", e);
+            return false;
+        }
+        counterStore.attach(localGCounter);
+        if (localGCounter.size() > 0) {
+            logger.log(NOTICE, "Philosopher " + philosopherId + " restored " + localGCounter.query() + " meals of " + localGCounter.size() + " philosophers from " + file);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Publish the state of the philosopher in its metrics registry, once it is constructed
+     * The gauges are read by the threads that scrape the registry, so they are not registered by the constructor.
+     */
+    public void start() {
+        metrics.registerGauges(this);
+    }
+
+    /**
+     * Connect to the left and right neighbors
+     * Both neighbors of a pair dial each other, the handshake keeps one of the two connections, see {@link #receiveHello}.
+     * Once both connections are kept, the philosopher sends READY to both neighbors, see {@link #receiveReady}.
+     *
+     * @param receiver    The receiver of the messages of the neighbors
+     * @param onConnected Called once the channels to both neighbors are connected
+     * @param onReady     Called once the channels to both neighbors are connected and both neighbors are connected to
+     *                    their own neighbors, so requests for forks are answered right away
+     * @param onFailed    Called once a neighbor failed, before connecting to the philosopher behind it
+     */
+    public void connectToNeighbors(Transport.ChannelListener receiver, Runnable onConnected, Runnable onReady, Runnable onFailed) {
+        this.receiver = receiver;
+        this.onConnected = onConnected;
+        this.onReady = onReady;
+        this.onFailed = onFailed;
         if (!isTest) {
             logger.log(NOTICE, "Connecting to neighbors...");
-            connectToNeighbor(new InetSocketAddress(leftNeighborAddress, leftNeighborPort), Direction.LEFT);
-            connectToNeighbor(new InetSocketAddress(rightNeighborAddress, rightNeighborPort), Direction.RIGHT);
+            connectToNeighbor(Direction.LEFT, receiver, false);
+            connectToNeighbor(Direction.RIGHT, receiver, false);
         }
     }
 
     /**
-     * Simulate thinking
+     * Simulate thinking for a random time of the workload
      */
     public void think() {
+        think(nextThinkTime());
+    }
+
+    /**
+     * Draw a random thinking time of the workload
+     *
+     * @return The thinking time in milliseconds
+     */
+    public int nextThinkTime() {
+        return ThreadLocalRandom.current().nextInt(thinkInterval[1], thinkInterval[0] + 1);
+    }
+
+    /**
+     * Simulate thinking
+     *
+     * @param thinkTime The thinking time in milliseconds
+     */
+    public void think(int thinkTime) {
         logger.info("Philosopher " + philosopherId + " is thinking...");
+        long start = System.nanoTime();
         try {
-            Thread.sleep(new Random().nextInt(thinkInterval[0] - thinkInterval[1] + 1) + thinkInterval[1]);
+            Thread.sleep(thinkTime);
         } catch (InterruptedException e) {
             logger.error("An error occurred while thinking", e);
         }
+        metrics.getThink().observeNanos(System.nanoTime() - start);
     }
 
     /**
-     * Simulate eating
+     * Simulate eating for a random time of the workload
      */
     public void eat() {
+        eat(ThreadLocalRandom.current().nextInt(eatInterval[1], eatInterval[0] + 1));
+    }
+
+    /**
+     * Simulate eating
+     *
+     * @param eatTime The eating time in milliseconds
+     */
+    public void eat(int eatTime) {
         // Increment the local counter
         localGCounter.increment();
+        counterGossip.counterChanged();
         logger.info("Philosopher " + philosopherId + " is eating...");
+        long start = System.nanoTime();
+        EaterUtilization.getDefault().startEating();
         try {
-            Thread.sleep(new Random().nextInt(eatInterval[0] - eatInterval[1] + 1) + eatInterval[1]);
+            Thread.sleep(eatTime);
         } catch (InterruptedException e) {
             logger.error("An error occurred while eating", e);
+        } finally {
+            EaterUtilization.getDefault().stopEating();
         }
+        metrics.getEat().observeNanos(System.nanoTime() - start);
     }
 
     /**
-     * Request forks from neighbors
+     * Request forks from neighbors and wait until both forks are acquired
      */
     public void requestForks() {
-        // On request, update the Lamport timestamp
-        lamportClock.update();
-        // Roucairol-Carvalho optimization
-        // Check if the philosopher has received a reply from both neighbors
-        // Once site Pi has received a reply message from site Pj, site Pi may enter
-        // the critical section multiple times without receiving permission from Pj on
-        // subsequent attempts up to the moment when Pi has sent a reply message to Pj.
-        if (hasReply()) {
-            setHasReply(false);
-            // Requesting forks
-            setRequesting(true);
-            // Get the current Lamport timestamp
-            int timestamp = lamportClock.getTimestamp();
-            logger.debug("Philosopher " + philosopherId + " is requesting forks with timestamp " + timestamp);
-            logger.debug("Philosopher " + philosopherId + " is requesting forks.");
-            // Request forks from neighbors
-            logger.info("Philosopher " + philosopherId + " is requesting left fork.");
-            sendRequest(leftNeighborSocket, Direction.RIGHT, timestamp);
-            logger.info("Philosopher " + philosopherId + " is requesting right fork.");
-            sendRequest(rightNeighborSocket, Direction.LEFT, timestamp);
-            // Print messages
-            boolean printedLeftForkMessage = false;
-            boolean printedRightForkMessage = false;
-            // Wait until both forks are acquired
-            while (!(hasLeftFork && hasRightFork)) {
-                try {
-                    Thread.sleep(1000);
-                } catch (InterruptedException e) {
-                    logger.error("An error occurred while waiting for forks", e);
-                }
-                if (hasLeftFork && !printedLeftForkMessage) {
-                    logger.info("Philosopher " + philosopherId + " has left fork.");
-                    printedLeftForkMessage = true;
-                }
+        forkProtocol.acquire(-1);
+    }
 
-                if (hasRightFork && !printedRightForkMessage) {
-                    logger.info("Philosopher " + philosopherId + " has right fork.");
-                    printedRightForkMessage = true;
-                }
-            }
+    /**
+     * Request forks from neighbors and wait at most the given time for both forks
+     * On timeout the request is abandoned: the philosopher does not enter the critical section
+     * and releases the forks as soon as the outstanding replies have arrived
+     *
+     * @param timeout The maximum time to wait
+     * @param unit    The unit of the timeout
+     * @return True if the philosopher entered the critical section, false if the timeout elapsed
+     */
+    public boolean requestForks(long timeout, TimeUnit unit) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Timeout cannot be negative");
         }
-        // Enter critical section
-        setCriticalSection(true);
-        // No longer requesting forks
-        setRequesting(false);
-        logger.debug("Philosopher " + philosopherId + " entered the critical section.");
-
+        return forkProtocol.acquire(unit.toNanos(timeout));
     }
 
     /**
      * Release forks to neighbors
      */
     public void releaseForks() {
-        // Exit critical section
-        setCriticalSection(false);
-        logger.debug("Philosopher " + philosopherId + " is releasing forks.");
-        logger.info("Philosopher " + philosopherId + " is releasing forks.");
-        logger.debug("deferredRequests: " + deferredRequests.size());
-        // Release forks to neighbors
-        while (!deferredRequests.isEmpty()) {
-            DeferredRequest request = deferredRequests.poll();
-            logger.debug(String.valueOf(request));
-            if (request.getDirection() == Direction.LEFT) {
-                sendReply(leftNeighborSocket, reverseDirection(request.getDirection()));
-            } else {
-                sendReply(rightNeighborSocket, reverseDirection(request.getDirection()));
-            }
-        }
-        // Reset fork states
-        hasLeftFork = false;
-        hasRightFork = false;
-        logger.log(NOTICE, "Philosophers have eaten a total of " + localGCounter.query() + " times.");
+        forkProtocol.release();
+        // A neighbor that took its seat during the meal may use the fork it shares with this philosopher from now on
+        sendPendingReady();
     }
 
     /**
@@ -249,43 +421,140 @@ public class Philosopher {
     }
 
     /**
-     * Send a ping to neighbors
+     * Watch the neighbors and send a ping on the links that are idle
+     * Every frame of a neighbor is a heartbeat, so pings only flow while there is no other traffic. A neighbor is
+     * suspected once its phi value exceeds the threshold or its connection broke, and is replaced by the philosopher
+     * behind it, see {@link #neighborFailed}.
      */
     public void requestPing() {
-        new Thread(() -> {
+        ActivityExecutor.execute("ping-" + philosopherId, () -> {
+            long previousRound = System.nanoTime();
+            // The first round probes both links, even if a frame was sent since the loop started
+            boolean firstRound = true;
             while (true) {
                 try {
-                    sendPing(leftNeighborSocket, false, Direction.RIGHT);
-                    sendPing(rightNeighborSocket, false, Direction.LEFT);
-                    Thread.sleep(PING_INTERVAL);
-                    if (!(isReceivedPingLeft() && isReceivedPingRight())) {
-                        logger.error("Philosopher " + philosopherId + " has not received a ping back from his neighbors");
-                        logger.error("Philosopher " + philosopherId + " left the table");
-                        System.exit(0);
+                    long round = System.nanoTime();
+                    for (Direction side : Direction.values()) {
+                        TransportChannel channel = neighborChannel(side);
+                        if (channel == null) {
+                            // Not connected yet or being repaired
+                            continue;
+                        }
+                        if (firstRound || lastSentNanos.get(side.ordinal()) - previousRound <= 0) {
+                            pingSentNanos.set(side.ordinal(), System.nanoTime());
+                            sendPing(channel, false, reverseDirection(side));
+                        }
+                        double phi = getSuspicion(side);
+                        if (phi >= PHI_THRESHOLD || !channel.isConnected()) {
+                            logger.error("Philosopher " + philosopherId + " suspects its " + side.name().toLowerCase() + " neighbor " + getNeighborId(side) + " to have failed (phi=" + String.format("%.1f", phi) + ")");
+                            neighborFailed(side, channel);
+                        }
                     }
-                    setReceivedPingLeft(false);
-                    setReceivedPingRight(false);
+                    previousRound = round;
+                    firstRound = false;
+                    Thread.sleep(PING_INTERVAL);
                 } catch (InterruptedException e) {
                     throw new RuntimeException(e);
                 }
             }
-        }).start();
+        });
+    }
+
+    /**
+     * Record the answer of a neighbor to a ping as a round trip
+     * Answers on other connections of the side and answers without an outstanding ping are ignored
+     *
+     * @param channel The connection the answer was received on
+     * @param side    The side of the neighbor
+     */
+    public void receivedPingAnswer(TransportChannel channel, Direction side) {
+        long sent = pingSentNanos.getAndSet(side.ordinal(), 0);
+        if (sent != 0 && channel == neighborChannel(side)) {
+            roundTrips[side.ordinal()].sample(System.nanoTime() - sent);
+        }
+    }
+
+    /**
+     * Get the round-trip time to a neighbor
+     *
+     * @param side The side of the neighbor
+     * @return The estimator of the round-trip time
+     */
+    public RoundTripEstimator getRoundTrip(Direction side) {
+        return roundTrips[side.ordinal()];
+    }
+
+    /**
+     * Get the time before the end of thinking at which the forks are requested, see {@link Configuration#prefetchMargin()}
+     * The estimated margin is the longer of the round-trip bounds of both neighbors, the time a REQUEST and its REPLY
+     * take on an idle link.
+     *
+     * @param margin The configured margin in milliseconds, -1 to estimate it
+     * @return The margin in nanoseconds, 0 if the forks are requested after thinking
+     */
+    public long getPrefetchMargin(long margin) {
+        if (margin >= 0) {
+            return TimeUnit.MILLISECONDS.toNanos(margin);
+        }
+        return Math.max(roundTrips[0].getBound(), roundTrips[1].getBound());
+    }
+
+    /**
+     * Record a frame of a neighbor as a heartbeat
+     * Frames of other connections on the same side, e.g. the offers of the philosopher behind a failed neighbor, do not count
+     *
+     * @param channel The connection the frame was received on
+     * @param side    The side of the neighbor
+     */
+    public void heartbeat(TransportChannel channel, Direction side) {
+        if (channel == neighborChannel(side)) {
+            failureDetectors[side.ordinal()].heartbeat(System.nanoTime());
+        }
+    }
+
+    /**
+     * Get the queue of the frames written to a neighbor
+     *
+     * @param side The side of the neighbor
+     * @return The outbound queue of the current connection, or null if the neighbor is not connected or the transport
+     * does not queue frames per neighbor
+     */
+    public OutboundQueue getOutboundQueue(Direction side) {
+        TransportChannel channel = neighborChannel(side);
+        return channel == null ? null : channel.getOutboundQueue();
+    }
+
+    /**
+     * Get the suspicion level of a neighbor
+     *
+     * @param side The side of the neighbor
+     * @return The phi value of the neighbor, 0 before its first frame
+     */
+    public double getSuspicion(Direction side) {
+        return failureDetectors[side.ordinal()].phi(System.nanoTime());
+    }
+
+    /**
+     * Check if a neighbor is suspected to have failed
+     *
+     * @param side The side of the neighbor
+     * @return True if the phi value of the neighbor exceeds the threshold
+     */
+    public boolean isSuspected(Direction side) {
+        return getSuspicion(side) >= PHI_THRESHOLD;
     }
 
     /**
      * Send a request to a neighbor
      *
-     * @param receivingSocket The socket of the receiving neighbor
+     * @param receivingChannel The channel to the receiving neighbor
      * @param direction       The direction of the request
      * @param timestamp       The timestamp of the request
      */
-    private synchronized void sendRequest(Socket receivingSocket, Direction direction, int timestamp) {
-        ObjectOutputStream out;
+    void sendRequest(TransportChannel receivingChannel, Direction direction, long timestamp) {
         try {
-            out = new ObjectOutputStream(receivingSocket.getOutputStream());
             Message requestMessage = new Message(MessageType.REQUEST, this.philosopherId, direction, timestamp);
-            out.writeObject(requestMessage);
-            //out.flush(); hotfix for java.net.SocketException: Connection reset
+            send(receivingChannel, requestMessage, false);
             logger.debug("Philosopher " + philosopherId + " sent REQUEST to Philosopher " + reverseDirection(direction) + " with timestamp " + timestamp);
 
         } catch (IOException e) {
@@ -296,16 +565,13 @@ public class Philosopher {
     /**
      * Send a reply to a neighbor
      *
-     * @param receivingSocket The socket of the receiving neighbor
+     * @param receivingChannel The channel to the receiving neighbor
      * @param direction       The direction of the reply
      */
-    public synchronized void sendReply(Socket receivingSocket, Direction direction) {
-        ObjectOutputStream out;
+    public void sendReply(TransportChannel receivingChannel, Direction direction) {
         try {
-            out = new ObjectOutputStream(receivingSocket.getOutputStream());
             Message replyMessage = new Message(MessageType.REPLY, this.philosopherId, direction);
-            out.writeObject(replyMessage);
-            //out.flush(); hotfix for java.net.SocketException: Connection reset
+            send(receivingChannel, replyMessage, false);
             logger.debug("Philosopher " + philosopherId + " sent REPLY to Philosopher " + reverseDirection(direction));
         } catch (IOException e) {
             logger.error("An error occurred while sending a reply", e);
@@ -315,55 +581,106 @@ public class Philosopher {
     /**
      * Send a counter to a neighbor
      *
-     * @param receivingSocket The socket of the receiving neighbor
+     * @param receivingChannel The channel to the receiving neighbor
      * @param direction       The direction of the reply
+     * @param gCounter        The counter or the delta of the counter to send
+     * @return True if the counter was queued for the neighbor
      */
-    public synchronized void sendCounter(Socket receivingSocket, Direction direction, GCounter gCounter) {
-        ObjectOutputStream out;
+    public boolean sendCounter(TransportChannel receivingChannel, Direction direction, GCounter gCounter) {
         try {
-            out = new ObjectOutputStream(receivingSocket.getOutputStream());
             Message counterMessage = new Message(MessageType.COUNTER, this.philosopherId, direction, gCounter);
-            out.writeObject(counterMessage);
-            //out.flush(); hotfix for java.net.SocketException: Connection reset
+            if (!send(receivingChannel, counterMessage, true)) {
+                return false;
+            }
             logger.debug("Philosopher " + philosopherId + " sent COUNTER to Philosopher " + reverseDirection(direction));
-
+            return true;
         } catch (IOException e) {
             logger.error("An error occurred while sending a counter", e);
+            return false;
+        }
+    }
+
+    /**
+     * Send the digest of the counts received from a neighbor, the neighbor compares it with the counts it wrote
+     *
+     * @param receivingChannel The channel to the receiving neighbor
+     * @param direction       The direction of the digest
+     */
+    public void sendDigest(TransportChannel receivingChannel, Direction direction) {
+        try {
+            CounterGossip.Digest acknowledgement = counterGossip.acknowledgement(reverseDirection(direction));
+            Message digestMessage = new Message(MessageType.DIGEST, this.philosopherId, direction, acknowledgement.getSize(), acknowledgement.getDigest());
+            send(receivingChannel, digestMessage, true);
+            logger.debug("Philosopher " + philosopherId + " sent DIGEST to Philosopher " + reverseDirection(direction));
+        } catch (IOException e) {
+            logger.error("An error occurred while sending a digest", e);
         }
     }
 
     /**
      * Update the neighbor G-Counter
+     * Only the entries that changed since the last update are sent, and the interval backs off while the counter is idle
      */
     public void updateNeighborCounter() {
-        new Thread(() -> {
+        ActivityExecutor.execute("counter-" + philosopherId, () -> {
             while (true) {
-                // Send the counter to the neighbors
+                // Send the changed entries of the counter to the neighbors
                 try {
-                    Thread.sleep(UPDATE_INTERVAL);
-                    sendCounter(rightNeighborSocket, Direction.LEFT, localGCounter);
-                    sendCounter(leftNeighborSocket, Direction.RIGHT, localGCounter);
+                    counterGossip.awaitRound();
+                    boolean sentAnything = sendCounterDelta(Direction.RIGHT);
+                    sentAnything |= sendCounterDelta(Direction.LEFT);
+                    counterGossip.roundFinished(sentAnything);
+                    if (counterGossip.antiEntropyDue()) {
+                        awaitNeighbors();
+                        for (Direction side : Direction.values()) {
+                            TransportChannel channel = neighborChannel(side);
+                            if (channel != null) {
+                                sendDigest(channel, reverseDirection(side));
+                            }
+                        }
+                    }
                 } catch (InterruptedException e) {
                     throw new RuntimeException(e);
                 }
             }
-        }).start();
+        });
+    }
+
+    /**
+     * Send the entries of the counter that changed since the last update to a neighbor
+     *
+     * @param neighbor The side of the neighbor
+     * @return True if a delta was sent
+     */
+    private boolean sendCounterDelta(Direction neighbor) {
+        GCounter delta = counterGossip.delta(neighbor);
+        if (delta == null) {
+            return false;
+        }
+        awaitNeighbors();
+        TransportChannel channel = neighborChannel(neighbor);
+        if (channel == null) {
+            // The neighbor failed, the next one gets the full state once connected
+            return false;
+        }
+        if (sendCounter(channel, reverseDirection(neighbor), delta)) {
+            counterGossip.markSent(neighbor, delta);
+            return true;
+        }
+        return false;
     }
 
     /**
      * Send a ping to a neighbor
      *
-     * @param receivingSocket The socket of the receiving neighbor
+     * @param receivingChannel The channel to the receiving neighbor
      * @param hasReceivedPing The hasReceivedPing flag of the sending philosopher
      * @param direction       The direction of the ping
      */
-    public synchronized void sendPing(Socket receivingSocket, boolean hasReceivedPing, Direction direction) {
-        ObjectOutputStream out;
+    public void sendPing(TransportChannel receivingChannel, boolean hasReceivedPing, Direction direction) {
         try {
-            out = new ObjectOutputStream(receivingSocket.getOutputStream());
             Message replyMessage = new Message(MessageType.PING, this.philosopherId, hasReceivedPing, direction);
-            out.writeObject(replyMessage);
-            //out.flush(); hotfix for java.net.SocketException: Connection reset
+            send(receivingChannel, replyMessage, true);
             logger.debug("Philosopher " + philosopherId + " sent PING to Philosopher " + reverseDirection(direction));
 
         } catch (IOException e) {
@@ -371,45 +688,383 @@ public class Philosopher {
         }
     }
 
+    /**
+     * Send a message to a neighbor
+     *
+     * @param receivingChannel The channel to the receiving neighbor
+     * @param message          The message to send
+     * @param droppable        True if the message may be dropped when the channel is congested
+     * @return True if the message was accepted by the channel
+     * @throws IOException If the message cannot be sent or the neighbor is not connected
+     */
+    private boolean send(TransportChannel receivingChannel, Message message, boolean droppable) throws IOException {
+        if (receivingChannel == null) {
+            throw new IOException("Not connected to a neighbor");
+        }
+        boolean sent = receivingChannel.send(message, droppable);
+        if (sent) {
+            // A frame on the link spares the ping of the next round
+            if (receivingChannel == leftNeighborChannel) {
+                lastSentNanos.set(Direction.LEFT.ordinal(), System.nanoTime());
+            }
+            if (receivingChannel == rightNeighborChannel) {
+                lastSentNanos.set(Direction.RIGHT.ordinal(), System.nanoTime());
+            }
+        }
+        return sent;
+    }
+
 
     /**
-     * Connect to a neighbor
+     * Connect to a neighbor and offer the connection with a hello message
+     * On startup this gives up once the neighbor connected to this side first. When repairing the ring, the offer is
+     * repeated until accepted, since the next neighbor rejects it while it still holds the connection to the failed one.
      *
-     * @param neighborAddress The address of a neighbor
+     * @param direction The side of the neighbor
+     * @param receiver  The receiver of the messages of the neighbor
+     * @param repair    True if the neighbor replaces a failed one, the philosopher keeps running if it cannot be reached
      */
-    private void connectToNeighbor(InetSocketAddress neighborAddress, Direction direction) {
-        new Thread(() -> {
-            for (int retryCount = 1; retryCount <= NUM_OF_RETRIES; retryCount++) {
+    private void connectToNeighbor(Direction direction, Transport.ChannelListener receiver, boolean repair) {
+        ActivityExecutor.execute("connect-" + direction.name().toLowerCase() + "-" + philosopherId, () -> {
+            InetSocketAddress neighborAddress;
+            synchronized (neighborLatch) {
+                neighborAddress = neighborAddresses[direction.ordinal()];
+            }
+            long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT;
+            int retryInterval = RETRY_INTERVAL;
+            while (neighborChannel(direction) == null) {
                 try {
-                    if (direction == Direction.LEFT) {
-                        leftNeighborSocket = new Socket(neighborAddress.getAddress(), neighborAddress.getPort());
-                        logger.log(NOTICE, "Connected to neighbor: " + leftNeighborSocket);
-                    } else {
-                        rightNeighborSocket = new Socket(neighborAddress.getAddress(), neighborAddress.getPort());
-                        logger.log(NOTICE, "Connected to neighbor: " + rightNeighborSocket);
+                    TransportChannel channel = transport.connect(neighborAddress, direction.name().toLowerCase() + "-" + philosopherId, receiver, metrics::messageSent);
+                    send(channel, new Message(MessageType.HELLO, philosopherId, reverseDirection(direction), false), false);
+                    logger.debug("Philosopher " + philosopherId + " sent HELLO to neighbor: " + channel);
+                    if (!repair) {
+                        break;
                     }
-                    break;
                 } catch (IOException e) {
-                    logger.warn("Could not connect to neighbor: " + neighborAddress.getAddress() + ":" + neighborAddress.getPort());
-                    if (retryCount < NUM_OF_RETRIES) {
-                        logger.warn("Retrying in " + RETRY_INTERVAL / 1000 + " seconds...");
-                        try {
-                            Thread.sleep(RETRY_INTERVAL);
-                        } catch (InterruptedException ex) {
-                            logger.error("Thread interrupted while connecting to the neighbor", ex);
-                        }
-                    } else {
-                        logger.error("Failed to connect after " + NUM_OF_RETRIES + " retries.");
-                        System.exit(1);
+                    if (neighborChannel(direction) != null) {
+                        break;
                     }
-                } catch (NullPointerException e) {
+                    logger.debug("Could not connect to neighbor: " + neighborAddress.getAddress() + ":" + neighborAddress.getPort());
+                } catch (NullPointerException | UnresolvedAddressException e) {
                     logger.error("Failed to connect to neighbor: " + neighborAddress.getAddress() + ":" + neighborAddress.getPort());
                     logger.error("Invalid hostname or IP");
+                    if (repair) {
+                        return;
+                    }
                     System.exit(1);
                 }
+                if (System.currentTimeMillis() >= deadline) {
+                    logger.error("Failed to connect to neighbor: " + neighborAddress.getAddress() + ":" + neighborAddress.getPort() + " after " + CONNECT_TIMEOUT / 1000 + " seconds.");
+                    if (repair) {
+                        return;
+                    }
+                    System.exit(1);
+                }
+                int delay = retryInterval / 2 + ThreadLocalRandom.current().nextInt(retryInterval / 2 + 1);
+                logger.debug("Retrying to connect to neighbor: " + neighborAddress.getAddress() + ":" + neighborAddress.getPort() + " in " + delay + " ms");
+                retryInterval = Math.min(2 * retryInterval, MAX_RETRY_INTERVAL);
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException ex) {
+                    logger.error("Thread interrupted while connecting to the neighbor", ex);
+                }
+            }
+        });
+    }
+
+    /**
+     * Drop a neighbor that is suspected to have failed and connect to the philosopher behind it
+     * The fork protocol forgets the state shared with the failed neighbor. The philosopher behind it connects to this
+     * side as well once it suspects the same neighbor, the handshake keeps one of the two connections.
+     *
+     * @param side    The side of the failed neighbor
+     * @param channel The connection to the failed neighbor
+     */
+    void neighborFailed(Direction side, TransportChannel channel) {
+        int i = side.ordinal();
+        int failedId = getNeighborId(side);
+        int nextId;
+        synchronized (neighborLatch) {
+            if (neighborChannel(side) != channel) {
+                return;
+            }
+            if (side == Direction.LEFT) {
+                leftNeighborId = 0;
+                leftNeighborChannel = null;
+            } else {
+                rightNeighborId = 0;
+                rightNeighborChannel = null;
+            }
+            neighborReady[i] = false;
+            pendingReady[i] = false;
+            long lastHeartbeat = failureDetectors[i].getLastHeartbeatNanos();
+            failedNanos[i] = lastHeartbeat >= 0 ? lastHeartbeat : System.nanoTime();
+            nextId = nextNeighborIds[i];
+            if (nextNeighborAddresses[i] != null) {
+                neighborAddresses[i] = nextNeighborAddresses[i];
             }
+        }
+        channel.close();
+        failureDetectors[i].reset();
+        roundTrips[i].reset();
+        pingSentNanos.set(i, 0);
+        forkProtocol.neighborFailed(side, channel);
+        if (nextId == 0 || receiver == null) {
+            logger.error("Philosopher " + philosopherId + " lost its " + side.name().toLowerCase() + " neighbor " + failedId + " and does not know the philosopher behind it");
+            return;
+        }
+        logger.log(NOTICE, "Philosopher " + philosopherId + " replaces its " + side.name().toLowerCase() + " neighbor " + failedId + " by Philosopher " + nextId);
+        // The philosopher behind the failed neighbor connects to this side as well
+        onFailed.run();
+        connectToNeighbor(side, receiver, true);
+    }
+
+    /**
+     * Receive the hello message of a neighbor that connected to this philosopher
+     * Both neighbors of a pair dial each other, so every side is offered two connections. The connection dialed by
+     * the smaller id is kept and the other one is rejected; in a ring of one philosopher the connection dialed from
+     * the left side is kept. Both ends decide on their own and come to the same result.
+     *
+     * @param channel The connection of the neighbor
+     * @param message The hello message, its direction is the side of the neighbor at this philosopher
+     */
+    public void receiveHello(TransportChannel channel, Message message) {
+        Direction side = message.getDirection();
+        boolean accepted = neighborChannel(side) == null
+                && isPreferred(message.getPhilosopherId(), reverseDirection(side), philosopherId, side);
+        try {
+            // The answer is queued before any other message of this philosopher on the connection
+            send(channel, new Message(MessageType.WELCOME, philosopherId, reverseDirection(side), accepted), false);
+        } catch (IOException e) {
+            logger.error("An error occurred while answering a hello", e);
+            return;
+        }
+        logger.debug("Philosopher " + philosopherId + " " + (accepted ? "accepted" : "rejected") + " the connection of Philosopher " + message.getPhilosopherId() + " " + side);
+        if (accepted) {
+            setNeighborChannel(side, channel, message.getPhilosopherId());
+        }
+    }
+
+    /**
+     * Receive the answer of a neighbor to the hello message of this philosopher
+     * A rejected connection is closed, the neighbor connects to this side instead
+     *
+     * @param channel The connection to the neighbor
+     * @param message The welcome message, its direction is the side of the neighbor at this philosopher
+     */
+    public void receiveWelcome(TransportChannel channel, Message message) {
+        if (message.isAccepted()) {
+            setNeighborChannel(message.getDirection(), channel, message.getPhilosopherId());
+        } else {
+            logger.debug("Philosopher " + philosopherId + " closes the rejected connection to Philosopher " + message.getPhilosopherId() + " " + message.getDirection());
+            channel.close();
+        }
+    }
+
+    /**
+     * Decide which of the two connections offered for a neighbor pair is kept
+     *
+     * @param dialerId     The id of the dialing philosopher
+     * @param dialerSide   The side the connection was dialed from
+     * @param acceptorId   The id of the accepting philosopher
+     * @param acceptorSide The side the connection was accepted on
+     * @return True if the connection is kept
+     */
+    static boolean isPreferred(int dialerId, Direction dialerSide, int acceptorId, Direction acceptorSide) {
+        if (dialerId != acceptorId) {
+            return dialerId < acceptorId;
+        }
+        return dialerSide.ordinal() < acceptorSide.ordinal();
+    }
+
+    /**
+     * Set the channel to a neighbor, once per side until the neighbor fails
+     *
+     * @param side       The side of the neighbor
+     * @param channel    The connection to the neighbor
+     * @param neighborId The id of the neighbor
+     */
+    private void setNeighborChannel(Direction side, TransportChannel channel, int neighborId) {
+        boolean bothConnected;
+        boolean repaired;
+        boolean readyNow = false;
+        synchronized (neighborLatch) {
+            if (neighborChannel(side) != null) {
+                channel.close();
+                return;
+            }
+            if (side == Direction.LEFT) {
+                leftNeighborId = neighborId;
+                leftNeighborChannel = channel;
+            } else {
+                rightNeighborId = neighborId;
+                rightNeighborChannel = channel;
+            }
+            forkProtocol.neighborConnected(side, neighborId, channel);
+            neighborLatch.countDown();
+            repaired = connected;
+            bothConnected = leftNeighborChannel != null && rightNeighborChannel != null;
+            if (repaired) {
+                // The new neighbor may only use the shared fork after a meal that started before the repair
+                if (inCriticalSection()) {
+                    pendingReady[side.ordinal()] = true;
+                } else {
+                    readyNow = true;
+                }
+            }
+        }
+        logger.log(NOTICE, "Connected to neighbor: " + channel);
+        if (bothConnected) {
+            // Tell both neighbors who sits behind this philosopher
+            sendNeighbors();
+        }
+        if (repaired) {
+            counterGossip.neighborChanged(side);
+            if (readyNow) {
+                sendReady(channel, reverseDirection(side));
+            }
+        } else if (bothConnected) {
             logger.log(NOTICE, "Connected to neighbors");
-        }).start();
+            onConnected.run();
+            sendReady(leftNeighborChannel, Direction.RIGHT);
+            sendReady(rightNeighborChannel, Direction.LEFT);
+            boolean nowReady;
+            synchronized (neighborLatch) {
+                connected = true;
+                nowReady = becomeReady();
+            }
+            if (nowReady) {
+                onReady.run();
+            }
+        }
+    }
+
+    /**
+     * Tell a neighbor that this philosopher is connected to both of its neighbors
+     *
+     * @param receivingChannel The channel to the receiving neighbor
+     * @param direction       The side of this philosopher at the neighbor
+     */
+    private void sendReady(TransportChannel receivingChannel, Direction direction) {
+        try {
+            send(receivingChannel, new Message(MessageType.READY, philosopherId, direction), false);
+            logger.debug("Philosopher " + philosopherId + " sent READY to Philosopher " + reverseDirection(direction));
+        } catch (IOException e) {
+            logger.error("An error occurred while sending a ready", e);
+        }
+    }
+
+    /**
+     * Send READY to the neighbors that took their seats while this philosopher was eating
+     */
+    private void sendPendingReady() {
+        for (Direction side : Direction.values()) {
+            TransportChannel channel;
+            synchronized (neighborLatch) {
+                if (!pendingReady[side.ordinal()]) {
+                    continue;
+                }
+                pendingReady[side.ordinal()] = false;
+                channel = neighborChannel(side);
+            }
+            sendReady(channel, reverseDirection(side));
+        }
+    }
+
+    /**
+     * Receive the message of a neighbor that it is connected to both of its neighbors
+     * The message can arrive before the own second connection is established. After a repair of the ring it is the
+     * message of the new neighbor that it may use the shared fork.
+     *
+     * @param message The ready message, its direction is the side of the neighbor at this philosopher
+     */
+    public void receiveReady(Message message) {
+        logger.debug("Philosopher " + philosopherId + " received READY from Philosopher " + message.getPhilosopherId() + " " + message.getDirection());
+        int i = message.getDirection().ordinal();
+        boolean nowReady;
+        long failed;
+        synchronized (neighborLatch) {
+            neighborReady[i] = true;
+            failed = failedNanos[i];
+            failedNanos[i] = 0;
+            nowReady = becomeReady();
+        }
+        forkProtocol.neighborReady(message.getDirection());
+        if (failed != 0) {
+            long recovery = System.nanoTime() - failed;
+            metrics.getRingRepair().observeNanos(recovery);
+            logger.log(NOTICE, "Philosopher " + philosopherId + " is seated next to Philosopher " + message.getPhilosopherId() + " "
+                    + TimeUnit.NANOSECONDS.toMillis(recovery) + " ms after the last frame of its failed neighbor");
+        }
+        if (nowReady) {
+            onReady.run();
+        }
+    }
+
+    /**
+     * Tell each neighbor the id and address of the neighbor on the other side of this philosopher
+     * A neighbor connects to that philosopher if this one fails, see {@link #neighborFailed}
+     */
+    private void sendNeighbors() {
+        for (Direction side : Direction.values()) {
+            Direction other = reverseDirection(side);
+            TransportChannel channel;
+            int otherId;
+            InetSocketAddress otherAddress;
+            synchronized (neighborLatch) {
+                channel = neighborChannel(side);
+                otherId = getNeighborId(other);
+                otherAddress = neighborAddresses[other.ordinal()];
+            }
+            if (channel == null || otherId == 0) {
+                continue;
+            }
+            try {
+                // The direction is the side of this philosopher at the neighbor, which is also the side of the other neighbor behind it
+                send(channel, new Message(MessageType.NEIGHBOR, philosopherId, other, otherId, otherAddress.getHostString(), otherAddress.getPort()), false);
+                logger.debug("Philosopher " + philosopherId + " sent NEIGHBOR " + otherId + " to Philosopher " + getNeighborId(side));
+            } catch (IOException e) {
+                logger.error("An error occurred while sending a neighbor", e);
+            }
+        }
+    }
+
+    /**
+     * Receive the id and address of the philosopher behind a neighbor
+     *
+     * @param message The neighbor message, its direction is the side of the neighbor at this philosopher
+     */
+    public void receiveNeighbor(Message message) {
+        logger.debug("Philosopher " + philosopherId + " learned that Philosopher " + message.getNeighborId() + " sits behind Philosopher " + message.getPhilosopherId() + " " + message.getDirection());
+        InetSocketAddress address = new InetSocketAddress(message.getNeighborHost(), message.getNeighborPort());
+        synchronized (neighborLatch) {
+            nextNeighborIds[message.getDirection().ordinal()] = message.getNeighborId();
+            nextNeighborAddresses[message.getDirection().ordinal()] = address;
+        }
+    }
+
+    /**
+     * Check if the philosopher just became ready, the neighbor latch must be held
+     *
+     * @return True the first time both neighbors and the philosopher itself are connected
+     */
+    private boolean becomeReady() {
+        if (ready || !connected || !neighborReady[0] || !neighborReady[1]) {
+            return false;
+        }
+        ready = true;
+        logger.log(NOTICE, "Philosopher " + philosopherId + " and its neighbors are ready");
+        return true;
+    }
+
+    /**
+     * Get the channel to a neighbor without waiting
+     *
+     * @param side The side of the neighbor
+     * @return The channel, or null if the neighbor is not connected yet
+     */
+    private TransportChannel neighborChannel(Direction side) {
+        return side == Direction.LEFT ? leftNeighborChannel : rightNeighborChannel;
     }
 
 
@@ -418,7 +1073,7 @@ public class Philosopher {
      *
      * @return True if the philosopher is in the critical section, false otherwise
      */
-    public synchronized boolean inCriticalSection() {
+    public boolean inCriticalSection() {
         return inCriticalSection;
     }
 
@@ -427,7 +1082,7 @@ public class Philosopher {
      *
      * @param inCriticalSection True if the philosopher is in the critical section, false otherwise
      */
-    private synchronized void setCriticalSection(boolean inCriticalSection) {
+    void setCriticalSection(boolean inCriticalSection) {
         this.inCriticalSection = inCriticalSection;
     }
 
@@ -436,7 +1091,7 @@ public class Philosopher {
      *
      * @return True if the philosopher is requesting forks, false otherwise
      */
-    public synchronized boolean isRequesting() {
+    public boolean isRequesting() {
         return isRequesting;
     }
 
@@ -445,23 +1100,23 @@ public class Philosopher {
      *
      * @param requesting True if the philosopher is requesting forks, false otherwise
      */
-    public synchronized void setRequesting(boolean requesting) {
+    public void setRequesting(boolean requesting) {
         isRequesting = requesting;
     }
 
-    public synchronized boolean isReceivedPingLeft() {
+    public boolean isReceivedPingLeft() {
         return receivedPingLeft;
     }
 
-    public synchronized void setReceivedPingLeft(boolean receivedPingLeft) {
+    public void setReceivedPingLeft(boolean receivedPingLeft) {
         this.receivedPingLeft = receivedPingLeft;
     }
 
-    public synchronized boolean isReceivedPingRight() {
+    public boolean isReceivedPingRight() {
         return receivedPingRight;
     }
 
-    public synchronized void setReceivedPingRight(boolean receivedPingRight) {
+    public void setReceivedPingRight(boolean receivedPingRight) {
         this.receivedPingRight = receivedPingRight;
     }
 
@@ -473,43 +1128,97 @@ public class Philosopher {
         return philosopherId;
     }
 
-    public Socket getLeftNeighborSocket() {
-        return leftNeighborSocket;
+    /**
+     * Get the id of a neighbor
+     *
+     * @param side The side of the neighbor
+     * @return The id of the neighbor, or 0 if the neighbor is not connected yet
+     */
+    public int getNeighborId(Direction side) {
+        return side == Direction.LEFT ? leftNeighborId : rightNeighborId;
     }
 
-    public Socket getRightNeighborSocket() {
-        return rightNeighborSocket;
+    /**
+     * Get the longest time the philosopher eats
+     *
+     * @return The maximum eating time in milliseconds
+     */
+    public int getMaxEatTime() {
+        return eatInterval[0];
     }
 
-    public BlockingQueue<DeferredRequest> getDeferredRequests() {
-        return deferredRequests;
+    /**
+     * Get the channel to the left neighbor, waiting until both neighbors are connected
+     *
+     * @return The channel to the left neighbor
+     */
+    public TransportChannel getLeftNeighborChannel() {
+        awaitNeighbors();
+        return leftNeighborChannel;
     }
 
-    public void setHasLeftFork(boolean hasLeftFork) {
-        this.hasLeftFork = hasLeftFork;
+    /**
+     * Get the channel to the right neighbor, waiting until both neighbors are connected
+     *
+     * @return The channel to the right neighbor
+     */
+    public TransportChannel getRightNeighborChannel() {
+        awaitNeighbors();
+        return rightNeighborChannel;
     }
 
-    public void setHasRightFork(boolean hasRightFork) {
-        this.hasRightFork = hasRightFork;
+    /**
+     * Wait until the channels to both neighbors are connected
+     * Incoming requests can arrive before the own outgoing connections are established
+     */
+    void awaitNeighbors() {
+        try {
+            neighborLatch.await();
+        } catch (InterruptedException e) {
+            logger.error("Thread interrupted while waiting for the neighbors", e);
+            Thread.currentThread().interrupt();
+        }
     }
 
     public boolean hasLeftFork() {
-        return hasLeftFork;
+        return forkProtocol.hasFork(Direction.LEFT);
     }
 
     public boolean hasRightFork() {
-        return hasRightFork;
+        return forkProtocol.hasFork(Direction.RIGHT);
+    }
+
+    /**
+     * Get the protocol that decides when the philosopher may use the forks
+     *
+     * @return The fork protocol
+     */
+    public ForkProtocol getForkProtocol() {
+        return forkProtocol;
+    }
+
+    /**
+     * Get the lock that runs work in the critical section of the philosopher
+     *
+     * @return The distributed mutex of the philosopher
+     */
+    public DistributedMutex getMutex() {
+        return mutex;
     }
 
     public GCounter getLocalGCounter() {
         return localGCounter;
     }
 
-    public synchronized boolean hasReply() {
-        return hasReply;
+    public CounterGossip getCounterGossip() {
+        return counterGossip;
+    }
+
+    public Transport getTransport() {
+        return transport;
     }
 
-    public synchronized void setHasReply(boolean hasReply) {
-        this.hasReply = hasReply;
+    public PhilosopherMetrics getMetrics() {
+        return metrics;
     }
 }
\ No newline at end of file
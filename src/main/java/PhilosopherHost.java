@@ -0,0 +1,235 @@
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A host runs a contiguous range of the philosophers of a ring in one process
+ * <p>
+ * The philosophers of a ring of size n have the ids 1 to n, the left neighbor of a philosopher is the previous id and
+ * the right neighbor the next id. Every philosopher takes the seat {@link #seatAddress(int)} of its id on the
+ * {@link HostTransport} of its host, so the frames between hosts are routed by the id of the receiving philosopher.
+ * Only the first and the last philosopher of the range have neighbors on other hosts.
+ * <p>
+ * The seats are grouped into banks of {@link #BANK_SIZE} ports, every bank on its own loopback address, so the number
+ * of philosophers of a host is not limited by the ports. A host runs its philosophers on virtual threads by default,
+ * see {@link #main}.
+ */
+public class PhilosopherHost {
+    /**
+     * The logger for the PhilosopherHost class
+     */
+    private static final Logger logger = LogManager.getLogger(PhilosopherHost.class);
+    private final Level NOTICE = Level.forName("NOTICE", 350);
+    /**
+     * The first port of the seats of a bank
+     */
+    private static final int FIRST_SEAT = 49152;
+    /**
+     * The number of seats of a bank, one per dynamic port
+     */
+    public static final int BANK_SIZE = 65536 - FIRST_SEAT;
+    /**
+     * The address of the first bank, 127.0.0.1, the banks after it take the next loopback addresses
+     */
+    private static final int FIRST_BANK = 0x7F000001;
+    /**
+     * The ids of the first and the last philosopher of the host
+     */
+    private final int firstId;
+    private final int lastId;
+    /**
+     * The number of philosophers of the ring
+     */
+    private final int ringSize;
+    /**
+     * The transport of the philosophers of the host
+     */
+    private final HostTransport transport;
+    /**
+     * The philosophers of the host and their servers
+     */
+    private final List<Philosopher> philosophers = new ArrayList<>();
+    private final List<Server> servers = new ArrayList<>();
+
+    /**
+     * Create a new host
+     *
+     * @param port      The port of the host
+     * @param firstId   The id of the first philosopher of the host
+     * @param lastId    The id of the last philosopher of the host
+     * @param ringSize  The number of philosophers of the ring
+     * @param leftHost  The host of the left neighbor of the first philosopher, null if the host runs the whole ring
+     * @param rightHost The host of the right neighbor of the last philosopher, null if the host runs the whole ring
+     */
+    public PhilosopherHost(int port, int firstId, int lastId, int ringSize, InetSocketAddress leftHost, InetSocketAddress rightHost) {
+        if (port < 1 || port > 65535) {
+            logger.error("Invalid port number: " + port);
+            throw new IllegalArgumentException("Port is out of the valid range of 1-65535");
+        }
+        if (ringSize < 2 || firstId < 1 || lastId < firstId || lastId > ringSize) {
+            logger.error("Invalid range of philosophers: " + firstId + "-" + lastId + " of " + ringSize);
+            throw new IllegalArgumentException("Philosophers must be a range of the ids 1-" + ringSize);
+        }
+        boolean wholeRing = firstId == 1 && lastId == ringSize;
+        int size = lastId - firstId + 1;
+        if (!wholeRing && (leftHost == null || rightHost == null)) {
+            logger.error("Neighbor host is null");
+            throw new IllegalArgumentException("Neighbor hosts cannot be null unless the host runs the whole ring");
+        }
+        this.firstId = firstId;
+        this.lastId = lastId;
+        this.ringSize = ringSize;
+        List<InetSocketAddress> localSeats = new ArrayList<>(size);
+        for (int id = firstId; id <= lastId; id++) {
+            localSeats.add(seatAddress(id));
+        }
+        Map<InetSocketAddress, InetSocketAddress> remoteSeats = new HashMap<>();
+        if (!wholeRing) {
+            remoteSeats.put(seatAddress(leftId(firstId)), leftHost);
+            remoteSeats.put(seatAddress(rightId(lastId)), rightHost);
+        }
+        this.transport = new HostTransport(Configuration.codec(), port, localSeats, remoteSeats);
+    }
+
+    /**
+     * Get the seat of a philosopher
+     *
+     * @param philosopherId The id of the philosopher
+     * @return The address of the seat of the philosopher, a port of the loopback address of its bank
+     */
+    public static InetSocketAddress seatAddress(int philosopherId) {
+        int bank = (philosopherId - 1) / BANK_SIZE;
+        int port = FIRST_SEAT + (philosopherId - 1) % BANK_SIZE;
+        try {
+            // An address built from its bytes is never looked up
+            return new InetSocketAddress(InetAddress.getByAddress(ByteBuffer.allocate(Integer.BYTES).putInt(FIRST_BANK + bank).array()), port);
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException("Invalid seat address of philosopher " + philosopherId, e);
+        }
+    }
+
+    /**
+     * Get the id of the left neighbor of a philosopher
+     */
+    private int leftId(int philosopherId) {
+        return philosopherId == 1 ? ringSize : philosopherId - 1;
+    }
+
+    /**
+     * Get the id of the right neighbor of a philosopher
+     */
+    private int rightId(int philosopherId) {
+        return philosopherId == ringSize ? 1 : philosopherId + 1;
+    }
+
+    /**
+     * Seat the philosophers of the host, connect them to their neighbors and accept the other hosts
+     *
+     * @throws IOException If the port of the host cannot be bound
+     */
+    public void open() throws IOException {
+        for (int id = firstId; id <= lastId; id++) {
+            InetSocketAddress leftSeat = seatAddress(leftId(id));
+            InetSocketAddress rightSeat = seatAddress(rightId(id));
+            Philosopher philosopher = new Philosopher(id, leftSeat.getHostString(), leftSeat.getPort(), rightSeat.getHostString(), rightSeat.getPort(), transport);
+            philosopher.start();
+            philosophers.add(philosopher);
+            servers.add(new Server(philosopher, seatAddress(id)));
+        }
+        transport.start();
+    }
+
+    /**
+     * Wait until every philosopher of the host and its neighbors are connected, see {@link Philosopher#receiveReady}
+     *
+     * @throws InterruptedException If the thread is interrupted while waiting
+     */
+    public void awaitConnected() throws InterruptedException {
+        for (Server server : servers) {
+            server.getServerLatch().await();
+        }
+    }
+
+    /**
+     * Start the game, counter and ping loops of every philosopher of the host
+     */
+    public void start() {
+        for (Philosopher philosopher : philosophers) {
+            new Game(philosopher, ringSize).start();
+            philosopher.updateNeighborCounter();
+            philosopher.requestPing();
+        }
+        logger.log(NOTICE, "Started philosophers " + firstId + "-" + lastId + " of " + ringSize);
+    }
+
+    /**
+     * Get the philosophers of the host
+     *
+     * @return The philosophers in the order of their ids
+     */
+    public List<Philosopher> getPhilosophers() {
+        return Collections.unmodifiableList(philosophers);
+    }
+
+    /**
+     * Run a host, on virtual threads unless -Dddpp.threads is set, since every philosopher has several activities
+     */
+    public static void main(String[] args) {
+        if (args.length != 4 && args.length != 6) {
+            System.out.println("Usage: java PhilosopherHost <host_port> <first_id> <last_id> <ring_size> [<left_host>:<port> <right_host>:<port>]");
+            System.exit(1);
+        }
+        if (System.getProperty(Configuration.THREADS) == null) {
+            System.setProperty(Configuration.THREADS, "virtual");
+        }
+        if (!ActivityExecutor.isVirtual()) {
+            logger.warn("Philosophers run on platform threads, a large host needs several threads per philosopher");
+        }
+        InetSocketAddress leftHost = null;
+        InetSocketAddress rightHost = null;
+        if (args.length == 6) {
+            leftHost = parseHost(args[4]);
+            rightHost = parseHost(args[5]);
+        }
+        PhilosopherHost host = new PhilosopherHost(Integer.parseInt(args[0]), Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]), leftHost, rightHost);
+        if (Configuration.metricsPort() > 0) {
+            try {
+                MetricsServer.start(Configuration.metricsPort(), MetricsRegistry.getDefault());
+            } catch (IOException e) {
+                logger.error("Error while starting the metrics server", e);
+            }
+        }
+        try {
+            host.open();
+            host.awaitConnected();
+        } catch (IOException e) {
+            logger.error("Error while starting the host", e);
+            System.exit(1);
+        } catch (InterruptedException e) {
+            logger.error("Error while waiting for the neighbors", e);
+        }
+        host.start();
+    }
+
+    /**
+     * Parse a host given as host:port
+     */
+    private static InetSocketAddress parseHost(String host) {
+        int separator = host.lastIndexOf(':');
+        if (separator <= 0) {
+            throw new IllegalArgumentException("Host must be given as host:port: " + host);
+        }
+        return new InetSocketAddress(host.substring(0, separator), Integer.parseInt(host.substring(separator + 1)));
+    }
+}
@@ -0,0 +1,217 @@
+import java.util.function.ToLongFunction;
+
+/**
+ * The metrics of a philosopher, labelled with its id
+ */
+public class PhilosopherMetrics {
+    /**
+     * The time from requesting the forks until entering the critical section
+     */
+    private final MetricsRegistry.Histogram forkAcquisition;
+    /**
+     * The durations of eating and thinking
+     */
+    private final MetricsRegistry.Histogram eat;
+    private final MetricsRegistry.Histogram think;
+    /**
+     * The time from the last frame of a failed neighbor until the philosopher behind it is ready
+     */
+    private final MetricsRegistry.Histogram ringRepair;
+    /**
+     * The calls of the {@link DistributedMutex} of the philosopher: the time to acquire it, the time it was held and
+     * the calls that gave up
+     */
+    private final MetricsRegistry.Histogram mutexAcquire;
+    private final MetricsRegistry.Histogram mutexHold;
+    private final MetricsRegistry.Counter mutexTimeouts;
+    /**
+     * The number of tasks run per acquisition of the forks by the {@link CriticalSectionBatcher} of the philosopher
+     */
+    private final MetricsRegistry.Histogram batchSize;
+    /**
+     * The time the forks requested before the end of thinking were held until the thinking ended
+     */
+    private final MetricsRegistry.Histogram prefetchSlack;
+    /**
+     * The times from the intended start of a meal of the {@link LoadGenerator} until it started and until it ended
+     */
+    private final MetricsRegistry.Histogram loadStartDelay;
+    private final MetricsRegistry.Histogram loadResponse;
+    /**
+     * The waits of the message handlers for the lock of their stripe while another handler held it, indexed by the
+     * direction of the message
+     */
+    private final MetricsRegistry.Histogram[] forkDispatchWait = new MetricsRegistry.Histogram[Direction.values().length];
+    private final MetricsRegistry.Histogram[] gossipDispatchWait = new MetricsRegistry.Histogram[Direction.values().length];
+    /**
+     * The messages and bytes sent and received, indexed by message type and direction
+     */
+    private final MetricsRegistry.Counter[][] messagesSent;
+    private final MetricsRegistry.Counter[][] bytesSent;
+    private final MetricsRegistry.Counter[][] messagesReceived;
+    private final MetricsRegistry.Counter[][] bytesReceived;
+    /**
+     * The registry of the metrics and the id label of the philosopher, kept for the gauges
+     */
+    private final MetricsRegistry registry;
+    private final String id;
+
+    /**
+     * Register the histograms and counters of a philosopher, the gauges follow once it is constructed, see
+     * {@link #registerGauges}
+     *
+     * @param registry      The registry of the metrics
+     * @param philosopherId The id of the philosopher
+     */
+    public PhilosopherMetrics(MetricsRegistry registry, int philosopherId) {
+        this.registry = registry;
+        this.id = String.valueOf(philosopherId);
+        forkAcquisition = registry.histogram("ddpp_fork_acquisition_seconds", "Time from requesting the forks until entering the critical section", MetricsRegistry.LATENCY_BUCKETS, "philosopher", id);
+        eat = registry.histogram("ddpp_eat_seconds", "Time spent eating", MetricsRegistry.LATENCY_BUCKETS, "philosopher", id);
+        think = registry.histogram("ddpp_think_seconds", "Time spent thinking", MetricsRegistry.LATENCY_BUCKETS, "philosopher", id);
+        ringRepair = registry.histogram("ddpp_ring_repair_seconds", "Time from the last frame of a failed neighbor until the next neighbor is ready", MetricsRegistry.LATENCY_BUCKETS, "philosopher", id);
+        mutexAcquire = registry.histogram("ddpp_mutex_acquire_seconds", "Time from asking for the distributed mutex until holding it", MetricsRegistry.LATENCY_BUCKETS, "philosopher", id);
+        mutexHold = registry.histogram("ddpp_mutex_hold_seconds", "Time the distributed mutex was held", MetricsRegistry.LATENCY_BUCKETS, "philosopher", id);
+        mutexTimeouts = registry.counter("ddpp_mutex_timeouts_total", "Calls of tryLock that gave up", "philosopher", id);
+        batchSize = registry.histogram("ddpp_batch_size", "Tasks run per acquisition of the forks", MetricsRegistry.SIZE_BUCKETS, "philosopher", id);
+        prefetchSlack = registry.histogram("ddpp_prefetch_slack_seconds", "Time the prefetched forks were held until the thinking ended", MetricsRegistry.LATENCY_BUCKETS, "philosopher", id);
+        loadStartDelay = registry.histogram("ddpp_load_start_delay_seconds", "Time from the intended start of a generated meal until it started", MetricsRegistry.LATENCY_BUCKETS, "philosopher", id);
+        loadResponse = registry.histogram("ddpp_load_response_seconds", "Time from the intended start of a generated meal until it ended", MetricsRegistry.LATENCY_BUCKETS, "philosopher", id);
+        messagesSent = counters(registry, "ddpp_messages_sent_total", "Messages sent to the neighbors", id);
+        bytesSent = counters(registry, "ddpp_bytes_sent_total", "Bytes of the frames sent to the neighbors", id);
+        messagesReceived = counters(registry, "ddpp_messages_received_total", "Messages received from the neighbors", id);
+        bytesReceived = counters(registry, "ddpp_bytes_received_total", "Bytes of the frames received from the neighbors", id);
+        for (Direction direction : Direction.values()) {
+            forkDispatchWait[direction.ordinal()] = registry.histogram("ddpp_dispatch_wait_seconds", "Time a message handler waited for the lock of its stripe", MetricsRegistry.LATENCY_BUCKETS, "philosopher", id, "stripe", "fork", "direction", direction.name());
+            gossipDispatchWait[direction.ordinal()] = registry.histogram("ddpp_dispatch_wait_seconds", "Time a message handler waited for the lock of its stripe", MetricsRegistry.LATENCY_BUCKETS, "philosopher", id, "stripe", "gossip", "direction", direction.name());
+        }
+    }
+
+    /**
+     * Register the gauges that read the state of a philosopher whenever the registry is scraped
+     *
+     * @param philosopher The constructed philosopher
+     */
+    public void registerGauges(Philosopher philosopher) {
+        registry.gauge("ddpp_deferred_requests", "Requests of neighbors waiting for a reply", () -> philosopher.getForkProtocol().deferredRequests(), "philosopher", id);
+        for (Direction side : Direction.values()) {
+            registry.gauge("ddpp_neighbor_suspicion", "Phi value of the failure detector of a neighbor", () -> philosopher.getSuspicion(side), "philosopher", id, "side", side.name());
+            registry.gauge("ddpp_neighbor_rtt_seconds", "Smoothed round-trip time of the pings to a neighbor", () -> philosopher.getRoundTrip(side).getSmoothed() / 1e9, "philosopher", id, "side", side.name());
+            registry.gauge("ddpp_outbound_queue_depth", "Frames queued for a neighbor", () -> outbound(philosopher, side, OutboundQueue::getDepth), "philosopher", id, "side", side.name());
+            registry.gauge("ddpp_outbound_queue_max_depth", "Largest number of frames queued for a neighbor at the same time", () -> outbound(philosopher, side, OutboundQueue::getMaxDepth), "philosopher", id, "side", side.name());
+            registry.counter("ddpp_outbound_dropped_total", "Frames for a neighbor discarded by the overflow policy", () -> outbound(philosopher, side, OutboundQueue::getDropped), "philosopher", id, "side", side.name());
+            registry.counter("ddpp_outbound_batches_total", "Gathering writes of the frames for a neighbor", () -> outbound(philosopher, side, OutboundQueue::getBatches), "philosopher", id, "side", side.name());
+        }
+        registry.gauge("ddpp_meals_local", "Meals eaten by the philosopher", () -> philosopher.getLocalGCounter().get(philosopher.getPhilosopherId()), "philosopher", id);
+        registry.gauge("ddpp_meals_global", "Meals eaten by all philosophers as known to the philosopher", () -> philosopher.getLocalGCounter().query(), "philosopher", id);
+    }
+
+    /**
+     * Register the counters of a metric for every message type and direction
+     */
+    private static MetricsRegistry.Counter[][] counters(MetricsRegistry registry, String name, String help, String id) {
+        MetricsRegistry.Counter[][] counters = new MetricsRegistry.Counter[MessageType.values().length][Direction.values().length];
+        for (MessageType type : MessageType.values()) {
+            for (Direction direction : Direction.values()) {
+                counters[type.ordinal()][direction.ordinal()] = registry.counter(name, help, "philosopher", id, "type", type.name(), "direction", direction.name());
+            }
+        }
+        return counters;
+    }
+
+    /**
+     * Read a value of the outbound queue of the current connection to a neighbor
+     * The values start over with every connection, and are 0 while the neighbor is not connected or its transport
+     * does not queue frames per neighbor
+     */
+    private static double outbound(Philosopher philosopher, Direction side, ToLongFunction<OutboundQueue> value) {
+        OutboundQueue queue = philosopher.getOutboundQueue(side);
+        return queue == null ? 0 : value.applyAsLong(queue);
+    }
+
+    /**
+     * Record a sent message
+     *
+     * @param message   The sent message
+     * @param frameSize The size of the frame in bytes, 0 if the transport does not encode messages
+     */
+    public void messageSent(Message message, int frameSize) {
+        messagesSent[message.getType().ordinal()][message.getDirection().ordinal()].increment();
+        bytesSent[message.getType().ordinal()][message.getDirection().ordinal()].add(frameSize);
+    }
+
+    /**
+     * Record a received message
+     *
+     * @param message   The received message
+     * @param frameSize The size of the frame in bytes, 0 if the transport does not encode messages
+     */
+    public void messageReceived(Message message, int frameSize) {
+        messagesReceived[message.getType().ordinal()][message.getDirection().ordinal()].increment();
+        bytesReceived[message.getType().ordinal()][message.getDirection().ordinal()].add(frameSize);
+    }
+
+    public MetricsRegistry.Histogram getForkAcquisition() {
+        return forkAcquisition;
+    }
+
+    public MetricsRegistry.Histogram getEat() {
+        return eat;
+    }
+
+    public MetricsRegistry.Histogram getThink() {
+        return think;
+    }
+
+    public MetricsRegistry.Histogram getRingRepair() {
+        return ringRepair;
+    }
+
+    public MetricsRegistry.Histogram getMutexAcquire() {
+        return mutexAcquire;
+    }
+
+    public MetricsRegistry.Histogram getMutexHold() {
+        return mutexHold;
+    }
+
+    public MetricsRegistry.Counter getMutexTimeouts() {
+        return mutexTimeouts;
+    }
+
+    public MetricsRegistry.Histogram getBatchSize() {
+        return batchSize;
+    }
+
+    public MetricsRegistry.Histogram getPrefetchSlack() {
+        return prefetchSlack;
+    }
+
+    /**
+     * Get the waits of the REQUEST and REPLY handlers for the fork lock
+     *
+     * @param direction The direction of the messages
+     * @return The histogram of the waits
+     */
+    public MetricsRegistry.Histogram getForkDispatchWait(Direction direction) {
+        return forkDispatchWait[direction.ordinal()];
+    }
+
+    /**
+     * Get the waits of the COUNTER and DIGEST handlers for the gossip lock of a neighbor
+     *
+     * @param direction The direction of the messages
+     * @return The histogram of the waits
+     */
+    public MetricsRegistry.Histogram getGossipDispatchWait(Direction direction) {
+        return gossipDispatchWait[direction.ordinal()];
+    }
+
+    public MetricsRegistry.Histogram getLoadStartDelay() {
+        return loadStartDelay;
+    }
+
+    public MetricsRegistry.Histogram getLoadResponse() {
+        return loadResponse;
+    }
+}
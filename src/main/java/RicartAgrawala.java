@@ -0,0 +1,383 @@
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The Ricart-Agrawala protocol with the Roucairol-Carvalho optimization
+ * <p>
+ * A hungry philosopher sends a REQUEST with its Lamport timestamp to both neighbors and eats once both replied. A
+ * neighbor defers its REPLY while it eats or while its own request comes first in the (timestamp, id) order. Once both
+ * neighbors replied, the philosopher eats again without asking until it answers a request of a neighbor.
+ * <p>
+ * A timed request that gives up keeps waiting for the outstanding replies in the background and releases the forks
+ * as soon as both arrived, unless the philosopher asks again before and resumes the request.
+ */
+public class RicartAgrawala implements ForkProtocol {
+    /**
+     * The name of the protocol
+     */
+    public static final String NAME = "ricart-agrawala";
+    /**
+     * The logger for the RicartAgrawala class
+     */
+    private static final Logger logger = LogManager.getLogger(RicartAgrawala.class);
+    private final Level NOTICE = Level.forName("NOTICE", 350);
+    /**
+     * The philosopher the protocol belongs to
+     */
+    private final Philosopher philosopher;
+    /**
+     * The queue of deferred requests
+     */
+    private final BlockingQueue<DeferredRequest> deferredRequests = new LinkedBlockingQueue<>(2);
+    /**
+     * The replies of the neighbors to the current request, indexed by the ordinal of the side
+     */
+    private final boolean[] granted = new boolean[2];
+    /**
+     * The lock that guards the replies and the condition that is signalled when a reply arrives
+     */
+    private final ReentrantLock forkLock = new ReentrantLock();
+    private final Condition forksChanged = forkLock.newCondition();
+    /**
+     * The flag to indicate that a timed request gave up waiting and its forks are released on arrival
+     */
+    private boolean abandonedRequest = false;
+    /**
+     * The lock that makes the request state changes of the philosopher atomic with the decision on a request of a neighbor
+     * Without it a request could be deferred right after the deferred requests were answered, or answered while the
+     * philosopher is entering the critical section
+     */
+    private final ReentrantLock requestLock = new ReentrantLock();
+    /**
+     * The connections to the neighbors, indexed by the ordinal of the side and guarded by the request lock
+     */
+    private final TransportChannel[] channels = new TransportChannel[2];
+    /**
+     * The channels the current request was sent to, indexed by the ordinal of the side and guarded by the request lock
+     */
+    private final TransportChannel[] requestedChannels = new TransportChannel[2];
+    /**
+     * The timestamp of the current request of the philosopher
+     */
+    private volatile long requestTimestamp;
+    /**
+     * The flag to indicate that a neighbor may hold a fork, so the next meal has to ask for the forks
+     */
+    private volatile boolean hasReply = true;
+
+    /**
+     * Create the protocol of a philosopher
+     *
+     * @param philosopher The philosopher the protocol belongs to
+     */
+    public RicartAgrawala(Philosopher philosopher) {
+        this.philosopher = philosopher;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean acquire(long timeoutNanos) {
+        long start = System.nanoTime();
+        forkLock.lock();
+        try {
+            if (abandonedRequest) {
+                // Resume the pending request instead of sending a new one
+                abandonedRequest = false;
+                if (!awaitForks(timeoutNanos)) {
+                    abandonedRequest = true;
+                    return false;
+                }
+                philosopher.getMetrics().getForkAcquisition().observeNanos(System.nanoTime() - start);
+                enterCriticalSection();
+                return true;
+            }
+        } finally {
+            forkLock.unlock();
+        }
+        LamportClock lamportClock = philosopher.getLamportClock();
+        // On request, update the Lamport timestamp
+        lamportClock.update();
+        // Roucairol-Carvalho optimization
+        // Check if the philosopher has received a reply from both neighbors
+        // Once site Pi has received a reply message from site Pj, site Pi may enter
+        // the critical section multiple times without receiving permission from Pj on
+        // subsequent attempts up to the moment when Pi has sent a reply message to Pj.
+        long timestamp;
+        requestLock.lock();
+        try {
+            if (!hasReply) {
+                philosopher.getMetrics().getForkAcquisition().observeNanos(System.nanoTime() - start);
+                enterCriticalSection();
+                return true;
+            }
+            hasReply = false;
+            // Get the current Lamport timestamp, published before the requesting state
+            timestamp = lamportClock.getTimestamp();
+            requestTimestamp = timestamp;
+            Arrays.fill(requestedChannels, null);
+            // Requesting forks
+            philosopher.setRequesting(true);
+        } finally {
+            requestLock.unlock();
+        }
+        logger.debug("Philosopher " + philosopher.getPhilosopherId() + " is requesting forks with timestamp " + timestamp);
+        logger.debug("Philosopher " + philosopher.getPhilosopherId() + " is requesting forks.");
+        // Request forks from neighbors
+        philosopher.awaitNeighbors();
+        requestFork(Direction.LEFT, timestamp);
+        requestFork(Direction.RIGHT, timestamp);
+        forkLock.lock();
+        try {
+            // Wait until both forks are acquired
+            if (!awaitForks(timeoutNanos)) {
+                abandonedRequest = true;
+                logger.info("Philosopher " + philosopher.getPhilosopherId() + " abandoned the request for forks.");
+                return false;
+            }
+        } finally {
+            forkLock.unlock();
+        }
+        philosopher.getMetrics().getForkAcquisition().observeNanos(System.nanoTime() - start);
+        enterCriticalSection();
+        return true;
+    }
+
+    /**
+     * Send the current request for forks to a neighbor, once per connection
+     * A side without a neighbor is skipped, the request is sent to the philosopher that takes the seat once it is
+     * connected, see {@link #neighborConnected}
+     *
+     * @param side      The side of the neighbor
+     * @param timestamp The timestamp of the request
+     */
+    private void requestFork(Direction side, long timestamp) {
+        requestLock.lock();
+        try {
+            TransportChannel channel = channels[side.ordinal()];
+            if (channel == null || requestedChannels[side.ordinal()] == channel) {
+                return;
+            }
+            requestedChannels[side.ordinal()] = channel;
+            logger.info("Philosopher " + philosopher.getPhilosopherId() + " is requesting " + side.name().toLowerCase() + " fork.");
+            philosopher.sendRequest(channel, philosopher.reverseDirection(side), timestamp);
+        } finally {
+            requestLock.unlock();
+        }
+    }
+
+    /**
+     * Wait until both forks are acquired, the fork lock must be held
+     *
+     * @param timeoutNanos The maximum time to wait in nanoseconds, or a negative value to wait indefinitely
+     * @return True if both forks are acquired
+     */
+    private boolean awaitForks(long timeoutNanos) {
+        long remaining = timeoutNanos;
+        while (!(granted[0] && granted[1])) {
+            try {
+                if (timeoutNanos < 0) {
+                    forksChanged.await();
+                } else if (remaining > 0) {
+                    remaining = forksChanged.awaitNanos(remaining);
+                } else {
+                    return false;
+                }
+            } catch (InterruptedException e) {
+                logger.error("An error occurred while waiting for forks", e);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Enter the critical section after both forks are acquired
+     */
+    private void enterCriticalSection() {
+        requestLock.lock();
+        try {
+            // Enter critical section
+            philosopher.setCriticalSection(true);
+            // No longer requesting forks
+            philosopher.setRequesting(false);
+        } finally {
+            requestLock.unlock();
+        }
+        logger.debug("Philosopher " + philosopher.getPhilosopherId() + " entered the critical section.");
+    }
+
+    @Override
+    public void release() {
+        List<DeferredRequest> requests = new ArrayList<>(2);
+        requestLock.lock();
+        try {
+            // Exit critical section
+            philosopher.setCriticalSection(false);
+            deferredRequests.drainTo(requests);
+        } finally {
+            requestLock.unlock();
+        }
+        logger.debug("Philosopher " + philosopher.getPhilosopherId() + " is releasing forks.");
+        logger.info("Philosopher " + philosopher.getPhilosopherId() + " is releasing forks.");
+        logger.debug("deferredRequests: " + requests.size());
+        // Release forks to neighbors
+        for (DeferredRequest request : requests) {
+            logger.debug(String.valueOf(request));
+            philosopher.sendReply(request.getChannel(), philosopher.reverseDirection(request.getDirection()));
+        }
+        // Reset fork states
+        forkLock.lock();
+        try {
+            Arrays.fill(granted, false);
+        } finally {
+            forkLock.unlock();
+        }
+        logger.log(NOTICE, "Philosophers have eaten a total of " + philosopher.getLocalGCounter().query() + " times.");
+    }
+
+    @Override
+    public boolean hasFork(Direction side) {
+        forkLock.lock();
+        try {
+            return granted[side.ordinal()];
+        } finally {
+            forkLock.unlock();
+        }
+    }
+
+    @Override
+    public int deferredRequests() {
+        return deferredRequests.size();
+    }
+
+    @Override
+    public void neighborConnected(Direction side, int neighborId, TransportChannel channel) {
+        requestLock.lock();
+        try {
+            channels[side.ordinal()] = channel;
+            // A new neighbor never replied, so the next meal asks it first
+            hasReply = true;
+            if (philosopher.isRequesting()) {
+                // The neighbor took the seat of a failed one while the philosopher waits for the forks
+                requestFork(side, requestTimestamp);
+            }
+        } finally {
+            requestLock.unlock();
+        }
+    }
+
+    @Override
+    public void neighborReady(Direction side) {
+        // Requests of a neighbor are answered by the protocol alone
+    }
+
+    @Override
+    public void neighborFailed(Direction side, TransportChannel channel) {
+        requestLock.lock();
+        try {
+            channels[side.ordinal()] = null;
+            // The deferred reply can no longer be delivered
+            deferredRequests.removeIf(request -> request.getChannel() == channel);
+            hasReply = true;
+        } finally {
+            requestLock.unlock();
+        }
+        // The reply of the failed neighbor is void, the request goes to the next neighbor once it is connected
+        setGranted(side, false);
+    }
+
+    @Override
+    public void receiveRequest(TransportChannel requestingChannel, Message receivedMessage) {
+        long requestTimestamp = receivedMessage.getTimestamp();
+        Direction requestDirection = receivedMessage.getDirection();
+        int requestPhilosopherId = receivedMessage.getPhilosopherId();
+
+        boolean reply;
+        // Decide and defer atomically with the request state changes of the philosopher
+        requestLock.lock();
+        try {
+            hasReply = true;
+            reply = shouldReply(receivedMessage);
+            if (!reply) {
+                // Defer the request
+                logger.debug("Philosopher " + philosopher.getPhilosopherId() + " deferred REQUEST from Philosopher " + receivedMessage.getPhilosopherId() + " " + receivedMessage.getDirection());
+                deferredRequests.add(new DeferredRequest(requestingChannel, requestDirection));
+            }
+        } finally {
+            requestLock.unlock();
+        }
+        if (reply) {
+            logger.debug("Philosopher " + philosopher.getPhilosopherId() + " received REQUEST from Philosopher " + requestPhilosopherId + " " + requestDirection + " with timestamp " + requestTimestamp);
+            philosopher.sendReply(requestingChannel, philosopher.reverseDirection(requestDirection));
+        }
+    }
+
+    /**
+     * Synchronize the clock with a received request and decide if it is answered right away
+     *
+     * @param receivedMessage The request received from the neighbor
+     * @return True if a REPLY is sent, false if the request is deferred
+     */
+    private boolean shouldReply(Message receivedMessage) {
+        // On receiving a request, update the local Lamport timestamp
+        philosopher.getLamportClock().synchronize(receivedMessage.getTimestamp());
+        // Site Sj is neither requesting nor currently executing the critical section send REPLY
+        // In case Site Sj is requesting, Site Si's request comes first in the (timestamp, id) order send REPLY
+        // ELSE defer the request
+        return Server.shouldReply(philosopher.inCriticalSection(), philosopher.isRequesting(), requestTimestamp, philosopher.getPhilosopherId(),
+                receivedMessage.getTimestamp(), receivedMessage.getPhilosopherId());
+    }
+
+    @Override
+    public void receiveReply(Message receivedMessage) {
+        logger.debug("Philosopher " + philosopher.getPhilosopherId() + " received REPLY from Philosopher " + receivedMessage.getPhilosopherId() + " " + receivedMessage.getDirection());
+        setGranted(receivedMessage.getDirection(), true);
+    }
+
+    /**
+     * Set the reply of a neighbor and wake up a philosopher waiting for forks
+     * If the request was abandoned, the forks are released right away once both have arrived
+     *
+     * @param side    The side of the neighbor
+     * @param granted True if the neighbor replied
+     */
+    private void setGranted(Direction side, boolean granted) {
+        forkLock.lock();
+        try {
+            this.granted[side.ordinal()] = granted;
+            if (granted) {
+                logger.info("Philosopher " + philosopher.getPhilosopherId() + " has " + side.name().toLowerCase() + " fork.");
+            }
+            if (abandonedRequest && this.granted[0] && this.granted[1]) {
+                abandonedRequest = false;
+                philosopher.setRequesting(false);
+                release();
+                return;
+            }
+            forksChanged.signalAll();
+        } finally {
+            forkLock.unlock();
+        }
+    }
+
+    /**
+     * Check if a neighbor may hold a fork of the philosopher, so the next meal has to ask for the forks
+     *
+     * @return True if the next meal sends requests
+     */
+    public boolean hasReply() {
+        return hasReply;
+    }
+}
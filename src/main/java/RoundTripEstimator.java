@@ -0,0 +1,67 @@
+/**
+ * An estimate of the round-trip time to one neighbor
+ * <p>
+ * The samples are smoothed like the retransmission timer of TCP (RFC 6298): the smoothed round-trip time moves by an
+ * eighth of every error and the mean deviation by a quarter, so one slow sample does not swing the estimate. The
+ * smoothed time plus four deviations bounds nearly every round trip, it is the time a request has to be sent ahead.
+ */
+public class RoundTripEstimator {
+    /**
+     * The smoothed round-trip time and its mean deviation in nanoseconds, -1 before the first sample
+     */
+    private long smoothed = -1;
+    private long deviation = 0;
+
+    /**
+     * Record a measured round trip
+     *
+     * @param nanos The round-trip time in nanoseconds
+     */
+    public synchronized void sample(long nanos) {
+        if (nanos < 0) {
+            return;
+        }
+        if (smoothed < 0) {
+            smoothed = nanos;
+            deviation = nanos / 2;
+            return;
+        }
+        deviation += (Math.abs(smoothed - nanos) - deviation) / 4;
+        smoothed += (nanos - smoothed) / 8;
+    }
+
+    /**
+     * Check if a round trip was measured
+     *
+     * @return True after the first sample
+     */
+    public synchronized boolean hasSample() {
+        return smoothed >= 0;
+    }
+
+    /**
+     * Get the smoothed round-trip time
+     *
+     * @return The round-trip time in nanoseconds, 0 before the first sample
+     */
+    public synchronized long getSmoothed() {
+        return Math.max(smoothed, 0);
+    }
+
+    /**
+     * Get the time that nearly every round trip stays within, the smoothed time plus four mean deviations
+     *
+     * @return The bound in nanoseconds, 0 before the first sample
+     */
+    public synchronized long getBound() {
+        return smoothed < 0 ? 0 : smoothed + 4 * deviation;
+    }
+
+    /**
+     * Forget the samples, e.g. when the connection is replaced by one to another neighbor
+     */
+    public synchronized void reset() {
+        smoothed = -1;
+        deviation = 0;
+    }
+}
@@ -0,0 +1,52 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+
+/**
+ * The legacy codec that uses Java serialization for the frame payload
+ */
+public class SerializationCodec implements MessageCodec {
+    /**
+     * The name of the codec
+     */
+    public static final String NAME = "serialization";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] encode(Message message) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        // Reserve space for the length prefix
+        bytes.write(new byte[LENGTH_PREFIX]);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(message);
+        }
+        byte[] frame = bytes.toByteArray();
+        ByteBuffer.wrap(frame).putInt(frame.length - LENGTH_PREFIX);
+        return frame;
+    }
+
+    @Override
+    public Message decode(ByteBuffer payload) throws IOException {
+        ByteArrayInputStream bytes;
+        if (payload.hasArray()) {
+            bytes = new ByteArrayInputStream(payload.array(), payload.arrayOffset() + payload.position(), payload.remaining());
+        } else {
+            byte[] copy = new byte[payload.remaining()];
+            payload.get(copy);
+            bytes = new ByteArrayInputStream(copy);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(bytes)) {
+            return (Message) in.readObject();
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new StreamCorruptedException("Frame does not contain a message: " + e.getMessage());
+        }
+    }
+}
@@ -2,15 +2,16 @@ import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.io.EOFException;
+import java.io.Closeable;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.net.InetSocketAddress;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * A server is responsible for accepting client connections and delegating client handling to a thread from the thread pool
+ * A server is responsible for accepting the connections of the neighbors through the transport of its philosopher and handling their messages
+ * It listens until the handshake left one full-duplex connection to each neighbor, requests and replies of a neighbor
+ * travel on the same connection. Once a neighbor fails it listens again, so the philosopher behind it can take its seat.
  */
 public class Server {
     /**
@@ -19,17 +20,30 @@ public class Server {
     private static final Logger logger = LogManager.getLogger(Server.class);
     private final Level NOTICE = Level.forName("NOTICE", 350);
     /**
-     * The port that the server listens on
+     * The address that the server listens on
      */
-    private final int PORT;
+    private final InetSocketAddress address;
     /**
      * The philosopher that the server belongs to
      */
     private final Philosopher philosopher;
     /**
-     * A latch that is used to wait for the server to finish
+     * A latch that is released once the philosopher and both neighbors are connected, or the listener failed
      */
     private final CountDownLatch serverLatch;
+    /**
+     * The listener accepting the connections of the neighbors, null while both neighbors are connected
+     */
+    private Closeable listener;
+    /**
+     * The locks of the message handlers, striped by concern
+     * Fork arbitration spans both neighbors and has a single lock, the counter gossip of each neighbor has its own, so a
+     * COUNTER of one neighbor is merged while a REQUEST of the other is decided. Pings only touch per-side atomic state
+     * and take no lock. ReentrantLocks instead of monitors because the handlers write replies to sockets, which would pin
+     * the carrier thread of a virtual thread.
+     */
+    private final ReentrantLock forkLock = new ReentrantLock();
+    private final ReentrantLock[] gossipLocks = {new ReentrantLock(), new ReentrantLock()};
 
     /**
      * Create a new server
@@ -38,6 +52,17 @@ public class Server {
      * @param port        The port that the server listens on
      */
     public Server(Philosopher philosopher, int port) {
+        this(philosopher, new InetSocketAddress(port));
+    }
+
+    /**
+     * Create a new server that listens on an address, e.g. a seat of a {@link HostTransport}
+     *
+     * @param philosopher The philosopher that the server belongs to
+     * @param address     The address that the server listens on
+     */
+    public Server(Philosopher philosopher, InetSocketAddress address) {
+        int port = address.getPort();
         if (philosopher == null) {
             logger.error("Philosopher cannot be null");
             throw new IllegalArgumentException("Philosopher cannot be null");
@@ -47,132 +72,146 @@ public class Server {
             throw new IllegalArgumentException("Port is out of the valid range of 49152-65535");
         }
         this.philosopher = philosopher;
-        this.PORT = port;
+        this.address = address;
         this.serverLatch = new CountDownLatch(1); // Initialize the latch
-        startListener();
+        if (!startListener()) {
+            serverLatch.countDown();
+            return;
+        }
+        philosopher.connectToNeighbors(this::dispatch, this::onConnected, this::onReady, this::startListener);
     }
 
     /**
-     * Start the server listener
-     */
-    private void startListener() {
-        new Thread(() -> {
-            try (ServerSocket serverSocket = new ServerSocket(PORT)) {
-                logger.log(NOTICE, "Server started on port " + PORT);
-                // Initialize the connectedClients counter
-                int connectedClients = 0;
-                // Keep accepting clients until 2 clients are connected
-                while (connectedClients < 2) {
-                    try {
-                        // Accept a client connection
-                        Socket socket = serverSocket.accept();
-                        // Increment the connectedClients counter
-                        connectedClients++;
-                        logger.log(NOTICE, "Client connected (" + connectedClients + " total): " + socket.getInetAddress().getHostAddress() + ":" + socket.getPort());
-                        // Create new thread for message handling per socket
-                        messageHandler(socket);
-                    } catch (IOException e) {
-                        logger.error("Error accepting client connection", e);
-                    }
-                }
-            } catch (IOException e) {
-                logger.error("Error while starting the listener", e);
-            } finally {
-                serverLatch.countDown(); // Count down the latch when the server finishes
-            }
-        }).start();
+     * Start accepting the connections of the neighbors, unless the listener is running
+     *
+     * @return True if the listener is running
+     */
+    private synchronized boolean startListener() {
+        if (listener != null) {
+            return true;
+        }
+        try {
+            listener = philosopher.getTransport().listen(address, this::dispatch, philosopher.getMetrics()::messageSent);
+            return true;
+        } catch (IOException e) {
+            logger.error("Error while starting the listener", e);
+            return false;
+        }
+    }
+
+    /**
+     * Stop accepting once both neighbors are connected
+     */
+    private synchronized void onConnected() {
+        try {
+            listener.close();
+        } catch (IOException e) {
+            logger.error("Error while closing the listener", e);
+        }
+        listener = null;
+        logger.log(NOTICE, "Philosopher " + philosopher.getPhilosopherId() + " is connected to both neighbors");
+    }
+
+    /**
+     * Release the waiting game once both neighbors confirmed that they are connected to their own neighbors
+     */
+    private void onReady() {
+        serverLatch.countDown();
     }
 
     /**
-     * Handle messages from the client
+     * Dispatch a received message to its handler
      *
-     * @param clientSocket The socket of the client
+     * @param channel         The connection the message was received on
+     * @param receivedMessage The received message
+     * @param frameSize       The size of the frame of the message in bytes
      */
-    private void messageHandler(Socket clientSocket) {
-        new Thread(() -> {
+    private void dispatch(TransportChannel channel, Message receivedMessage, int frameSize) {
+        philosopher.getMetrics().messageReceived(receivedMessage, frameSize);
+        // Every frame of a neighbor shows that it is alive
+        philosopher.heartbeat(channel, receivedMessage.getDirection());
+        // The handshake is handled outside the handler lock, the other handlers may wait for the neighbors
+        if (receivedMessage.getType() == MessageType.HELLO) {
+            philosopher.receiveHello(channel, receivedMessage);
+            return;
+        } else if (receivedMessage.getType() == MessageType.WELCOME) {
+            philosopher.receiveWelcome(channel, receivedMessage);
+            return;
+        } else if (receivedMessage.getType() == MessageType.READY) {
+            philosopher.receiveReady(receivedMessage);
+            return;
+        } else if (receivedMessage.getType() == MessageType.NEIGHBOR) {
+            philosopher.receiveNeighbor(receivedMessage);
+            return;
+        }
+        Direction direction = receivedMessage.getDirection();
+        if (receivedMessage.getType() == MessageType.PING) {
+            receivePing(channel, receivedMessage.getPhilosopherId(), receivedMessage.getHasReceivedPing(), direction);
+        } else if (receivedMessage.getType() == MessageType.REQUEST || receivedMessage.getType() == MessageType.REPLY) {
+            lock(forkLock, philosopher.getMetrics().getForkDispatchWait(direction));
             try {
-                ObjectInputStream in;
-                while (true) {
-                    try {
-                        // Create an object input stream from the client socket
-                        in = new ObjectInputStream(clientSocket.getInputStream());
-                        // Read a message from the client
-                        Message receivedMessage = (Message) in.readObject();
-                        // Handle the message
-                        if (receivedMessage.getType() == MessageType.REQUEST) {
-                            receiveRequest(clientSocket, receivedMessage);
-                        } else if (receivedMessage.getType() == MessageType.REPLY) {
-                            receiveReply(receivedMessage.getPhilosopherId(), receivedMessage.getDirection());
-                        } else if (receivedMessage.getType() == MessageType.COUNTER) {
-                            receiveCounter(receivedMessage.getPhilosopherId(), receivedMessage.getDirection(), receivedMessage.getGCounter());
-                        } else if (receivedMessage.getType() == MessageType.PING) {
-                            receivePing(receivedMessage.getPhilosopherId(), receivedMessage.getHasReceivedPing(), receivedMessage.getDirection());
-                        }
-                    } catch (EOFException e) {
-                        logger.error("Error while handling client request", e);
-                        break;
-                    }
+                if (receivedMessage.getType() == MessageType.REQUEST) {
+                    philosopher.getForkProtocol().receiveRequest(channel, receivedMessage);
+                } else {
+                    philosopher.getForkProtocol().receiveReply(receivedMessage);
                 }
-            } catch (IOException | ClassNotFoundException e) {
-                logger.error("Error while handling client request", e);
             } finally {
-                try {
-                    clientSocket.close();
-                } catch (IOException e) {
-                    logger.error("Error while closing client socket", e);
+                forkLock.unlock();
+            }
+        } else if (receivedMessage.getType() == MessageType.COUNTER || receivedMessage.getType() == MessageType.DIGEST) {
+            ReentrantLock gossipLock = gossipLocks[direction.ordinal()];
+            lock(gossipLock, philosopher.getMetrics().getGossipDispatchWait(direction));
+            try {
+                if (receivedMessage.getType() == MessageType.COUNTER) {
+                    receiveCounter(receivedMessage.getPhilosopherId(), direction, receivedMessage.getGCounter());
+                } else {
+                    receiveDigest(receivedMessage.getPhilosopherId(), direction, receivedMessage.getDigestSize(), receivedMessage.getDigest());
                 }
+            } finally {
+                gossipLock.unlock();
             }
-        }).start();
+        }
     }
 
     /**
-     * Receive a request from a neighbor
+     * Acquire the lock of a handler and record the wait if another handler holds it
      *
-     * @param requestingSocket The socket of the requesting neighbor
-     * @param receivedMessage  The message received from the neighbor
-     */
-    private synchronized void receiveRequest(Socket requestingSocket, Message receivedMessage) {
-        philosopher.setHasReply(true);
-        // Get current timestamp
-        int timestamp = philosopher.getLamportClock().getTimestamp();
-        // On receiving a request, update the local Lamport timestamp
-        philosopher.getLamportClock().synchronize(receivedMessage.getTimestamp());
-        int requestTimestamp = receivedMessage.getTimestamp();
-        Direction requestDirection = receivedMessage.getDirection();
-        int requestPhilosopherId = receivedMessage.getPhilosopherId();
-
-        // Site Sj is neither requesting nor currently executing the critical section send REPLY
-        // In case Site Sj is requesting, the timestamp of Site Si's request is smaller than its own request send REPLY
-        // In Case requestTimestamp == timestamp, Sj sends Si a REPLY
-        // ELSE defer the request
-        if ((!philosopher.inCriticalSection() && !philosopher.isRequesting()) || (philosopher.isRequesting() && (requestTimestamp < timestamp)) || (requestTimestamp == timestamp && requestPhilosopherId < philosopher.getPhilosopherId())) {
-            logger.debug("Philosopher " + philosopher.getPhilosopherId() + " received REQUEST from Philosopher " + requestPhilosopherId + " " + requestDirection + " with timestamp " + requestTimestamp);
-            if (requestDirection == Direction.LEFT) {
-                philosopher.sendReply(philosopher.getLeftNeighborSocket(), philosopher.reverseDirection(requestDirection));
-            } else {
-                philosopher.sendReply(philosopher.getRightNeighborSocket(), philosopher.reverseDirection(requestDirection));
-            }
-        } else {
-            // Defer the request
-            logger.debug("Philosopher " + philosopher.getPhilosopherId() + " deferred REQUEST from Philosopher " + receivedMessage.getPhilosopherId() + " " + receivedMessage.getDirection());
-            philosopher.getDeferredRequests().add(new DeferredRequest(requestingSocket, requestDirection));
+     * @param lock The lock of the handler
+     * @param wait The histogram of the waits for the lock
+     */
+    private static void lock(ReentrantLock lock, MetricsRegistry.Histogram wait) {
+        if (lock.tryLock()) {
+            return;
         }
+        long start = System.nanoTime();
+        lock.lock();
+        wait.observeNanos(System.nanoTime() - start);
     }
 
     /**
-     * Receive a reply from a neighbor
+     * Get the lock of the fork handlers, to hold up the REQUEST and REPLY messages in tests
      *
-     * @param clientId  The ID of the neighbor
-     * @param direction The direction of the reply
-     */
-    private synchronized void receiveReply(int clientId, Direction direction) {
-        if (direction == Direction.LEFT) {
-            logger.debug("Philosopher " + philosopher.getPhilosopherId() + " received REPLY from Philosopher " + clientId + " " + direction);
-            philosopher.setHasLeftFork(true);
-        } else {
-            logger.debug("Philosopher " + philosopher.getPhilosopherId() + " received REPLY from Philosopher " + clientId + " " + direction);
-            philosopher.setHasRightFork(true);
-        }
+     * @return The lock of the fork handlers
+     */
+    ReentrantLock getForkLock() {
+        return forkLock;
+    }
+
+    /**
+     * Decide if a request is answered right away from the request state of the receiving philosopher
+     * Shared by the {@link RicartAgrawala} protocol and the {@link Simulator}
+     *
+     * @param inCriticalSection True if the receiving philosopher is eating
+     * @param requesting        True if the receiving philosopher is requesting the forks
+     * @param requestTimestamp  The timestamp of the request of the receiving philosopher
+     * @param philosopherId     The id of the receiving philosopher
+     * @param receivedTimestamp The timestamp of the received request
+     * @param senderId          The id of the requesting philosopher
+     * @return True if a REPLY is sent, false if the request is deferred
+     */
+    static boolean shouldReply(boolean inCriticalSection, boolean requesting, long requestTimestamp, int philosopherId, long receivedTimestamp, int senderId) {
+        return (!inCriticalSection && !requesting) || (requesting && !inCriticalSection
+                && LamportClock.compare(receivedTimestamp, senderId, requestTimestamp, philosopherId) < 0);
     }
 
     /**
@@ -182,27 +221,46 @@ public class Server {
      * @param direction The direction of the counter
      * @param gCounter  The counter object of the philosopher
      */
-    private synchronized void receiveCounter(int clientId, Direction direction, GCounter gCounter) {
+    private void receiveCounter(int clientId, Direction direction, GCounter gCounter) {
         logger.debug("Philosopher " + philosopher.getPhilosopherId() + " received COUNTER from Philosopher " + clientId + " " + direction);
-        philosopher.getLocalGCounter().merge(gCounter);
+        philosopher.getCounterGossip().counterReceived(direction, gCounter);
+        if (philosopher.getLocalGCounter().merge(gCounter)) {
+            // Forward the new entries to the other neighbor
+            philosopher.getCounterGossip().counterChanged();
+        }
+    }
+
+    /**
+     * Receive the acknowledgement of the counts sent to a neighbor
+     *
+     * @param clientId   The ID of the neighbor
+     * @param direction  The direction of the digest
+     * @param digestSize The number of entries the neighbor received
+     * @param digest     The digest of the counts the neighbor received
+     */
+    private void receiveDigest(int clientId, Direction direction, int digestSize, long digest) {
+        if (philosopher.getCounterGossip().receiveDigest(direction, digestSize, digest)) {
+            logger.debug("Philosopher " + philosopher.getPhilosopherId() + " received a diverging DIGEST from Philosopher " + clientId + " " + direction);
+        }
     }
 
     /**
      * Receive a ping from a neighbor
      *
+     * @param channel   The connection to the neighbor, the answer is sent on it
      * @param clientId  The ID of the neighbor
      * @param direction The direction of the ping
      */
-    private synchronized void receivePing(int clientId, boolean hasReceivedPing, Direction direction) {
+    private void receivePing(TransportChannel channel, int clientId, boolean hasReceivedPing, Direction direction) {
         logger.debug("Philosopher " + philosopher.getPhilosopherId() + " received PING from Philosopher " + clientId + " " + direction);
-        if (direction == Direction.LEFT && !hasReceivedPing) {
-            philosopher.sendPing(philosopher.getLeftNeighborSocket(), true, philosopher.reverseDirection(direction));
-        } else if (direction == Direction.RIGHT && !hasReceivedPing) {
-            philosopher.sendPing(philosopher.getRightNeighborSocket(), true, philosopher.reverseDirection(direction));
+        if (!hasReceivedPing) {
+            philosopher.sendPing(channel, true, philosopher.reverseDirection(direction));
         } else if (direction == Direction.LEFT) {
             philosopher.setReceivedPingLeft(true);
+            philosopher.receivedPingAnswer(channel, direction);
         } else if (direction == Direction.RIGHT) {
             philosopher.setReceivedPingRight(true);
+            philosopher.receivedPingAnswer(channel, direction);
         }
     }
 
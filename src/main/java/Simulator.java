@@ -0,0 +1,737 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A deterministic discrete-event simulation of a ring of philosophers in virtual time
+ * <p>
+ * The philosophers run the Ricart-Agrawala protocol with the Roucairol-Carvalho optimization on a single thread: the
+ * decision on a request is {@link Server#shouldReply(boolean, boolean, long, int, long, int)}, the clock follows the
+ * rules of the {@link LamportClock} and the meals are merged into a {@link GCounter} of the table. Thinking, eating and
+ * the network delay are drawn from a seeded random generator and only advance the virtual clock, so the same seed always
+ * produces the same run. Messages between two neighbors are delivered in order, like on a TCP connection.
+ * <p>
+ * The state of the philosophers and the pending events are kept in primitive arrays, so a ring of a million
+ * philosophers fits in a few hundred megabytes. Pending events are kept on a timing wheel of millisecond ticks, only
+ * the events of the current tick are ordered in a heap. Counter gossip is not forwarded around the ring; every meal is counted
+ * as one COUNTER message to each neighbor.
+ * <p>
+ * With a {@link ColoringSchedule} the philosophers do not think for a random time but ask for the forks at the start of
+ * their turns, like the {@link Game} does.
+ */
+public class Simulator {
+    /**
+     * The kinds of events
+     */
+    private static final int THINK_DONE = 0;
+    private static final int EAT_DONE = 1;
+    private static final int REQUEST = 2;
+    private static final int REPLY = 3;
+    /**
+     * The sides of a philosopher, equal to the ordinals of {@link Direction}
+     */
+    private static final int LEFT = 0;
+    private static final int RIGHT = 1;
+    /**
+     * The states of a philosopher
+     */
+    private static final int THINKING = 0;
+    private static final int REQUESTING = 1;
+    private static final int EATING = 2;
+    /**
+     * The flags of a philosopher
+     */
+    private static final int HAS_REPLY = 1;
+    private static final int LEFT_FORK = 2;
+    private static final int RIGHT_FORK = 4;
+    private static final int DEFERRED_LEFT = 8;
+    private static final int DEFERRED_RIGHT = 16;
+    /**
+     * The largest number of philosophers, limited by the encoding of the events
+     */
+    public static final int MAX_PHILOSOPHERS = 1 << 28;
+    /**
+     * The fields of a seat: the Lamport clock, the timestamp and start of the current request, the finished meals, the
+     * arrival time of the last message sent to each side, the state and the flags
+     */
+    private static final int SEAT_SIZE = 8;
+    private static final int CLOCK = 0;
+    private static final int REQUEST_TIMESTAMP = 1;
+    private static final int REQUEST_START = 2;
+    private static final int MEALS = 3;
+    private static final int LAST_ARRIVAL = 4;
+    private static final int STATE = 6;
+    private static final int FLAGS = 7;
+    /**
+     * The fields of an event: the time, the sequence number that orders events of the same time, the kind, side and
+     * receiver in the low and the next event of a list in the high half, and the timestamp of a request
+     */
+    private static final int EVENT_SIZE = 4;
+    private static final int TIME = 0;
+    private static final int SEQUENCE = 1;
+    private static final int DATA = 2;
+    private static final int TIMESTAMP = 3;
+    /**
+     * The width of a tick of the timing wheel in microseconds as a power of two, about a millisecond
+     */
+    private static final int TICK_BITS = 10;
+    /**
+     * The number of ticks of the timing wheel, covering about a minute
+     */
+    private static final int WHEEL_SIZE = 1 << 16;
+
+    /**
+     * The number of philosophers at the table
+     */
+    private final int philosophers;
+    /**
+     * The seed of the random generator
+     */
+    private final long seed;
+    /**
+     * The bounds of the thinking and eating times and the network delay in microseconds
+     */
+    private long minThink = TimeUnit.MILLISECONDS.toMicros(5000);
+    private long maxThink = TimeUnit.MILLISECONDS.toMicros(30000);
+    private long minEat = TimeUnit.MILLISECONDS.toMicros(5000);
+    private long maxEat = TimeUnit.MILLISECONDS.toMicros(10000);
+    private long minDelay = TimeUnit.MILLISECONDS.toMicros(1);
+    private long maxDelay = TimeUnit.MILLISECONDS.toMicros(5);
+    /**
+     * True if the philosophers eat in the turns of a coloring schedule
+     */
+    private boolean coloring = false;
+    private ColoringSchedule coloringSchedule;
+
+    /**
+     * The seats of the philosophers, a cache line of {@link #SEAT_SIZE} longs per philosopher
+     */
+    private long[] seats;
+    /**
+     * The events, {@link #EVENT_SIZE} longs per event, unused events are linked from the first free event
+     */
+    private long[] events;
+    private int freeEvent;
+    private long nextSequence;
+    /**
+     * The pending events of the next turn of the timing wheel, as lists of events per tick
+     */
+    private int[] wheel;
+    private long wheelCount;
+    /**
+     * The tick being processed, its events ordered by time, and the events beyond the wheel
+     */
+    private long currentTick;
+    private EventHeap current;
+    private EventHeap far;
+    /**
+     * The random generator of the run
+     */
+    private SplittableRandom random;
+    /**
+     * The current virtual time and the end of the run in microseconds
+     */
+    private long now;
+    private long end;
+    /**
+     * The counters of the run
+     */
+    private long[] messages;
+    private long processedEvents;
+    private long acquisitions;
+    private long totalWait;
+    private long maxWait;
+    private long violations;
+    private long eatMicros;
+    private GCounter table;
+
+    /**
+     * Create a new simulator
+     *
+     * @param philosophers The number of philosophers at the table
+     * @param seed         The seed of the random generator
+     */
+    public Simulator(int philosophers, long seed) {
+        if (philosophers < 2 || philosophers > MAX_PHILOSOPHERS) {
+            throw new IllegalArgumentException("Number of philosophers is out of the valid range of 2-" + MAX_PHILOSOPHERS);
+        }
+        this.philosophers = philosophers;
+        this.seed = seed;
+    }
+
+    /**
+     * Set the bounds of the thinking time
+     *
+     * @param min  The minimum thinking time
+     * @param max  The maximum thinking time
+     * @param unit The unit of the bounds
+     */
+    public void setThinkInterval(long min, long max, TimeUnit unit) {
+        checkInterval(min, max, 1);
+        minThink = unit.toMicros(min);
+        maxThink = unit.toMicros(max);
+    }
+
+    /**
+     * Set the bounds of the eating time
+     *
+     * @param min  The minimum eating time
+     * @param max  The maximum eating time
+     * @param unit The unit of the bounds
+     */
+    public void setEatInterval(long min, long max, TimeUnit unit) {
+        checkInterval(min, max, 1);
+        minEat = unit.toMicros(min);
+        maxEat = unit.toMicros(max);
+    }
+
+    /**
+     * Set the bounds of the network delay of a message
+     *
+     * @param min  The minimum delay
+     * @param max  The maximum delay
+     * @param unit The unit of the bounds
+     */
+    public void setNetworkDelay(long min, long max, TimeUnit unit) {
+        checkInterval(min, max, 0);
+        minDelay = unit.toMicros(min);
+        maxDelay = unit.toMicros(max);
+    }
+
+    /**
+     * Let the philosophers eat in the turns of a coloring schedule instead of after random think times
+     * A turn is long enough for the forks to arrive and the longest meal
+     *
+     * @param coloring True to use the coloring schedule
+     */
+    public void setColoringSchedule(boolean coloring) {
+        this.coloring = coloring;
+    }
+
+    private static void checkInterval(long min, long max, long lowest) {
+        if (min < lowest || max < min) {
+            throw new IllegalArgumentException("Invalid interval: " + min + "-" + max);
+        }
+    }
+
+    /**
+     * Run a simulation from a fresh table
+     *
+     * @param duration The simulated time
+     * @param unit     The unit of the simulated time
+     * @return The result of the run
+     */
+    public Result run(long duration, TimeUnit unit) {
+        if (duration <= 0) {
+            throw new IllegalArgumentException("Duration must be positive");
+        }
+        end = unit.toMicros(duration);
+        long wallStart = System.nanoTime();
+        reset();
+        for (int i = 0; i < philosophers; i++) {
+            think(i);
+        }
+        while (advance(end >>> TICK_BITS)) {
+            int event = current.peek() * EVENT_SIZE;
+            if (events[event + TIME] > end) {
+                break;
+            }
+            current.poll();
+            now = events[event + TIME];
+            int data = (int) events[event + DATA];
+            long timestamp = events[event + TIMESTAMP];
+            free(event / EVENT_SIZE);
+            processedEvents++;
+            int philosopher = data >>> 3;
+            int side = data & 1;
+            switch ((data >>> 1) & 3) {
+                case THINK_DONE -> requestForks(philosopher);
+                case EAT_DONE -> releaseForks(philosopher);
+                case REQUEST -> receiveRequest(philosopher, side, timestamp);
+                default -> receiveReply(philosopher, side);
+            }
+        }
+        return new Result(this, end, System.nanoTime() - wallStart);
+    }
+
+    /**
+     * Initialize the state of the philosophers and the counters
+     */
+    private void reset() {
+        seats = new long[philosophers * SEAT_SIZE];
+        for (int i = 0; i < philosophers; i++) {
+            seats[i * SEAT_SIZE + FLAGS] = HAS_REPLY;
+        }
+        int capacity = Math.max(16, 2 * philosophers);
+        events = new long[capacity * EVENT_SIZE];
+        link(0, capacity);
+        freeEvent = 0;
+        nextSequence = 0;
+        wheel = new int[WHEEL_SIZE];
+        Arrays.fill(wheel, -1);
+        wheelCount = 0;
+        currentTick = 0;
+        current = new EventHeap();
+        far = new EventHeap();
+        random = new SplittableRandom(seed);
+        now = 0;
+        messages = new long[MessageType.values().length];
+        processedEvents = 0;
+        acquisitions = 0;
+        totalWait = 0;
+        maxWait = 0;
+        violations = 0;
+        eatMicros = 0;
+        table = new GCounter(0);
+        // The forks arrive within two network delays, a tick later the turn ends
+        coloringSchedule = coloring ? new ColoringSchedule(philosophers, maxEat + 2 * maxDelay + (1 << TICK_BITS), TimeUnit.MICROSECONDS) : null;
+    }
+
+    /**
+     * Stop thinking and request the forks, see {@link Philosopher#requestForks()}
+     */
+    private void requestForks(int philosopher) {
+        int seat = philosopher * SEAT_SIZE;
+        long timestamp = ++seats[seat + CLOCK];
+        seats[seat + REQUEST_START] = now;
+        // Roucairol-Carvalho optimization: no neighbor was answered since the last request
+        if ((seats[seat + FLAGS] & HAS_REPLY) == 0) {
+            enterCriticalSection(philosopher);
+            return;
+        }
+        seats[seat + FLAGS] &= ~HAS_REPLY;
+        seats[seat + REQUEST_TIMESTAMP] = timestamp;
+        seats[seat + STATE] = REQUESTING;
+        send(philosopher, LEFT, REQUEST, timestamp);
+        send(philosopher, RIGHT, REQUEST, timestamp);
+    }
+
+    /**
+     * Receive a request from the neighbor on a side, see {@link Server}
+     */
+    private void receiveRequest(int philosopher, int side, long timestamp) {
+        int seat = philosopher * SEAT_SIZE;
+        seats[seat + CLOCK] = Math.max(seats[seat + CLOCK], timestamp) + 1;
+        seats[seat + FLAGS] |= HAS_REPLY;
+        long state = seats[seat + STATE];
+        if (Server.shouldReply(state == EATING, state == REQUESTING, seats[seat + REQUEST_TIMESTAMP], philosopher + 1,
+                timestamp, neighbor(philosopher, side) + 1)) {
+            send(philosopher, side, REPLY, 0);
+        } else {
+            seats[seat + FLAGS] |= side == LEFT ? DEFERRED_LEFT : DEFERRED_RIGHT;
+        }
+    }
+
+    /**
+     * Receive the fork of the neighbor on a side
+     */
+    private void receiveReply(int philosopher, int side) {
+        int seat = philosopher * SEAT_SIZE;
+        long flags = seats[seat + FLAGS] |= side == LEFT ? LEFT_FORK : RIGHT_FORK;
+        if (seats[seat + STATE] == REQUESTING && (flags & (LEFT_FORK | RIGHT_FORK)) == (LEFT_FORK | RIGHT_FORK)) {
+            enterCriticalSection(philosopher);
+        }
+    }
+
+    /**
+     * Start eating and check that no neighbor is eating
+     */
+    private void enterCriticalSection(int philosopher) {
+        int seat = philosopher * SEAT_SIZE;
+        seats[seat + STATE] = EATING;
+        if (seats[neighbor(philosopher, LEFT) * SEAT_SIZE + STATE] == EATING || seats[neighbor(philosopher, RIGHT) * SEAT_SIZE + STATE] == EATING) {
+            violations++;
+        }
+        long wait = now - seats[seat + REQUEST_START];
+        acquisitions++;
+        totalWait += wait;
+        maxWait = Math.max(maxWait, wait);
+        long eat = between(minEat, maxEat);
+        eatMicros += Math.min(eat, end - now);
+        schedule(eat, EAT_DONE, philosopher, LEFT, 0);
+    }
+
+    /**
+     * Stop eating, answer the deferred requests and start thinking, see {@link Philosopher#releaseForks()}
+     */
+    private void releaseForks(int philosopher) {
+        int seat = philosopher * SEAT_SIZE;
+        table.merge(philosopher + 1, ++seats[seat + MEALS]);
+        messages[MessageType.COUNTER.ordinal()] += 2;
+        seats[seat + STATE] = THINKING;
+        long flags = seats[seat + FLAGS];
+        if ((flags & DEFERRED_LEFT) != 0) {
+            send(philosopher, LEFT, REPLY, 0);
+        }
+        if ((flags & DEFERRED_RIGHT) != 0) {
+            send(philosopher, RIGHT, REPLY, 0);
+        }
+        seats[seat + FLAGS] = flags & HAS_REPLY;
+        think(philosopher);
+    }
+
+    /**
+     * Think for a random time or until the next turn of the philosopher
+     */
+    private void think(int philosopher) {
+        if (coloringSchedule == null) {
+            schedule(between(minThink, maxThink), THINK_DONE, philosopher, LEFT, 0);
+        } else {
+            long turn = TimeUnit.NANOSECONDS.toMicros(coloringSchedule.nextTurn(philosopher + 1, TimeUnit.MICROSECONDS.toNanos(now)));
+            schedule(turn - now, THINK_DONE, philosopher, LEFT, 0);
+        }
+    }
+
+    /**
+     * Send a message to the neighbor on a side, in order with the earlier messages on the same link
+     */
+    private void send(int philosopher, int side, int kind, long timestamp) {
+        messages[kind == REQUEST ? MessageType.REQUEST.ordinal() : MessageType.REPLY.ordinal()]++;
+        int link = philosopher * SEAT_SIZE + LAST_ARRIVAL + side;
+        long arrival = Math.max(now + between(minDelay, maxDelay), seats[link]);
+        seats[link] = arrival;
+        // The receiver sees the message coming from the opposite side
+        schedule(arrival - now, kind, neighbor(philosopher, side), 1 - side, timestamp);
+    }
+
+    /**
+     * Get the neighbor on a side of a philosopher
+     */
+    private int neighbor(int philosopher, int side) {
+        if (side == LEFT) {
+            return philosopher == 0 ? philosophers - 1 : philosopher - 1;
+        }
+        return philosopher == philosophers - 1 ? 0 : philosopher + 1;
+    }
+
+    /**
+     * Draw a uniformly distributed duration
+     */
+    private long between(long min, long max) {
+        return min == max ? min : random.nextLong(min, max + 1);
+    }
+
+    /**
+     * Add an event to the wheel, to the events of the current tick or to the far events
+     */
+    private void schedule(long delay, int kind, int philosopher, int side, long timestamp) {
+        if (freeEvent < 0) {
+            int capacity = events.length / EVENT_SIZE;
+            events = Arrays.copyOf(events, 2 * capacity * EVENT_SIZE);
+            link(capacity, 2 * capacity);
+            freeEvent = capacity;
+        }
+        int event = freeEvent;
+        int base = event * EVENT_SIZE;
+        freeEvent = next(base);
+        long time = now + delay;
+        events[base + TIME] = time;
+        events[base + SEQUENCE] = nextSequence++;
+        events[base + DATA] = (philosopher << 3 | kind << 1 | side) & 0xFFFFFFFFL;
+        events[base + TIMESTAMP] = timestamp;
+        insert(event, time >>> TICK_BITS);
+    }
+
+    /**
+     * Insert an allocated event by the tick of its time
+     */
+    private void insert(int event, long tick) {
+        if (tick == currentTick) {
+            current.push(event);
+        } else if (tick - currentTick < WHEEL_SIZE) {
+            int bucket = (int) tick & (WHEEL_SIZE - 1);
+            setNext(event * EVENT_SIZE, wheel[bucket]);
+            wheel[bucket] = event;
+            wheelCount++;
+        } else {
+            far.push(event);
+        }
+    }
+
+    /**
+     * Advance to the next tick with events and move them to the events of the current tick
+     *
+     * @param endTick The last tick of the run
+     * @return False if there are no more events up to the last tick
+     */
+    private boolean advance(long endTick) {
+        while (current.size == 0) {
+            if (wheelCount > 0) {
+                currentTick++;
+            } else if (far.size > 0) {
+                currentTick = events[far.peek() * EVENT_SIZE + TIME] >>> TICK_BITS;
+            } else {
+                return false;
+            }
+            if (currentTick > endTick) {
+                return false;
+            }
+            // Far events move to the wheel once they are within one turn
+            while (far.size > 0 && (events[far.peek() * EVENT_SIZE + TIME] >>> TICK_BITS) - currentTick < WHEEL_SIZE) {
+                int event = far.poll();
+                insert(event, events[event * EVENT_SIZE + TIME] >>> TICK_BITS);
+            }
+            int bucket = (int) currentTick & (WHEEL_SIZE - 1);
+            for (int event = wheel[bucket]; event >= 0; ) {
+                int next = next(event * EVENT_SIZE);
+                current.push(event);
+                wheelCount--;
+                event = next;
+            }
+            wheel[bucket] = -1;
+        }
+        return true;
+    }
+
+    /**
+     * Link a range of events as free events
+     */
+    private void link(int from, int to) {
+        for (int event = from; event < to; event++) {
+            setNext(event * EVENT_SIZE, event + 1 < to ? event + 1 : -1);
+        }
+    }
+
+    /**
+     * Return a processed event to the free events
+     */
+    private void free(int event) {
+        setNext(event * EVENT_SIZE, freeEvent);
+        freeEvent = event;
+    }
+
+    /**
+     * Get the next event of a list
+     */
+    private int next(int base) {
+        return (int) (events[base + DATA] >> 32);
+    }
+
+    private void setNext(int base, int next) {
+        events[base + DATA] = (long) next << 32 | (events[base + DATA] & 0xFFFFFFFFL);
+    }
+
+    /**
+     * A binary heap of events ordered by time and sequence number
+     */
+    private final class EventHeap {
+        /**
+         * The events of the heap
+         */
+        private int[] items = new int[64];
+        /**
+         * The number of events in the heap
+         */
+        private int size;
+
+        private void push(int event) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            int index = size++;
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (!before(event, items[parent])) {
+                    break;
+                }
+                items[index] = items[parent];
+                index = parent;
+            }
+            items[index] = event;
+        }
+
+        private int peek() {
+            return items[0];
+        }
+
+        private int poll() {
+            int first = items[0];
+            int last = items[--size];
+            int index = 0;
+            int half = size >>> 1;
+            while (index < half) {
+                int child = 2 * index + 1;
+                if (child + 1 < size && before(items[child + 1], items[child])) {
+                    child++;
+                }
+                if (before(last, items[child])) {
+                    break;
+                }
+                items[index] = items[child];
+                index = child;
+            }
+            items[index] = last;
+            return first;
+        }
+
+        /**
+         * Check if an event is ordered before another event
+         */
+        private boolean before(int event, int other) {
+            long time = events[event * EVENT_SIZE + TIME];
+            long otherTime = events[other * EVENT_SIZE + TIME];
+            return time < otherTime || (time == otherTime && events[event * EVENT_SIZE + SEQUENCE] < events[other * EVENT_SIZE + SEQUENCE]);
+        }
+    }
+
+    /**
+     * The result of a simulation run
+     */
+    public static final class Result {
+        /**
+         * The number of philosophers at the table
+         */
+        private final int philosophers;
+        /**
+         * The simulated time in microseconds
+         */
+        private final long simulatedMicros;
+        /**
+         * The real time of the run in nanoseconds
+         */
+        private final long wallNanos;
+        /**
+         * The number of processed events
+         */
+        private final long events;
+        /**
+         * The number of finished meals of the table
+         */
+        private final long meals;
+        /**
+         * The messages sent, indexed by message type
+         */
+        private final long[] messages;
+        /**
+         * The number of entries into the critical section and the mean and maximum time to acquire the forks
+         */
+        private final long acquisitions;
+        private final double meanWaitMillis;
+        private final double maxWaitMillis;
+        /**
+         * Jain's fairness index of the meals per philosopher
+         */
+        private final double fairness;
+        /**
+         * The number of times a philosopher started eating next to an eating neighbor
+         */
+        private final long violations;
+        /**
+         * The average number of philosophers eating at the same time
+         */
+        private final double averageEaters;
+
+        private Result(Simulator simulator, long simulatedMicros, long wallNanos) {
+            this.philosophers = simulator.philosophers;
+            this.simulatedMicros = simulatedMicros;
+            this.wallNanos = wallNanos;
+            this.events = simulator.processedEvents;
+            this.meals = simulator.table.query();
+            this.messages = simulator.messages.clone();
+            this.acquisitions = simulator.acquisitions;
+            this.meanWaitMillis = acquisitions == 0 ? 0 : simulator.totalWait / 1000.0 / acquisitions;
+            this.maxWaitMillis = simulator.maxWait / 1000.0;
+            this.violations = simulator.violations;
+            this.averageEaters = (double) simulator.eatMicros / simulatedMicros;
+            double sum = 0;
+            double squares = 0;
+            for (int seat = 0; seat < simulator.seats.length; seat += SEAT_SIZE) {
+                long count = simulator.seats[seat + MEALS];
+                sum += count;
+                squares += (double) count * count;
+            }
+            this.fairness = squares == 0 ? 1 : sum * sum / (philosophers * squares);
+        }
+
+        public int getPhilosophers() {
+            return philosophers;
+        }
+
+        public long getEvents() {
+            return events;
+        }
+
+        public long getMeals() {
+            return meals;
+        }
+
+        /**
+         * Get the number of sent messages of a type
+         *
+         * @param type The message type
+         * @return The number of sent messages
+         */
+        public long getMessages(MessageType type) {
+            return messages[type.ordinal()];
+        }
+
+        public long getAcquisitions() {
+            return acquisitions;
+        }
+
+        public double getMeanWaitMillis() {
+            return meanWaitMillis;
+        }
+
+        public double getMaxWaitMillis() {
+            return maxWaitMillis;
+        }
+
+        /**
+         * Get the finished meals per simulated second
+         *
+         * @return The throughput of the table
+         */
+        public double getThroughput() {
+            return meals / (simulatedMicros / 1e6);
+        }
+
+        /**
+         * Get Jain's fairness index of the meals per philosopher, 1 if all philosophers ate equally often
+         *
+         * @return The fairness index between 1/n and 1
+         */
+        public double getFairness() {
+            return fairness;
+        }
+
+        /**
+         * Get the average number of philosophers eating at the same time, at most half of the table
+         *
+         * @return The average number of concurrent eaters
+         */
+        public double getAverageEaters() {
+            return averageEaters;
+        }
+
+        public long getViolations() {
+            return violations;
+        }
+
+        public long getWallNanos() {
+            return wallNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("philosophers=%d simulated=%.1fs wall=%.2fs events=%d meals=%d throughput=%.2f/s eaters=%.2f fairness=%.4f "
+                            + "wait(mean=%.1fms max=%.1fms) messages(REQUEST=%d REPLY=%d COUNTER=%d) violations=%d",
+                    philosophers, simulatedMicros / 1e6, wallNanos / 1e9, events, meals, getThroughput(), averageEaters, fairness,
+                    meanWaitMillis, maxWaitMillis, getMessages(MessageType.REQUEST), getMessages(MessageType.REPLY),
+                    getMessages(MessageType.COUNTER), violations);
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2 || args.length > 5) {
+            System.out.println("Usage: java Simulator <number_of_philosophers> <simulated_seconds> [seed] [min_delay_ms] [max_delay_ms]");
+            System.exit(1);
+        }
+        Simulator simulator = new Simulator(Integer.parseInt(args[0]), args.length > 2 ? Long.parseLong(args[2]) : 1);
+        simulator.setColoringSchedule(Configuration.coloringSchedule());
+        if (args.length > 3) {
+            simulator.setNetworkDelay(Long.parseLong(args[3]), Long.parseLong(args.length > 4 ? args[4] : args[3]), TimeUnit.MILLISECONDS);
+        }
+        System.out.println(simulator.run(Long.parseLong(args[1]), TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,285 @@
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * The transport over TCP connections with length-prefixed frames
+ * <p>
+ * Every connection is full-duplex, whether it was dialed or accepted. Its frames are queued in an {@link OutboundQueue}
+ * per connection. They are read and written by a thread each per connection, or both by a shared NIO event loop.
+ */
+public class TcpTransport implements Transport {
+    /**
+     * The name of the transport
+     */
+    public static final String NAME = "tcp";
+    /**
+     * The logger for the TcpTransport class
+     */
+    private static final Logger logger = LogManager.getLogger(TcpTransport.class);
+    private final Level NOTICE = Level.forName("NOTICE", 350);
+    /**
+     * The codec used to encode and decode the frames
+     */
+    private final MessageCodec codec;
+
+    /**
+     * Create a new TCP transport
+     *
+     * @param codec The codec used to encode and decode the frames
+     */
+    public TcpTransport(MessageCodec codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Get the codec used to encode and decode the frames
+     *
+     * @return The codec of the transport
+     */
+    public MessageCodec getCodec() {
+        return codec;
+    }
+
+    @Override
+    public Closeable listen(int port, ChannelListener receiver, MessageListener onSent) throws IOException {
+        ServerSocketChannel serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.bind(new InetSocketAddress(port));
+        } catch (IOException e) {
+            serverChannel.close();
+            throw e;
+        }
+        if (Configuration.nioServer()) {
+            startNioListener(port, serverChannel, receiver, onSent);
+        } else {
+            startListener(port, serverChannel, receiver, onSent);
+        }
+        return () -> NioEventLoop.close(serverChannel);
+    }
+
+    @Override
+    public TransportChannel connect(InetSocketAddress address, String name, ChannelListener receiver, MessageListener onSent) throws IOException {
+        SocketChannel channel = SocketChannel.open();
+        try {
+            // The port the system picks for the connection stays free for a listener on the same host
+            channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            channel.connect(address);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return open(channel, name, receiver, onSent);
+    }
+
+    /**
+     * Start writing and reading a connected socket channel
+     *
+     * @param channel  The connected socket channel
+     * @param name     The name of the connection
+     * @param receiver The receiver of the messages of the connection
+     * @param onSent   Called for every queued message
+     * @return The channel of the connection
+     * @throws IOException If the channel cannot be switched to non-blocking mode
+     */
+    private TcpChannel open(SocketChannel channel, String name, ChannelListener receiver, MessageListener onSent) throws IOException {
+        if (Configuration.nioServer()) {
+            // Switched before anything is queued, the event loop writes only what fits into the send buffer
+            channel.configureBlocking(false);
+            NioEventLoop loop = NioEventLoop.next();
+            OutboundQueue outboundQueue = new OutboundQueue(name, channel, loop, Configuration.outboundCapacity(), Configuration.outboundOverflow());
+            TcpChannel tcpChannel = new TcpChannel(channel, outboundQueue, onSent);
+            loop.register(channel, SelectionKey.OP_READ, new NioConnection(channel, codec, (message, frameSize) -> receiver.onMessage(tcpChannel, message, frameSize), outboundQueue));
+            return tcpChannel;
+        }
+        OutboundQueue outboundQueue = new OutboundQueue(name, channel, Configuration.outboundCapacity(), Configuration.outboundOverflow());
+        outboundQueue.start();
+        TcpChannel tcpChannel = new TcpChannel(channel, outboundQueue, onSent);
+        messageHandler(name, tcpChannel, receiver);
+        return tcpChannel;
+    }
+
+    /**
+     * Start the listener with a thread per connection
+     */
+    private void startListener(int port, ServerSocketChannel serverChannel, ChannelListener receiver, MessageListener onSent) {
+        logger.log(NOTICE, "Server started on port " + port);
+        ActivityExecutor.execute("server-" + port, () -> {
+            // Keep accepting clients until the listener is closed
+            while (serverChannel.isOpen()) {
+                try {
+                    // Accept a client connection
+                    SocketChannel channel = serverChannel.accept();
+                    Socket socket = channel.socket();
+                    logger.log(NOTICE, "Client connected: " + socket.getInetAddress().getHostAddress() + ":" + socket.getPort());
+                    // Create new thread for message handling per socket
+                    open(channel, "accepted-" + port + "-" + socket.getPort(), receiver, onSent);
+                } catch (AsynchronousCloseException e) {
+                    break;
+                } catch (IOException e) {
+                    logger.error("Error accepting client connection", e);
+                }
+            }
+            logger.log(NOTICE, "Server stopped accepting on port " + port);
+        });
+    }
+
+    /**
+     * Start the listener on a shared NIO event loop
+     * Accepting, reading and dispatching are done without a thread per connection
+     */
+    private void startNioListener(int port, ServerSocketChannel serverChannel, ChannelListener receiver, MessageListener onSent) {
+        logger.log(NOTICE, "Server started on port " + port + " (nio)");
+        NioEventLoop.next().register(serverChannel, SelectionKey.OP_ACCEPT, key -> {
+            SocketChannel channel = serverChannel.accept();
+            if (channel == null) {
+                return;
+            }
+            Socket socket = channel.socket();
+            logger.log(NOTICE, "Client connected: " + socket.getInetAddress().getHostAddress() + ":" + socket.getPort());
+            open(channel, "accepted-" + port + "-" + socket.getPort(), receiver, onSent);
+        });
+    }
+
+    /**
+     * Handle messages of a connection
+     *
+     * @param name     The name of the connection
+     * @param channel  The channel of the connection
+     * @param receiver The receiver of the messages
+     */
+    private void messageHandler(String name, TcpChannel channel, ChannelListener receiver) {
+        ActivityExecutor.execute("handler-" + name, () -> {
+            OutboundQueue.markReader();
+            try {
+                // Frames are read through one buffered stream for the lifetime of the socket
+                DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.channel)));
+                while (true) {
+                    try {
+                        // Read a message from the neighbor and handle it
+                        byte[] payload = codec.readPayload(in);
+                        receiver.onMessage(channel, codec.decode(ByteBuffer.wrap(payload)), MessageCodec.LENGTH_PREFIX + payload.length);
+                    } catch (EOFException e) {
+                        logger.debug("Connection closed by the neighbor: " + channel);
+                        break;
+                    }
+                }
+            } catch (ClosedChannelException e) {
+                logger.debug("Connection closed: " + name);
+            } catch (IOException e) {
+                logger.error("Error while handling client request", e);
+            } finally {
+                channel.close();
+            }
+        });
+    }
+
+    /**
+     * A TCP connection whose frames are written by an outbound queue
+     */
+    public class TcpChannel implements TransportChannel {
+        /**
+         * The socket channel of the connection
+         */
+        private final SocketChannel channel;
+        /**
+         * The queue of the frames to write
+         */
+        private final OutboundQueue outboundQueue;
+        /**
+         * Called for every queued message
+         */
+        private final MessageListener onSent;
+
+        /**
+         * Create a new TCP channel
+         *
+         * @param channel       The connected socket channel
+         * @param outboundQueue The queue of the frames to write
+         * @param onSent        Called for every queued message
+         */
+        private TcpChannel(SocketChannel channel, OutboundQueue outboundQueue, MessageListener onSent) {
+            this.channel = channel;
+            this.outboundQueue = outboundQueue;
+            this.onSent = onSent;
+        }
+
+        @Override
+        public boolean send(Message message, boolean droppable) throws IOException {
+            try {
+                byte[] frame = codec.encode(message);
+                if (!outboundQueue.offer(frame, droppable)) {
+                    return false;
+                }
+                onSent.onMessage(message, frame.length);
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while queueing a message", e);
+            }
+        }
+
+        @Override
+        public boolean isConnected() {
+            return channel.isConnected() && !outboundQueue.isClosed();
+        }
+
+        @Override
+        public void close() {
+            outboundQueue.close();
+            NioEventLoop.close(channel);
+        }
+
+        @Override
+        public OutboundQueue getOutboundQueue() {
+            return outboundQueue;
+        }
+
+        /**
+         * Get the local address of the connection
+         *
+         * @return The local socket address
+         * @throws IOException If the channel is closed
+         */
+        public SocketAddress getLocalAddress() throws IOException {
+            return channel.getLocalAddress();
+        }
+
+        /**
+         * Get the remote address of the connection
+         *
+         * @return The socket address of the neighbor
+         * @throws IOException If the channel is closed
+         */
+        public SocketAddress getRemoteAddress() throws IOException {
+            return channel.getRemoteAddress();
+        }
+
+        @Override
+        public String toString() {
+            return channel.socket().toString();
+        }
+    }
+}
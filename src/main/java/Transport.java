@@ -0,0 +1,99 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+/**
+ * The way philosophers exchange messages with their neighbors
+ * <p>
+ * The fork protocol, the counter gossip and the pings are written against this interface, so the same philosopher
+ * runs over TCP between processes or in memory between philosophers of the same process.
+ */
+public interface Transport {
+    /**
+     * A listener of the messages passing through a transport
+     */
+    interface MessageListener {
+        /**
+         * Handle a message
+         *
+         * @param message   The message
+         * @param frameSize The size of the frame in bytes, 0 if the transport does not encode messages
+         */
+        void onMessage(Message message, int frameSize);
+    }
+
+    /**
+     * A receiver of the messages of the connections of a transport
+     */
+    interface ChannelListener {
+        /**
+         * Handle a message received on a connection
+         *
+         * @param channel   The connection the message was received on, replies are sent on the same connection
+         * @param message   The message
+         * @param frameSize The size of the frame in bytes, 0 if the transport does not encode messages
+         */
+        void onMessage(TransportChannel channel, Message message, int frameSize);
+    }
+
+    /**
+     * Get the name of the transport
+     *
+     * @return The name used to select the transport
+     */
+    String getName();
+
+    /**
+     * Accept the connections of the neighbors on a port until the returned listener is closed
+     * Closing the listener does not close the accepted connections
+     *
+     * @param port     The port to listen on
+     * @param receiver The receiver of the messages of all accepted connections
+     * @param onSent   Called for every message accepted by an accepted connection
+     * @return The listener, closed to stop accepting
+     * @throws IOException If the port cannot be bound
+     */
+    Closeable listen(int port, ChannelListener receiver, MessageListener onSent) throws IOException;
+
+    /**
+     * Accept the connections of the neighbors on an address until the returned listener is closed
+     * Transports that bind a port on every interface ignore the host of the address
+     *
+     * @param address  The address to listen on
+     * @param receiver The receiver of the messages of all accepted connections
+     * @param onSent   Called for every message accepted by an accepted connection
+     * @return The listener, closed to stop accepting
+     * @throws IOException If the address cannot be bound
+     */
+    default Closeable listen(InetSocketAddress address, ChannelListener receiver, MessageListener onSent) throws IOException {
+        return listen(address.getPort(), receiver, onSent);
+    }
+
+    /**
+     * Connect to a neighbor
+     *
+     * @param address  The address of the neighbor
+     * @param name     The name of the connection, used for threads and logs
+     * @param receiver The receiver of the messages sent back by the neighbor
+     * @param onSent   Called for every message accepted by the channel
+     * @return The connected channel
+     * @throws IOException If the neighbor cannot be reached
+     */
+    TransportChannel connect(InetSocketAddress address, String name, ChannelListener receiver, MessageListener onSent) throws IOException;
+
+    /**
+     * Get a transport by name
+     *
+     * @param name The name of the transport, "tcp" or "memory"
+     * @return The transport
+     */
+    static Transport forName(String name) {
+        if (TcpTransport.NAME.equalsIgnoreCase(name)) {
+            return new TcpTransport(Configuration.codec());
+        }
+        if (InMemoryTransport.NAME.equalsIgnoreCase(name)) {
+            return InMemoryTransport.getDefault();
+        }
+        throw new IllegalArgumentException("Unknown transport: " + name);
+    }
+}
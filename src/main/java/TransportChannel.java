@@ -0,0 +1,39 @@
+import java.io.IOException;
+
+/**
+ * A full-duplex connection to a neighbor
+ * Messages of the neighbor arrive at the receiver the connection was opened or accepted with
+ */
+public interface TransportChannel {
+    /**
+     * Send a message to the neighbor
+     * The message must not be modified after it was sent, since a transport may hand it over without copying
+     *
+     * @param message   The message to send
+     * @param droppable True if the message may be dropped when the connection is congested
+     * @return True if the message was accepted for delivery
+     * @throws IOException If the message cannot be sent
+     */
+    boolean send(Message message, boolean droppable) throws IOException;
+
+    /**
+     * Check if the connection is established and has not failed
+     *
+     * @return True if the channel is connected
+     */
+    boolean isConnected();
+
+    /**
+     * Close the connection
+     */
+    void close();
+
+    /**
+     * Get the queue of the frames written to the neighbor
+     *
+     * @return The outbound queue of the connection, or null if the transport does not queue frames per neighbor
+     */
+    default OutboundQueue getOutboundQueue() {
+        return null;
+    }
+}
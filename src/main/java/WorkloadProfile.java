@@ -0,0 +1,218 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * The workload of the philosophers: how long they think and eat, and when they get hungry
+ * <p>
+ * A profile is read from a properties file, see {@link Configuration#workload()}. Times are in milliseconds, rates in
+ * meals per second and philosopher. The keys and their defaults are:
+ * <pre>
+ * arrival=closed       closed, poisson, bursty or trace
+ * think.min=5000       the thinking time of the closed loop
+ * think.max=30000
+ * eat.min=5000         the eating time of a meal
+ * eat.max=10000
+ * rate=0.1             the mean arrival rate of the open-loop processes
+ * burst.size=5         the number of meals that arrive together in the bursty process
+ * trace=               the trace file of the trace process, relative to the profile
+ * seed=1               the seed of the arrival processes, mixed with the philosopher id
+ * report.interval=60   the time in seconds between two reports of a load generator, 0 disables them
+ * </pre>
+ * In the closed loop a philosopher gets hungry after thinking, once its previous meal ended, see {@link Game}. The
+ * open-loop processes let meals arrive independently of the meals before them, see {@link LoadGenerator}. A line of a
+ * trace file holds the arrival time of a meal since the start of the run and optionally its eating time; lines
+ * starting with # are ignored.
+ */
+public final class WorkloadProfile {
+    /**
+     * The arrival processes
+     */
+    public enum Arrival {
+        CLOSED, POISSON, BURSTY, TRACE
+    }
+
+    /**
+     * The process that decides when the meals arrive
+     */
+    private final Arrival arrival;
+    /**
+     * The bounds of the thinking and eating times in milliseconds
+     */
+    private final int minThink;
+    private final int maxThink;
+    private final int minEat;
+    private final int maxEat;
+    /**
+     * The mean arrival rate in meals per second, the meals per burst and the trace file of the open-loop processes
+     */
+    private final double rate;
+    private final int burstSize;
+    private final Path trace;
+    /**
+     * The seed of the arrival processes
+     */
+    private final long seed;
+    /**
+     * The time in seconds between two reports of a load generator
+     */
+    private final int reportInterval;
+
+    private WorkloadProfile(Properties properties, Path base) {
+        try {
+            arrival = Arrival.valueOf(properties.getProperty("arrival", "closed").trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown arrival process: " + properties.getProperty("arrival"));
+        }
+        minThink = intProperty(properties, "think.min", 5000);
+        maxThink = intProperty(properties, "think.max", 30000);
+        minEat = intProperty(properties, "eat.min", 5000);
+        maxEat = intProperty(properties, "eat.max", 10000);
+        rate = doubleProperty(properties, "rate", 0.1);
+        burstSize = intProperty(properties, "burst.size", 5);
+        seed = Long.parseLong(properties.getProperty("seed", "1").trim());
+        reportInterval = intProperty(properties, "report.interval", 60);
+        String traceFile = properties.getProperty("trace", "").trim();
+        trace = traceFile.isEmpty() ? null : base == null ? Path.of(traceFile) : base.resolve(traceFile);
+        if (minThink < 0 || minThink > maxThink) {
+            throw new IllegalArgumentException("The thinking time must be a range of 0 or more milliseconds");
+        }
+        if (minEat < 0 || minEat > maxEat) {
+            throw new IllegalArgumentException("The eating time must be a range of 0 or more milliseconds");
+        }
+        if ((arrival == Arrival.POISSON || arrival == Arrival.BURSTY) && !(rate > 0)) {
+            throw new IllegalArgumentException("The arrival rate must be greater than 0");
+        }
+        if (burstSize < 1) {
+            throw new IllegalArgumentException("The burst size must be greater than 0");
+        }
+        if (arrival == Arrival.TRACE && trace == null) {
+            throw new IllegalArgumentException("The trace arrival process needs a trace file");
+        }
+        if (reportInterval < 0) {
+            throw new IllegalArgumentException("The report interval cannot be negative");
+        }
+    }
+
+    /**
+     * Get the default profile, the closed loop with the thinking and eating times of the original game
+     *
+     * @return The default profile
+     */
+    public static WorkloadProfile defaults() {
+        return new WorkloadProfile(new Properties(), null);
+    }
+
+    /**
+     * Create a profile from properties, a relative trace file is resolved against the working directory
+     *
+     * @param properties The properties of the profile, missing keys take their defaults
+     * @return The profile
+     */
+    public static WorkloadProfile of(Properties properties) {
+        return new WorkloadProfile(properties, null);
+    }
+
+    /**
+     * Load a profile from a properties file, a relative trace file is resolved against the directory of the profile
+     *
+     * @param file The properties file
+     * @return The profile
+     * @throws IOException If the file cannot be read
+     */
+    public static WorkloadProfile load(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        return new WorkloadProfile(properties, file.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Check if meals arrive independently of the meals before them
+     *
+     * @return True for the Poisson, bursty and trace processes
+     */
+    public boolean isOpenLoop() {
+        return arrival != Arrival.CLOSED;
+    }
+
+    public Arrival getArrival() {
+        return arrival;
+    }
+
+    public int getMinThink() {
+        return minThink;
+    }
+
+    public int getMaxThink() {
+        return maxThink;
+    }
+
+    public int getMinEat() {
+        return minEat;
+    }
+
+    public int getMaxEat() {
+        return maxEat;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public int getBurstSize() {
+        return burstSize;
+    }
+
+    public Path getTrace() {
+        return trace;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getReportInterval() {
+        return reportInterval;
+    }
+
+    @Override
+    public String toString() {
+        return "WorkloadProfile{" +
+                "arrival=" + arrival +
+                ", think=" + minThink + "-" + maxThink +
+                ", eat=" + minEat + "-" + maxEat +
+                ", rate=" + rate +
+                ", burstSize=" + burstSize +
+                ", trace=" + trace +
+                '}';
+    }
+
+    /**
+     * Read an integer property
+     */
+    private static int intProperty(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        try {
+            return value == null ? defaultValue : Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value of " + key + ": " + value);
+        }
+    }
+
+    /**
+     * Read a decimal property
+     */
+    private static double doubleProperty(Properties properties, String key, double defaultValue) {
+        String value = properties.getProperty(key);
+        try {
+            return value == null ? defaultValue : Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value of " + key + ": " + value);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+import org.junit.jupiter.api.Assertions;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Util methods shared by the tests that run rings of philosophers in one process
+ */
+final class RingFixture {
+
+    private RingFixture() {
+    }
+
+    /**
+     * Create a ring of philosophers on a new in-memory transport and wait until the neighbors are connected
+     * Tests that read the metrics of the default registry use ids that are not shared with other tests
+     *
+     * @param firstId   The id of the first philosopher, the others follow in order
+     * @param firstPort The port of the first philosopher, the others follow in order
+     * @param size      The number of philosophers
+     * @return The philosophers in ring order
+     */
+    static Philosopher[] createRing(int firstId, int firstPort, int size) {
+        return createRing(new InMemoryTransport(), firstId, firstPort, size);
+    }
+
+    /**
+     * Create a ring of philosophers on a transport and wait until the neighbors are connected
+     *
+     * @param transport The transport of the philosophers
+     * @param firstId   The id of the first philosopher, the others follow in order
+     * @param firstPort The port of the first philosopher, the others follow in order
+     * @param size      The number of philosophers
+     * @return The philosophers in ring order
+     */
+    static Philosopher[] createRing(Transport transport, int firstId, int firstPort, int size) {
+        return createRing(transport, MetricsRegistry.getDefault(), firstId, firstPort, size);
+    }
+
+    /**
+     * Create a ring of philosophers on a new in-memory transport with their own metrics registry and wait until the
+     * neighbors are connected
+     *
+     * @param registry  The registry of the metrics of the philosophers
+     * @param firstId   The id of the first philosopher, the others follow in order
+     * @param firstPort The port of the first philosopher, the others follow in order
+     * @param size      The number of philosophers
+     * @return The philosophers in ring order
+     */
+    static Philosopher[] createRing(MetricsRegistry registry, int firstId, int firstPort, int size) {
+        return createRing(new InMemoryTransport(), registry, firstId, firstPort, size);
+    }
+
+    /**
+     * Create a ring of philosophers and wait until the neighbors are connected
+     */
+    private static Philosopher[] createRing(Transport transport, MetricsRegistry registry, int firstId, int firstPort, int size) {
+        Philosopher[] philosophers = new Philosopher[size];
+        Server[] servers = new Server[size];
+        for (int i = 0; i < size; i++) {
+            int left = firstPort + (i + size - 1) % size;
+            int right = firstPort + (i + 1) % size;
+            philosophers[i] = new Philosopher(firstId + i, "localhost", left, "localhost", right, transport, registry);
+            philosophers[i].start();
+            servers[i] = new Server(philosophers[i], firstPort + i);
+        }
+        try {
+            // Wait for the servers to finish
+            for (Server server : servers) {
+                server.getServerLatch().await();
+            }
+        } catch (InterruptedException e) {
+            throw new RuntimeException("Error while waiting for server to finish", e);
+        }
+        return philosophers;
+    }
+
+    /**
+     * Set the eatInterval of a philosopher
+     */
+    static void setEatInterval(Philosopher philosopher, int[] eatInterval) {
+        try {
+            Field eatIntervalField = Philosopher.class.getDeclaredField("eatInterval");
+            eatIntervalField.setAccessible(true);
+            eatIntervalField.set(philosopher, eatInterval);
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Let philosophers eat for 1-2 seconds instead of the usual intervals
+     *
+     * @return The philosophers
+     */
+    static Philosopher[] withShortMeals(Philosopher... philosophers) {
+        for (Philosopher philosopher : philosophers) {
+            setEatInterval(philosopher, new int[]{2, 1});
+        }
+        return philosophers;
+    }
+
+    /**
+     * Let every philosopher of a ring eat a number of meals on its own thread, and assert that neighbors never eat at
+     * the same time and every philosopher gets its meals
+     *
+     * @param ring          The philosophers in ring order, the first and the last are neighbors
+     * @param rounds        The number of meals of every philosopher
+     * @param timeoutMillis The maximum time to wait for each philosopher to finish
+     * @throws InterruptedException If the thread is interrupted while waiting
+     */
+    static void assertMutualExclusion(List<Philosopher> ring, int rounds, long timeoutMillis) throws InterruptedException {
+        int size = ring.size();
+        AtomicIntegerArray inCriticalSection = new AtomicIntegerArray(size);
+        AtomicBoolean violated = new AtomicBoolean(false);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            int index = i;
+            Philosopher philosopher = ring.get(i);
+            Thread thread = new Thread(() -> {
+                for (int round = 0; round < rounds; round++) {
+                    philosopher.requestForks();
+                    inCriticalSection.set(index, 1);
+                    if (inCriticalSection.get((index + size - 1) % size) == 1 || inCriticalSection.get((index + 1) % size) == 1) {
+                        violated.set(true);
+                    }
+                    philosopher.eat();
+                    inCriticalSection.set(index, 0);
+                    philosopher.releaseForks();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join(timeoutMillis);
+            Assertions.assertFalse(thread.isAlive());
+        }
+        Assertions.assertFalse(violated.get());
+        for (Philosopher philosopher : ring) {
+            Assertions.assertEquals(rounds, philosopher.getLocalGCounter().get(philosopher.getPhilosopherId()));
+        }
+    }
+}
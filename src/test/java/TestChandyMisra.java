@@ -0,0 +1,76 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class TestChandyMisra {
+
+    /**
+     * The metrics of the philosophers of a test, counted apart from the philosophers of other tests
+     */
+    private final MetricsRegistry registry = new MetricsRegistry();
+
+    /**
+     * Util method to create a ring of philosophers with the Chandy-Misra protocol and short eating intervals
+     */
+    private Philosopher[] createRing(int firstId, int firstPort, int size) {
+        System.setProperty(Configuration.PROTOCOL, ChandyMisra.NAME);
+        try {
+            return RingFixture.withShortMeals(RingFixture.createRing(registry, firstId, firstPort, size));
+        } finally {
+            System.clearProperty(Configuration.PROTOCOL);
+        }
+    }
+
+    /**
+     * Util method to count the fork messages sent by a philosopher
+     */
+    private long forkMessagesSent(Philosopher philosopher) {
+        long sent = 0;
+        for (MessageType type : new MessageType[]{MessageType.REQUEST, MessageType.REPLY}) {
+            for (Direction direction : Direction.values()) {
+                sent += registry.counter("ddpp_messages_sent_total", "Messages sent to the neighbors",
+                        "philosopher", String.valueOf(philosopher.getPhilosopherId()), "type", type.name(), "direction", direction.name()).get();
+            }
+        }
+        return sent;
+    }
+
+    /**
+     * Test if a philosopher keeps its forks and eats again without messages until a neighbor asks for a fork
+     */
+    @Test
+    void chandyMisraTestKeepsForksUntilRequested() {
+        Philosopher[] philosophers = createRing(101, 50200, 3);
+        Assertions.assertEquals(ChandyMisra.NAME, philosophers[0].getForkProtocol().getName());
+        // The smallest id starts with both forks
+        for (int meal = 0; meal < 3; meal++) {
+            philosophers[0].requestForks();
+            philosophers[0].eat();
+            philosophers[0].releaseForks();
+        }
+        Assertions.assertEquals(0, forkMessagesSent(philosophers[0]));
+        Assertions.assertTrue(philosophers[0].hasLeftFork() && philosophers[0].hasRightFork());
+        // A neighbor gets the dirty fork on request
+        Assertions.assertTrue(philosophers[1].requestForks(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(philosophers[1].hasLeftFork() && philosophers[1].hasRightFork());
+        Assertions.assertFalse(philosophers[0].hasRightFork());
+        // A clean fork is kept while its holder waits for the other one, a dirty fork is handed over after eating
+        Assertions.assertFalse(philosophers[0].requestForks(200, TimeUnit.MILLISECONDS));
+        philosophers[1].releaseForks();
+        Assertions.assertTrue(philosophers[0].requestForks(5, TimeUnit.SECONDS));
+        philosophers[0].releaseForks();
+    }
+
+    /**
+     * Test if neighbors never eat at the same time and every philosopher gets its meals
+     */
+    @Test
+    void chandyMisraTestRingMutualExclusion() throws InterruptedException {
+        int size = 50;
+        int rounds = 5;
+        Philosopher[] philosophers = createRing(201, 50300, size);
+        RingFixture.assertMutualExclusion(List.of(philosophers), rounds, 60000);
+    }
+}
@@ -0,0 +1,67 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class TestColoringSchedule {
+
+    /**
+     * Test if neighbors never eat in the same turn and half of the table eats in every turn
+     */
+    @Test
+    void coloringScheduleTestNeighborsDiffer() {
+        for (int size = 2; size <= 9; size++) {
+            ColoringSchedule schedule = new ColoringSchedule(size, 1, TimeUnit.SECONDS);
+            int[] meals = new int[size + 1];
+            for (long turn = 0; turn < schedule.turnsPerRound(); turn++) {
+                int eaters = 0;
+                for (int id = 1; id <= size; id++) {
+                    if (schedule.eatsInTurn(id, turn)) {
+                        eaters++;
+                        meals[id]++;
+                        Assertions.assertFalse(schedule.eatsInTurn(schedule.neighbor(id, Direction.RIGHT), turn));
+                    }
+                }
+                Assertions.assertEquals(size / 2, eaters);
+            }
+            for (int id = 1; id <= size; id++) {
+                Assertions.assertEquals(schedule.mealsPerRound(), meals[id]);
+                Assertions.assertEquals(id, schedule.neighbor(schedule.neighbor(id, Direction.LEFT), Direction.RIGHT));
+            }
+        }
+    }
+
+    /**
+     * Test if the next turn of a philosopher starts at the first turn it eats in
+     */
+    @Test
+    void coloringScheduleTestNextTurn() {
+        ColoringSchedule schedule = new ColoringSchedule(5, 10, TimeUnit.NANOSECONDS);
+        // Philosopher 1 eats in the turns 0, 3, 5, 8, philosopher 5 in the turns 2, 4, 7
+        Assertions.assertEquals(0, schedule.nextTurn(1, 0));
+        Assertions.assertEquals(30, schedule.nextTurn(1, 1));
+        Assertions.assertEquals(50, schedule.nextTurn(1, 31));
+        Assertions.assertEquals(20, schedule.nextTurn(5, 0));
+        Assertions.assertEquals(20, schedule.nextTurn(5, 20));
+        Assertions.assertEquals(40, schedule.nextTurn(5, 21));
+        Assertions.assertEquals(70, schedule.nextTurn(5, 41));
+        ColoringSchedule even = new ColoringSchedule(4, 10, TimeUnit.NANOSECONDS);
+        Assertions.assertEquals(20, even.nextTurn(1, 1));
+        Assertions.assertEquals(30, even.nextTurn(2, 11));
+    }
+
+    /**
+     * Test if the schedule is only used when the neighbors are seated in the order of their ids
+     */
+    @Test
+    void coloringScheduleTestMatches() {
+        ColoringSchedule schedule = new ColoringSchedule(4, 1, TimeUnit.SECONDS);
+        Assertions.assertTrue(schedule.matches(1, 4, 2));
+        Assertions.assertTrue(schedule.matches(4, 3, 1));
+        Assertions.assertFalse(schedule.matches(1, 2, 4));
+        Assertions.assertFalse(schedule.matches(5, 4, 1));
+        Assertions.assertFalse(schedule.matches(2, 0, 3));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ColoringSchedule(1, 1, TimeUnit.SECONDS));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> schedule.eatsInTurn(5, 0));
+    }
+}
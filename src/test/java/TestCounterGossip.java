@@ -0,0 +1,130 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestCounterGossip {
+
+    /**
+     * Test if only changed entries are sent after the first update
+     */
+    @Test
+    void counterGossipTestDeltaContainsOnlyChangedEntries() {
+        GCounter gCounter = new GCounter(1);
+        CounterGossip gossip = new CounterGossip(gCounter);
+        gCounter.increment();
+        gCounter.merge(2, 5);
+
+        GCounter delta = gossip.delta(Direction.LEFT);
+        Assertions.assertEquals(2, delta.size());
+        gossip.markSent(Direction.LEFT, delta);
+        Assertions.assertNull(gossip.delta(Direction.LEFT));
+        // The right neighbor has not received anything yet
+        Assertions.assertEquals(2, gossip.delta(Direction.RIGHT).size());
+
+        gCounter.increment();
+        delta = gossip.delta(Direction.LEFT);
+        Assertions.assertEquals(1, delta.size());
+        Assertions.assertEquals(2, delta.query());
+    }
+
+    /**
+     * Test if an entry raised while its delta is written stays pending for the next round
+     */
+    @Test
+    void counterGossipTestEntryRaisedDuringSendStaysPending() {
+        GCounter gCounter = new GCounter(1);
+        for (int id = 1; id <= 1000; id++) {
+            gCounter.merge(id, 1);
+        }
+        CounterGossip gossip = new CounterGossip(gCounter);
+        GCounter delta = gossip.delta(Direction.LEFT);
+        Assertions.assertEquals(1000, delta.size());
+        gCounter.merge(500, 2);
+        gossip.markSent(Direction.LEFT, delta);
+        delta = gossip.delta(Direction.LEFT);
+        Assertions.assertEquals(1, delta.size());
+        Assertions.assertEquals(2, delta.get(500));
+        gossip.markSent(Direction.LEFT, delta);
+        Assertions.assertNull(gossip.delta(Direction.LEFT));
+    }
+
+    /**
+     * Test if a digest that keeps diverging causes the full state to be sent again
+     */
+    @Test
+    void counterGossipTestDigestMismatchResendsFullState() {
+        GCounter gCounter = new GCounter(1);
+        CounterGossip gossip = new CounterGossip(gCounter);
+        gCounter.increment();
+        gCounter.merge(2, 5);
+        gossip.markSent(Direction.RIGHT, gossip.delta(Direction.RIGHT));
+
+        GCounter replica = new GCounter(3);
+        replica.merge(gCounter);
+        Assertions.assertFalse(gossip.receiveDigest(Direction.RIGHT, replica.size(), replica.digest()));
+        Assertions.assertNull(gossip.delta(Direction.RIGHT));
+
+        GCounter stale = new GCounter(3);
+        stale.merge(2, 5);
+        // A single mismatch may be a digest that overtook the record of a written delta
+        for (int i = 1; i < CounterGossip.MISMATCH_LIMIT; i++) {
+            Assertions.assertTrue(gossip.receiveDigest(Direction.RIGHT, stale.size(), stale.digest()));
+            Assertions.assertNull(gossip.delta(Direction.RIGHT));
+        }
+        // A matching digest starts the count again
+        Assertions.assertFalse(gossip.receiveDigest(Direction.RIGHT, replica.size(), replica.digest()));
+        for (int i = 1; i < CounterGossip.MISMATCH_LIMIT; i++) {
+            gossip.receiveDigest(Direction.RIGHT, stale.size(), stale.digest());
+        }
+        Assertions.assertNull(gossip.delta(Direction.RIGHT));
+        Assertions.assertTrue(gossip.receiveDigest(Direction.RIGHT, stale.size(), stale.digest()));
+        Assertions.assertEquals(2, gossip.delta(Direction.RIGHT).size());
+    }
+
+    /**
+     * Test if the acknowledgement of a state that was written before the latest deltas is no mismatch
+     */
+    @Test
+    void counterGossipTestDeltasInFlightAreNoMismatch() {
+        GCounter gCounter = new GCounter(1);
+        CounterGossip gossip = new CounterGossip(gCounter);
+        GCounter neighborCounter = new GCounter(2);
+        CounterGossip neighborGossip = new CounterGossip(neighborCounter);
+        gCounter.increment();
+        GCounter delta = gossip.delta(Direction.RIGHT);
+        gossip.markSent(Direction.RIGHT, delta);
+        neighborGossip.counterReceived(Direction.LEFT, delta);
+        CounterGossip.Digest acknowledged = neighborGossip.acknowledgement(Direction.LEFT);
+
+        // The next delta is still on its way while the neighbor keeps acknowledging the first one
+        gCounter.increment();
+        delta = gossip.delta(Direction.RIGHT);
+        gossip.markSent(Direction.RIGHT, delta);
+        for (int i = 0; i < CounterGossip.MISMATCH_LIMIT; i++) {
+            Assertions.assertFalse(gossip.receiveDigest(Direction.RIGHT, acknowledged.getSize(), acknowledged.getDigest()));
+        }
+        Assertions.assertNull(gossip.delta(Direction.RIGHT));
+
+        neighborGossip.counterReceived(Direction.LEFT, delta);
+        CounterGossip.Digest latest = neighborGossip.acknowledgement(Direction.LEFT);
+        Assertions.assertFalse(gossip.receiveDigest(Direction.RIGHT, latest.getSize(), latest.getDigest()));
+        // Once the latest state is acknowledged, the older one no longer matches
+        Assertions.assertTrue(gossip.receiveDigest(Direction.RIGHT, acknowledged.getSize(), acknowledged.getDigest()));
+    }
+
+    /**
+     * Test if the interval backs off while idle and resets on activity
+     */
+    @Test
+    void counterGossipTestIntervalBackoff() {
+        CounterGossip gossip = new CounterGossip(new GCounter(1));
+        gossip.roundFinished(false);
+        gossip.roundFinished(false);
+        Assertions.assertEquals(CounterGossip.MIN_INTERVAL * 4, gossip.getInterval());
+        for (int i = 0; i < 10; i++) {
+            gossip.roundFinished(false);
+        }
+        Assertions.assertEquals(CounterGossip.MAX_INTERVAL, gossip.getInterval());
+        gossip.roundFinished(true);
+        Assertions.assertEquals(CounterGossip.MIN_INTERVAL, gossip.getInterval());
+    }
+}
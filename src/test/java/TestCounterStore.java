@@ -0,0 +1,90 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestCounterStore {
+
+    /**
+     * Test if a reopened store restores every count of the counter, including the ones merged from neighbors
+     */
+    @Test
+    void counterStoreTestRestoresCounter() throws IOException {
+        Path file = Files.createTempDirectory("ddpp").resolve("counter-1.bin");
+        GCounter gCounter = new GCounter(1);
+        try (CounterStore store = new CounterStore(file)) {
+            store.attach(gCounter);
+            for (int i = 0; i < 5; i++) {
+                gCounter.increment();
+            }
+            gCounter.merge(2, 7);
+            gCounter.merge(Integer.MAX_VALUE, 3);
+            // The increments are written one by one, without closing the store
+            Assertions.assertEquals(5, store.get(1));
+            Assertions.assertEquals(3, store.size());
+        }
+        GCounter restored = new GCounter(1);
+        try (CounterStore store = new CounterStore(file)) {
+            store.attach(restored);
+            Assertions.assertEquals(gCounter.getCounters(), restored.getCounters());
+            Assertions.assertEquals(gCounter.digest(), restored.digest());
+            restored.increment();
+        }
+        try (CounterStore store = new CounterStore(file)) {
+            Assertions.assertEquals(6, store.get(1));
+        }
+    }
+
+    /**
+     * Test if the file grows beyond its first mapping and concurrent merges never lower a stored count
+     */
+    @Test
+    void counterStoreTestGrowsAndKeepsMaximum() throws IOException, InterruptedException {
+        Path file = Files.createTempDirectory("ddpp").resolve("counter-1.bin");
+        GCounter gCounter = new GCounter(1);
+        try (CounterStore store = new CounterStore(file)) {
+            store.attach(gCounter);
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int offset = t;
+                Thread thread = new Thread(() -> {
+                    for (int count = 1; count <= 200; count++) {
+                        for (int id = 2; id < 1002; id++) {
+                            if (id % 4 == offset || count % 50 == 0) {
+                                gCounter.merge(id, count);
+                            }
+                        }
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            store.write(2, 1);
+        }
+        try (CounterStore store = new CounterStore(file)) {
+            Assertions.assertEquals(1000, store.size());
+            for (int id = 2; id < 1002; id++) {
+                Assertions.assertEquals(200, store.get(id));
+            }
+        }
+    }
+
+    /**
+     * Test if a file of another format is rejected
+     */
+    @Test
+    void counterStoreTestRejectsOtherFiles() throws IOException {
+        Path file = Files.createTempFile("ddpp", ".bin");
+        Files.write(file, new byte[32]);
+        Assertions.assertThrows(IOException.class, () -> new CounterStore(file));
+        Files.write(file, new byte[]{1, 2, 3});
+        Assertions.assertThrows(IOException.class, () -> new CounterStore(file));
+    }
+}
@@ -0,0 +1,135 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestCriticalSectionBatcher {
+
+    /**
+     * Test if the tasks queued while a neighbor holds its lock run in one batch with a single acquisition of the forks
+     */
+    @Test
+    void criticalSectionBatcherTestRunsQueuedTasksInOneBatch() throws InterruptedException, ExecutionException, TimeoutException {
+        Philosopher[] philosophers = RingFixture.createRing(2201, 50720, 3);
+        CriticalSectionBatcher batcher = new CriticalSectionBatcher(philosophers[0], 8, 0, TimeUnit.MILLISECONDS);
+        batcher.start();
+        DistributedMutex neighbor = philosophers[1].getMutex();
+        neighbor.lock();
+        AtomicInteger ran = new AtomicInteger();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(batcher.submit(() -> {
+                Assertions.assertTrue(philosophers[0].getMutex().isHeldByCurrentThread());
+                ran.incrementAndGet();
+            }));
+        }
+        CompletableFuture<Void> failing = batcher.submit(() -> {
+            throw new IllegalStateException("Failed task");
+        });
+        Thread.sleep(200);
+        Assertions.assertEquals(0, ran.get());
+        neighbor.unlock();
+        for (CompletableFuture<Void> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        ExecutionException failure = Assertions.assertThrows(ExecutionException.class, () -> failing.get(10, TimeUnit.SECONDS));
+        Assertions.assertTrue(failure.getCause() instanceof IllegalStateException);
+        Assertions.assertEquals(8, ran.get());
+        MetricsRegistry.Histogram batchSize = philosophers[0].getMetrics().getBatchSize();
+        // The size of a batch is recorded after its tasks completed
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (batchSize.getCount() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        // The eight tasks fill the first batch, the failing task runs in a second one
+        Assertions.assertEquals(2, batchSize.getCount());
+        Assertions.assertEquals(9, batchSize.getSum());
+        Assertions.assertEquals(2, philosophers[0].getMutex().getAcquireLatency().getCount());
+    }
+
+    /**
+     * Test if a neighbor that asks for a fork during a long queue gets it once the time budget of the batch is spent
+     */
+    @Test
+    void criticalSectionBatcherTestBudgetBoundsNeighborWait() throws InterruptedException, ExecutionException, TimeoutException {
+        Philosopher[] philosophers = RingFixture.createRing(2301, 50730, 3);
+        CriticalSectionBatcher batcher = new CriticalSectionBatcher(philosophers[0], 100, 100, TimeUnit.MILLISECONDS);
+        batcher.start();
+        AtomicInteger ran = new AtomicInteger();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            futures.add(batcher.submit(() -> {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                ran.incrementAndGet();
+            }));
+        }
+        // Wait until the first batch is running
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (ran.get() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        DistributedMutex neighbor = philosophers[1].getMutex();
+        Assertions.assertTrue(neighbor.tryLock(5, TimeUnit.SECONDS));
+        int ranBeforeNeighbor = ran.get();
+        neighbor.unlock();
+        Assertions.assertTrue(ranBeforeNeighbor < 40);
+        for (CompletableFuture<Void> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        Assertions.assertEquals(40, ran.get());
+        Assertions.assertTrue(philosophers[0].getMetrics().getBatchSize().getCount() >= 2);
+    }
+
+    /**
+     * Test if a neighbor that asks for a fork during a long queue without a time budget gets it after the running task
+     */
+    @Test
+    void criticalSectionBatcherTestWaitingNeighborEndsBatch() throws InterruptedException, ExecutionException, TimeoutException {
+        Philosopher[] philosophers = RingFixture.createRing(2701, 50770, 3);
+        CriticalSectionBatcher batcher = new CriticalSectionBatcher(philosophers[0], 100, 0, TimeUnit.MILLISECONDS);
+        batcher.start();
+        AtomicInteger ran = new AtomicInteger();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            futures.add(batcher.submit(() -> {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                ran.incrementAndGet();
+            }));
+        }
+        // Wait until the first batch is running
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (ran.get() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        DistributedMutex neighbor = philosophers[1].getMutex();
+        Assertions.assertTrue(neighbor.tryLock(5, TimeUnit.SECONDS));
+        int ranBeforeNeighbor = ran.get();
+        neighbor.unlock();
+        Assertions.assertTrue(ranBeforeNeighbor < 40);
+        for (CompletableFuture<Void> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        Assertions.assertEquals(40, ran.get());
+        MetricsRegistry.Histogram batchSize = philosophers[0].getMetrics().getBatchSize();
+        // The size of a batch is recorded after its tasks completed
+        deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (batchSize.getCount() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        Assertions.assertTrue(batchSize.getCount() >= 2);
+    }
+}
@@ -0,0 +1,87 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+public class TestDistributedMutex {
+
+    /**
+     * Test if several threads per philosopher run their work without overlapping with the work of the neighbors
+     */
+    @Test
+    void distributedMutexTestExcludesNeighbors() throws InterruptedException {
+        int size = 3;
+        int threadsPerPhilosopher = 2;
+        int calls = 5;
+        Philosopher[] philosophers = RingFixture.createRing(2001, 50700, size);
+        AtomicIntegerArray inCriticalSection = new AtomicIntegerArray(size);
+        AtomicBoolean violated = new AtomicBoolean(false);
+        int[] work = new int[size];
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < size * threadsPerPhilosopher; i++) {
+            int index = i % size;
+            DistributedMutex mutex = philosophers[index].getMutex();
+            Thread thread = new Thread(() -> {
+                for (int call = 0; call < calls; call++) {
+                    mutex.withLock(() -> {
+                        if (inCriticalSection.getAndSet(index, 1) == 1
+                                || inCriticalSection.get((index + size - 1) % size) == 1 || inCriticalSection.get((index + 1) % size) == 1) {
+                            violated.set(true);
+                        }
+                        // Not atomic on purpose, the lock alone orders the updates
+                        work[index]++;
+                        inCriticalSection.set(index, 0);
+                    });
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join(30000);
+            Assertions.assertFalse(thread.isAlive());
+        }
+        Assertions.assertFalse(violated.get());
+        for (int i = 0; i < size; i++) {
+            DistributedMutex mutex = philosophers[i].getMutex();
+            Assertions.assertEquals(threadsPerPhilosopher * calls, work[i]);
+            Assertions.assertEquals(threadsPerPhilosopher * calls, mutex.getAcquireLatency().getCount());
+            Assertions.assertEquals(threadsPerPhilosopher * calls, mutex.getHoldTime().getCount());
+        }
+    }
+
+    /**
+     * Test if tryLock gives up while a neighbor holds its lock and only the holding thread may unlock
+     */
+    @Test
+    void distributedMutexTestTryLockAndOwnership() throws InterruptedException {
+        Philosopher[] philosophers = RingFixture.createRing(2101, 50710, 3);
+        DistributedMutex first = philosophers[0].getMutex();
+        DistributedMutex second = philosophers[1].getMutex();
+        first.lock();
+        Assertions.assertTrue(first.isHeldByCurrentThread());
+        Assertions.assertThrows(IllegalStateException.class, first::lock);
+        Assertions.assertFalse(second.tryLock(200, TimeUnit.MILLISECONDS));
+        Assertions.assertEquals(1, philosophers[1].getMetrics().getMutexTimeouts().get());
+        AtomicBoolean rejected = new AtomicBoolean(false);
+        Thread other = new Thread(() -> {
+            try {
+                first.unlock();
+            } catch (IllegalMonitorStateException e) {
+                rejected.set(true);
+            }
+        });
+        other.start();
+        other.join();
+        Assertions.assertTrue(rejected.get());
+        first.unlock();
+        Assertions.assertFalse(first.isHeldByCurrentThread());
+        Assertions.assertTrue(second.tryLock(5, TimeUnit.SECONDS));
+        second.unlock();
+        Assertions.assertThrows(IllegalMonitorStateException.class, second::unlock);
+    }
+}
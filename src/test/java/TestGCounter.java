@@ -0,0 +1,101 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+public class TestGCounter {
+
+    /**
+     * Test if merging keeps the maximum per philosopher and the cached total follows
+     */
+    @Test
+    void gCounterTestMergeKeepsMaximum() {
+        GCounter gCounter = new GCounter(1);
+        gCounter.increment();
+        Assertions.assertTrue(gCounter.merge(2, 10));
+        Assertions.assertFalse(gCounter.merge(2, 7));
+        Assertions.assertTrue(gCounter.merge(Integer.MAX_VALUE, 3));
+        Assertions.assertEquals(14, gCounter.query());
+        Assertions.assertEquals(3, gCounter.size());
+        Assertions.assertEquals(10, gCounter.get(2));
+        Assertions.assertEquals(3, gCounter.get(Integer.MAX_VALUE));
+        Assertions.assertEquals(0, gCounter.get(5000));
+    }
+
+    /**
+     * Test if counters with the same entries have the same digest independent of the merge order
+     */
+    @Test
+    void gCounterTestDigestIsOrderIndependent() {
+        GCounter first = new GCounter(1);
+        GCounter second = new GCounter(2);
+        first.merge(1, 4);
+        first.merge(100000, 2);
+        first.merge(3, 1);
+        second.merge(3, 1);
+        second.merge(1, 2);
+        second.merge(100000, 2);
+        Assertions.assertNotEquals(first.digest(), second.digest());
+        second.merge(1, 4);
+        Assertions.assertEquals(first.digest(), second.digest());
+        Assertions.assertEquals(first.getCounters(), second.getCounters());
+    }
+
+    /**
+     * Test if concurrent increments and merges are not lost
+     */
+    @Test
+    void gCounterTestConcurrentUpdates() throws InterruptedException {
+        GCounter gCounter = new GCounter(7);
+        int increments = 100000;
+        Thread incrementer = new Thread(() -> {
+            for (int i = 0; i < increments; i++) {
+                gCounter.increment();
+            }
+        });
+        Thread merger = new Thread(() -> {
+            for (int i = 1; i <= increments; i++) {
+                gCounter.merge(1000 + i % 5000, i);
+            }
+        });
+        incrementer.start();
+        merger.start();
+        incrementer.join();
+        merger.join();
+        Assertions.assertEquals(increments, gCounter.get(7));
+        long expected = 0;
+        for (long count : gCounter.getCounters().values()) {
+            expected += count;
+        }
+        Assertions.assertEquals(expected, gCounter.query());
+        Assertions.assertEquals(gCounter.getCounters().size(), gCounter.size());
+    }
+
+    /**
+     * Test if a serialized counter keeps its dense and sparse counts, total and digest
+     */
+    @Test
+    void gCounterTestSerializationKeepsCounts() throws IOException, ClassNotFoundException {
+        GCounter gCounter = new GCounter(1);
+        gCounter.increment();
+        gCounter.merge(70, 5);
+        gCounter.merge(Integer.MAX_VALUE, 3);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(gCounter);
+        }
+        GCounter copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (GCounter) in.readObject();
+        }
+        Assertions.assertEquals(gCounter.getCounters(), copy.getCounters());
+        Assertions.assertEquals(9, copy.query());
+        Assertions.assertEquals(gCounter.digest(), copy.digest());
+        Assertions.assertTrue(copy.merge(Integer.MAX_VALUE, 4));
+        Assertions.assertEquals(4, copy.get(Integer.MAX_VALUE));
+    }
+}
@@ -0,0 +1,152 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class TestInMemoryTransport {
+
+    /**
+     * A transport of a single philosopher that can crash
+     * After the crash the philosopher neither sends nor receives frames and cannot be reached, but its connections
+     * stay open, so its neighbors only notice the silence
+     */
+    private static class CrashableTransport implements Transport {
+        private final Transport transport;
+        private final Map<TransportChannel, TransportChannel> channels = new ConcurrentHashMap<>();
+        private volatile boolean crashed = false;
+        private Closeable listener;
+
+        private CrashableTransport(Transport transport) {
+            this.transport = transport;
+        }
+
+        private synchronized void crash() throws IOException {
+            crashed = true;
+            if (listener != null) {
+                listener.close();
+            }
+        }
+
+        @Override
+        public String getName() {
+            return transport.getName();
+        }
+
+        @Override
+        public synchronized Closeable listen(int port, ChannelListener receiver, MessageListener onSent) throws IOException {
+            if (crashed) {
+                throw new IOException("Crashed");
+            }
+            listener = transport.listen(port, wrap(receiver), onSent);
+            return listener;
+        }
+
+        @Override
+        public TransportChannel connect(InetSocketAddress address, String name, ChannelListener receiver, MessageListener onSent) throws IOException {
+            if (crashed) {
+                throw new ConnectException("Crashed");
+            }
+            return wrap(transport.connect(address, name, wrap(receiver), onSent));
+        }
+
+        private ChannelListener wrap(ChannelListener receiver) {
+            return (channel, message, frameSize) -> {
+                if (!crashed) {
+                    receiver.onMessage(wrap(channel), message, frameSize);
+                }
+            };
+        }
+
+        private TransportChannel wrap(TransportChannel channel) {
+            return channels.computeIfAbsent(channel, end -> new TransportChannel() {
+                @Override
+                public boolean send(Message message, boolean droppable) throws IOException {
+                    return crashed || end.send(message, droppable);
+                }
+
+                @Override
+                public boolean isConnected() {
+                    return end.isConnected();
+                }
+
+                @Override
+                public void close() {
+                    end.close();
+                }
+            });
+        }
+    }
+
+    /**
+     * Test if the in-memory transport orders the messages like TCP, so the Lamport clocks end up the same
+     */
+    @Test
+    void inMemoryTransportTestLamportClockForNPhilosophers() {
+        Philosopher[] philosophers = RingFixture.withShortMeals(RingFixture.createRing(3001, 50000, 3));
+        for (int i = 0; i < 2; i++) {
+            for (Philosopher philosopher : philosophers) {
+                philosopher.requestForks();
+                philosopher.eat();
+                philosopher.releaseForks();
+            }
+            Assertions.assertEquals((i + 1) * 6, philosophers[0].getLamportClock().getTimestamp());
+            Assertions.assertEquals((i + 1) * 6, philosophers[1].getLamportClock().getTimestamp());
+            Assertions.assertEquals(((i + 1) * 6) - 1, philosophers[2].getLamportClock().getTimestamp());
+        }
+    }
+
+    /**
+     * Test if a large ring in one process keeps neighbors out of the critical section at the same time
+     */
+    @Test
+    void inMemoryTransportTestLargeRingMutualExclusion() throws InterruptedException {
+        int size = 200;
+        int rounds = 3;
+        Philosopher[] philosophers = RingFixture.withShortMeals(RingFixture.createRing(3001, 50000, size));
+        RingFixture.assertMutualExclusion(List.of(philosophers), rounds, 60000);
+    }
+
+    /**
+     * Test if the neighbors of a crashed philosopher connect to each other and keep eating
+     */
+    @Test
+    void inMemoryTransportTestRingRepair() throws InterruptedException, IOException {
+        int size = 5;
+        InMemoryTransport transport = new InMemoryTransport();
+        CrashableTransport[] transports = new CrashableTransport[size];
+        Philosopher[] philosophers = new Philosopher[size];
+        Server[] servers = new Server[size];
+        for (int i = 0; i < size; i++) {
+            int left = 50100 + (i + size - 1) % size;
+            int right = 50100 + (i + 1) % size;
+            transports[i] = new CrashableTransport(transport);
+            philosophers[i] = new Philosopher(1101 + i, "localhost", left, "localhost", right, transports[i]);
+            RingFixture.setEatInterval(philosophers[i], new int[]{2, 1});
+            servers[i] = new Server(philosophers[i], 50100 + i);
+        }
+        for (Server server : servers) {
+            server.getServerLatch().await();
+        }
+        for (Philosopher philosopher : philosophers) {
+            philosopher.requestPing();
+        }
+        transports[2].crash();
+        long deadline = System.currentTimeMillis() + 30000;
+        while ((philosophers[1].getNeighborId(Direction.RIGHT) != 1104 || philosophers[3].getNeighborId(Direction.LEFT) != 1102)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        Assertions.assertEquals(1104, philosophers[1].getNeighborId(Direction.RIGHT));
+        Assertions.assertEquals(1102, philosophers[3].getNeighborId(Direction.LEFT));
+        // The survivors share their forks around the smaller ring
+        RingFixture.assertMutualExclusion(List.of(philosophers[0], philosophers[1], philosophers[3], philosophers[4]), 3, 30000);
+        Assertions.assertEquals(1, philosophers[1].getMetrics().getRingRepair().getCount());
+        Assertions.assertEquals(1, philosophers[3].getMetrics().getRingRepair().getCount());
+    }
+}
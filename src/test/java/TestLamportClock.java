@@ -0,0 +1,52 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestLamportClock {
+
+    /**
+     * Test if the clock moves past received timestamps beyond the int range
+     */
+    @Test
+    void lamportClockTestSynchronizeBeyondIntRange() {
+        LamportClock clock = new LamportClock();
+        Assertions.assertEquals(1, clock.update());
+        long received = Integer.MAX_VALUE + 10L;
+        Assertions.assertEquals(received + 1, clock.synchronize(received));
+        Assertions.assertEquals(received + 2, clock.synchronize(5));
+        Assertions.assertEquals(received + 3, clock.synchronize(received));
+        Assertions.assertEquals(1, clock.compare(received));
+    }
+
+    /**
+     * Test if requests are ordered by timestamp first and philosopher id second
+     */
+    @Test
+    void lamportClockTestTotalOrder() {
+        Assertions.assertTrue(LamportClock.compare(4, 9, 5, 1) < 0);
+        Assertions.assertTrue(LamportClock.compare(5, 1, 5, 2) < 0);
+        Assertions.assertTrue(LamportClock.compare(5, 2, 5, 1) > 0);
+        Assertions.assertEquals(0, LamportClock.compare(5, 2, 5, 2));
+    }
+
+    /**
+     * Test if concurrent updates and synchronizations are not lost
+     */
+    @Test
+    void lamportClockTestConcurrentUpdates() throws InterruptedException {
+        LamportClock clock = new LamportClock();
+        int updates = 100000;
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < updates; i++) {
+                    clock.update();
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assertions.assertEquals((long) updates * threads.length, clock.getTimestamp());
+    }
+}
@@ -0,0 +1,114 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+public class TestLoadGenerator {
+
+    /**
+     * Test if the percentiles of the latency recorder are within the precision of its buckets
+     */
+    @Test
+    void loadGeneratorTestLatencyRecorderPercentiles() {
+        LatencyRecorder recorder = new LatencyRecorder();
+        Assertions.assertEquals(0, recorder.getPercentile(99));
+        for (long micros = 1; micros <= 10000; micros++) {
+            recorder.record(TimeUnit.MICROSECONDS.toNanos(micros));
+        }
+        recorder.record(-5);
+        Assertions.assertEquals(10001, recorder.getCount());
+        Assertions.assertEquals(0, recorder.getPercentile(0));
+        Assertions.assertEquals(5_000_000, recorder.getPercentile(50), 5_000_000 / 64.0);
+        Assertions.assertEquals(9_900_000, recorder.getPercentile(99), 9_900_000 / 64.0);
+        Assertions.assertEquals(10_000_000, recorder.getPercentile(100));
+        Assertions.assertEquals(10_000_000, recorder.getMax());
+        for (long value : new long[]{0, 127, 128, 129, 255, 256, 1_000_003, Long.MAX_VALUE}) {
+            int bucket = LatencyRecorder.bucket(value);
+            Assertions.assertTrue(value <= LatencyRecorder.highestValue(bucket));
+            Assertions.assertTrue(bucket == 0 || value > LatencyRecorder.highestValue(bucket - 1));
+        }
+    }
+
+    /**
+     * Test if the arrival processes follow their rates and bursts, repeat with the same seed and read traces
+     */
+    @Test
+    void loadGeneratorTestArrivalProcesses() throws IOException {
+        ArrivalProcess poisson = new ArrivalProcess.Poisson(100, 1, 7);
+        ArrivalProcess same = new ArrivalProcess.Poisson(100, 1, 7);
+        long last = 0;
+        for (int i = 0; i < 10000; i++) {
+            last = poisson.next();
+            Assertions.assertEquals(last, same.next());
+        }
+        // 10000 arrivals at 100 per second take about 100 seconds
+        Assertions.assertEquals(100, last / 1e9, 5);
+
+        ArrivalProcess bursty = new ArrivalProcess.Poisson(100, 4, 7);
+        for (int burst = 0; burst < 10; burst++) {
+            long time = bursty.next();
+            for (int i = 1; i < 4; i++) {
+                Assertions.assertEquals(time, bursty.next());
+            }
+        }
+
+        Path directory = Files.createTempDirectory("ddpp");
+        Files.write(directory.resolve("meals.trace"), List.of("# time eat", "0 20", "0", "", "15, 30"));
+        Files.write(directory.resolve("workload.properties"), List.of("arrival=trace", "trace=meals.trace", "eat.min=1", "eat.max=2"));
+        WorkloadProfile profile = WorkloadProfile.load(directory.resolve("workload.properties"));
+        Assertions.assertTrue(profile.isOpenLoop());
+        ArrivalProcess trace = ArrivalProcess.forProfile(profile, 1);
+        Assertions.assertEquals(0, trace.next());
+        Assertions.assertEquals(20, trace.eatTime());
+        Assertions.assertEquals(0, trace.next());
+        Assertions.assertEquals(-1, trace.eatTime());
+        Assertions.assertEquals(TimeUnit.MILLISECONDS.toNanos(15), trace.next());
+        Assertions.assertEquals(30, trace.eatTime());
+        Assertions.assertEquals(-1, trace.next());
+
+        Files.write(directory.resolve("meals.trace"), List.of("10", "5"));
+        Assertions.assertThrows(IOException.class, () -> ArrivalProcess.forProfile(profile, 1));
+        Properties properties = new Properties();
+        properties.setProperty("arrival", "poisson");
+        properties.setProperty("rate", "0");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> WorkloadProfile.of(properties));
+        Assertions.assertFalse(WorkloadProfile.defaults().isOpenLoop());
+    }
+
+    /**
+     * Test if meals that arrive faster than they are eaten report the wait from their intended start
+     */
+    @Test
+    void loadGeneratorTestReportsQueueingDelay() throws IOException, InterruptedException {
+        Philosopher[] philosophers = RingFixture.createRing(2401, 50740, 3);
+        Path trace = Files.createTempFile("ddpp", ".trace");
+        // Ten meals of 20 ms arrive at once, the last one starts after the other nine
+        Files.write(trace, List.of("0 20", "0 20", "0 20", "0 20", "0 20", "0 20", "0 20", "0 20", "0 20", "0 20"));
+        Properties properties = new Properties();
+        properties.setProperty("arrival", "trace");
+        properties.setProperty("trace", trace.toString());
+        LoadGenerator generator = new LoadGenerator(philosophers[0], WorkloadProfile.of(properties), 1, 0, TimeUnit.MILLISECONDS);
+        LoadGenerator.Report report = generator.run(-1, TimeUnit.SECONDS);
+        Assertions.assertEquals(10, report.getArrived());
+        Assertions.assertEquals(10, report.getCompleted());
+        Assertions.assertTrue(report.getStartDelayMillis(100) >= 9 * 20, report.toString());
+        Assertions.assertTrue(report.getResponseTimeMillis(100) >= 10 * 20, report.toString());
+        Assertions.assertTrue(report.getStartDelayMillis(50) < report.getStartDelayMillis(100), report.toString());
+        Assertions.assertEquals(10, philosophers[0].getMetrics().getLoadStartDelay().getCount());
+        Assertions.assertThrows(IllegalStateException.class, () -> generator.run(-1, TimeUnit.SECONDS));
+
+        properties.setProperty("arrival", "poisson");
+        properties.setProperty("rate", "50");
+        properties.setProperty("eat.min", "1");
+        properties.setProperty("eat.max", "2");
+        LoadGenerator poisson = new LoadGenerator(philosophers[1], WorkloadProfile.of(properties), 4, 0, TimeUnit.MILLISECONDS);
+        report = poisson.run(1, TimeUnit.SECONDS);
+        Assertions.assertTrue(report.getArrived() > 10 && report.getArrived() < 150, report.toString());
+        Assertions.assertEquals(report.getArrived(), report.getCompleted());
+    }
+}
@@ -0,0 +1,104 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TestMessageCodec {
+
+    /**
+     * Util method to encode and decode a message through a stream
+     */
+    private Message roundTrip(MessageCodec codec, Message message) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        codec.write(out, message);
+        return codec.read(new DataInputStream(new ByteArrayInputStream(out.toByteArray())));
+    }
+
+    /**
+     * Test if all message types survive a round trip through both codecs
+     */
+    @Test
+    void codecTestRoundTrip() throws IOException {
+        GCounter gCounter = new GCounter(3);
+        gCounter.increment();
+        gCounter.increment();
+        gCounter.merge(7, 300);
+        for (MessageCodec codec : new MessageCodec[]{new BinaryCodec(), new SerializationCodec()}) {
+            Message request = roundTrip(codec, new Message(MessageType.REQUEST, 3, Direction.LEFT, 1234567));
+            Assertions.assertEquals(MessageType.REQUEST, request.getType());
+            Assertions.assertEquals(3, request.getPhilosopherId());
+            Assertions.assertEquals(Direction.LEFT, request.getDirection());
+            Assertions.assertEquals(1234567, request.getTimestamp());
+
+            Message reply = roundTrip(codec, new Message(MessageType.REPLY, Integer.MAX_VALUE, Direction.RIGHT));
+            Assertions.assertEquals(MessageType.REPLY, reply.getType());
+            Assertions.assertEquals(Integer.MAX_VALUE, reply.getPhilosopherId());
+            Assertions.assertEquals(Direction.RIGHT, reply.getDirection());
+
+            Message ping = roundTrip(codec, new Message(MessageType.PING, 5, true, Direction.LEFT));
+            Assertions.assertEquals(MessageType.PING, ping.getType());
+            Assertions.assertTrue(ping.getHasReceivedPing());
+
+            Message counter = roundTrip(codec, new Message(MessageType.COUNTER, 3, Direction.RIGHT, gCounter));
+            Assertions.assertEquals(MessageType.COUNTER, counter.getType());
+            Assertions.assertEquals(302, counter.getGCounter().query());
+            Assertions.assertEquals(gCounter.getCounters(), counter.getGCounter().getCounters());
+
+            Message digest = roundTrip(codec, new Message(MessageType.DIGEST, 3, Direction.LEFT, gCounter.size(), gCounter.digest()));
+            Assertions.assertEquals(MessageType.DIGEST, digest.getType());
+            Assertions.assertEquals(2, digest.getDigestSize());
+            Assertions.assertEquals(gCounter.digest(), digest.getDigest());
+
+            Message hello = roundTrip(codec, new Message(MessageType.HELLO, 3, Direction.RIGHT, false));
+            Assertions.assertEquals(MessageType.HELLO, hello.getType());
+            Assertions.assertEquals(Direction.RIGHT, hello.getDirection());
+            Assertions.assertFalse(hello.isAccepted());
+
+            Message welcome = roundTrip(codec, new Message(MessageType.WELCOME, 4, Direction.LEFT, true));
+            Assertions.assertEquals(MessageType.WELCOME, welcome.getType());
+            Assertions.assertEquals(4, welcome.getPhilosopherId());
+            Assertions.assertTrue(welcome.isAccepted());
+
+            Message ready = roundTrip(codec, new Message(MessageType.READY, 5, Direction.RIGHT));
+            Assertions.assertEquals(MessageType.READY, ready.getType());
+            Assertions.assertEquals(5, ready.getPhilosopherId());
+            Assertions.assertEquals(Direction.RIGHT, ready.getDirection());
+
+            Message neighbor = roundTrip(codec, new Message(MessageType.NEIGHBOR, 5, Direction.LEFT, 7, "app7", 50007));
+            Assertions.assertEquals(MessageType.NEIGHBOR, neighbor.getType());
+            Assertions.assertEquals(7, neighbor.getNeighborId());
+            Assertions.assertEquals("app7", neighbor.getNeighborHost());
+            Assertions.assertEquals(50007, neighbor.getNeighborPort());
+        }
+    }
+
+    /**
+     * Test if the binary codec is smaller than the serialization codec
+     */
+    @Test
+    void codecTestBinaryIsCompact() throws IOException {
+        Message request = new Message(MessageType.REQUEST, 42, Direction.LEFT, 100);
+        byte[] binary = new BinaryCodec().encode(request);
+        byte[] serialized = new SerializationCodec().encode(request);
+        Assertions.assertEquals(MessageCodec.LENGTH_PREFIX + 6, binary.length);
+        Assertions.assertTrue(binary.length * 10 < serialized.length);
+    }
+
+    /**
+     * Test if corrupted binary frames are rejected
+     */
+    @Test
+    void codecTestRejectsCorruptFrames() {
+        BinaryCodec codec = new BinaryCodec();
+        assertThrows(ProtocolException.class, () -> codec.decode(ByteBuffer.wrap(new byte[]{9, 0, 0, 0, 1})));
+        assertThrows(ProtocolException.class, () -> codec.decode(ByteBuffer.wrap(new byte[]{BinaryCodec.VERSION, 42, 0, 0, 1})));
+        assertThrows(ProtocolException.class, () -> codec.decode(ByteBuffer.wrap(new byte[]{BinaryCodec.VERSION, 0, 0})));
+    }
+}
@@ -0,0 +1,100 @@
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+public class TestMetrics {
+
+    /**
+     * Test if counters, gauges and histograms are rendered in the Prometheus text format
+     */
+    @Test
+    void metricsTestScrapeFormat() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("test_messages_total", "Messages", "type", "REQUEST").add(3);
+        Assertions.assertSame(registry.counter("test_messages_total", "Messages", "type", "REQUEST"), registry.counter("test_messages_total", "Messages", "type", "REQUEST"));
+        registry.gauge("test_depth", "Depth", () -> 2);
+        registry.counter("test_dropped_total", "Dropped", () -> 4);
+        MetricsRegistry.Histogram histogram = registry.histogram("test_latency_seconds", "Latency", new double[]{0.01, 1});
+        histogram.observeNanos(5_000_000);
+        histogram.observeNanos(500_000_000);
+        histogram.observeNanos(5_000_000_000L);
+
+        String text = registry.scrape();
+        Assertions.assertTrue(text.contains("# TYPE test_messages_total counter\n"));
+        Assertions.assertTrue(text.contains("test_messages_total{type=\"REQUEST\"} 3\n"));
+        Assertions.assertTrue(text.contains("test_depth 2\n"));
+        Assertions.assertTrue(text.contains("# TYPE test_dropped_total counter\n"));
+        Assertions.assertTrue(text.contains("test_dropped_total 4\n"));
+        Assertions.assertTrue(text.contains("test_latency_seconds_bucket{le=\"0.01\"} 1\n"));
+        Assertions.assertTrue(text.contains("test_latency_seconds_bucket{le=\"1.0\"} 2\n"));
+        Assertions.assertTrue(text.contains("test_latency_seconds_bucket{le=\"+Inf\"} 3\n"));
+        Assertions.assertTrue(text.contains("test_latency_seconds_count 3\n"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> registry.gauge("test_messages_total", "Messages", () -> 1));
+    }
+
+    /**
+     * Test if the metrics of philosophers are served over HTTP
+     * The philosophers register in their own registry, so the counts of other tests do not show up
+     */
+    @Test
+    void metricsTestEndpointServesPhilosopherMetrics() throws IOException, InterruptedException {
+        InMemoryTransport transport = new InMemoryTransport();
+        MetricsRegistry registry = new MetricsRegistry();
+        Philosopher philosopher1 = new Philosopher(1, "localhost", 49192, "localhost", 49191, transport, registry);
+        Philosopher philosopher2 = new Philosopher(2, "localhost", 49190, "localhost", 49192, transport, registry);
+        Philosopher philosopher3 = new Philosopher(3, "localhost", 49191, "localhost", 49190, transport, registry);
+        philosopher1.start();
+        philosopher2.start();
+        philosopher3.start();
+        Server server1 = new Server(philosopher1, 49190);
+        Server server2 = new Server(philosopher2, 49191);
+        Server server3 = new Server(philosopher3, 49192);
+        server1.getServerLatch().await();
+        server2.getServerLatch().await();
+        server3.getServerLatch().await();
+        philosopher1.requestForks();
+        philosopher1.releaseForks();
+
+        HttpServer server = MetricsServer.start(49193, registry);
+        try {
+            HttpURLConnection connection = (HttpURLConnection) URI.create("http://localhost:49193/metrics").toURL().openConnection();
+            Assertions.assertEquals(200, connection.getResponseCode());
+            String text;
+            try (InputStream in = connection.getInputStream()) {
+                text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            Assertions.assertTrue(text.contains("ddpp_fork_acquisition_seconds_count{philosopher=\"1\"} 1\n"));
+            Assertions.assertTrue(text.contains("ddpp_messages_sent_total{philosopher=\"1\",type=\"REQUEST\",direction=\"LEFT\"} 1\n"));
+            Assertions.assertTrue(text.contains("ddpp_messages_received_total{philosopher=\"1\",type=\"REPLY\",direction=\"LEFT\"} 1\n"));
+            Assertions.assertTrue(text.contains("ddpp_meals_global{philosopher=\"2\"} 0\n"));
+            // The in-memory transport hands the messages over without queueing frames
+            Assertions.assertTrue(text.contains("ddpp_outbound_queue_depth{philosopher=\"1\",side=\"LEFT\"} 0\n"));
+            Assertions.assertTrue(text.contains("# TYPE ddpp_outbound_dropped_total counter\n"));
+            Assertions.assertTrue(text.contains("ddpp_outbound_batches_total{philosopher=\"1\",side=\"RIGHT\"} 0\n"));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Test if the average number of concurrent eaters is the time integral of the eaters
+     */
+    @Test
+    void metricsTestEaterUtilization() {
+        EaterUtilization utilization = new EaterUtilization();
+        Assertions.assertEquals(0, utilization.getAverage());
+        utilization.change(1, 0);
+        utilization.change(1, 10);
+        utilization.change(-1, 20);
+        utilization.change(-1, 30);
+        Assertions.assertEquals(0, utilization.getEaters());
+        // One eater for 10ns, two for 10ns and one for 10ns, then nobody for 10ns
+        Assertions.assertEquals(1.0, utilization.getAverage(40), 1e-9);
+    }
+}
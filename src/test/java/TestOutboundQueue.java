@@ -0,0 +1,139 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class TestOutboundQueue {
+
+    /**
+     * Util method to read a number of bytes from a pipe
+     */
+    private void drain(Pipe pipe, int bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(bytes);
+        while (buffer.hasRemaining()) {
+            pipe.source().read(buffer);
+        }
+    }
+
+    /**
+     * Test if droppable frames are dropped on a congested link and all other frames are written
+     */
+    @Test
+    void outboundQueueTestDropNewestOnCongestion() throws IOException, InterruptedException {
+        Pipe pipe = Pipe.open();
+        OutboundQueue queue = new OutboundQueue("test-drop", pipe.sink(), 2, OutboundQueue.OverflowPolicy.DROP_NEWEST);
+        queue.start();
+        int frameSize = 256 * 1024;
+        // The first frame is larger than the pipe buffer, so the writer blocks on it
+        Assertions.assertTrue(queue.offer(new byte[frameSize], false));
+        long start = System.currentTimeMillis();
+        while (queue.getDepth() > 0 && System.currentTimeMillis() - start < 5000) {
+            Thread.sleep(10);
+        }
+        Assertions.assertTrue(queue.offer(new byte[frameSize], true));
+        Assertions.assertTrue(queue.offer(new byte[frameSize], false));
+        Assertions.assertFalse(queue.offer(new byte[frameSize], true));
+        Assertions.assertEquals(1, queue.getDropped());
+        Assertions.assertEquals(2, queue.getMaxDepth());
+
+        drain(pipe, 3 * frameSize);
+        Assertions.assertTrue(queue.awaitDrained(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(3, queue.getWritten());
+        Assertions.assertTrue(queue.getBatches() <= 3);
+    }
+
+    /**
+     * Test if pending frames are coalesced into one gathering write in order
+     */
+    @Test
+    void outboundQueueTestBatchesKeepOrder() throws IOException, InterruptedException {
+        Pipe pipe = Pipe.open();
+        OutboundQueue queue = new OutboundQueue("test-order", pipe.sink(), 1024, OutboundQueue.OverflowPolicy.BLOCK);
+        queue.start();
+        for (int i = 0; i < 200; i++) {
+            Assertions.assertTrue(queue.offer(new byte[]{(byte) i}, false));
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(200);
+        while (buffer.hasRemaining()) {
+            pipe.source().read(buffer);
+        }
+        for (int i = 0; i < 200; i++) {
+            Assertions.assertEquals((byte) i, buffer.get(i));
+        }
+        Assertions.assertTrue(queue.awaitDrained(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(200, queue.getWritten());
+        Assertions.assertTrue(queue.getBatches() < 200);
+    }
+
+    /**
+     * Test if the event loop writes a congested non-blocking channel without a writer thread and without spinning
+     */
+    @Test
+    void outboundQueueTestEventLoopWaitsForWritable() throws IOException, InterruptedException {
+        Pipe pipe = Pipe.open();
+        NioEventLoop loop = NioEventLoop.next();
+        OutboundQueue queue = new OutboundQueue("test-nio", pipe.sink(), loop, 4, OutboundQueue.OverflowPolicy.BLOCK);
+        loop.register(pipe.sink(), 0, key -> queue.flush());
+        int frameSize = 256 * 1024;
+        // The first frame is larger than the pipe buffer, more frames than the capacity are queued behind it
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertTrue(queue.offer(new byte[i == 0 ? frameSize : 1], false));
+        }
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            Assertions.assertNotEquals("writer-test-nio", thread.getName());
+        }
+        // The event loop waits for the pipe to become writable instead of retrying the write
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long loopThread = Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().startsWith("nio-event-loop-")).findFirst().orElseThrow().getId();
+        long cpuStart = threads.getThreadCpuTime(loopThread);
+        Thread.sleep(500);
+        Assertions.assertTrue(threads.getThreadCpuTime(loopThread) - cpuStart < TimeUnit.MILLISECONDS.toNanos(100));
+
+        drain(pipe, frameSize + 9);
+        Assertions.assertTrue(queue.awaitDrained(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(10, queue.getWritten());
+    }
+
+    /**
+     * Test if a thread that reads connections drops a droppable frame instead of waiting for a full queue
+     */
+    @Test
+    void outboundQueueTestReaderNeverWaits() throws IOException, InterruptedException {
+        Pipe pipe = Pipe.open();
+        OutboundQueue queue = new OutboundQueue("test-reader", pipe.sink(), 1, OutboundQueue.OverflowPolicy.BLOCK);
+        queue.start();
+        int frameSize = 256 * 1024;
+        Assertions.assertTrue(queue.offer(new byte[frameSize], false));
+        long start = System.currentTimeMillis();
+        while (queue.getDepth() > 0 && System.currentTimeMillis() - start < 5000) {
+            Thread.sleep(10);
+        }
+        Assertions.assertTrue(queue.offer(new byte[1], true));
+        AtomicBoolean accepted = new AtomicBoolean(true);
+        Thread reader = new Thread(() -> {
+            OutboundQueue.markReader();
+            try {
+                accepted.set(queue.offer(new byte[1], true));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        reader.start();
+        reader.join(5000);
+        Assertions.assertFalse(reader.isAlive());
+        Assertions.assertFalse(accepted.get());
+        Assertions.assertEquals(1, queue.getDropped());
+        // REQUEST and REPLY frames do not wait for space either
+        Assertions.assertTrue(queue.offer(new byte[1], false));
+
+        drain(pipe, frameSize + 2);
+        Assertions.assertTrue(queue.awaitDrained(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,67 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class TestPhiAccrualDetector {
+
+    /**
+     * Util method to convert milliseconds to nanoseconds
+     */
+    private long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    /**
+     * Test if the suspicion grows with the time since the last heartbeat
+     */
+    @Test
+    void phiAccrualDetectorTestSuspicionGrows() {
+        PhiAccrualDetector detector = new PhiAccrualDetector(1000, 200, 0);
+        Assertions.assertEquals(0, detector.phi(millis(5000)));
+        for (int i = 0; i <= 20; i++) {
+            detector.heartbeat(millis(i * 1000L));
+        }
+        double onTime = detector.phi(millis(20_500));
+        double late = detector.phi(millis(21_500));
+        double dead = detector.phi(millis(30_000));
+        Assertions.assertTrue(onTime < 1);
+        Assertions.assertTrue(late > onTime);
+        Assertions.assertTrue(dead > 8);
+        // A heartbeat clears the suspicion
+        detector.heartbeat(millis(30_000));
+        Assertions.assertTrue(detector.phi(millis(30_100)) < 1);
+    }
+
+    /**
+     * Test if an acceptable pause is not suspicious, e.g. of the garbage collector
+     */
+    @Test
+    void phiAccrualDetectorTestAcceptablePause() {
+        PhiAccrualDetector strict = new PhiAccrualDetector(1000, 200, 0);
+        PhiAccrualDetector tolerant = new PhiAccrualDetector(1000, 200, 3000);
+        for (int i = 0; i <= 20; i++) {
+            strict.heartbeat(millis(i * 1000L));
+            tolerant.heartbeat(millis(i * 1000L));
+        }
+        Assertions.assertTrue(strict.phi(millis(23_000)) > 8);
+        Assertions.assertTrue(tolerant.phi(millis(23_000)) < 1);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new PhiAccrualDetector(0, 200, 0));
+    }
+
+    /**
+     * Test if the detector adapts to irregular heartbeats
+     */
+    @Test
+    void phiAccrualDetectorTestAdaptsToJitter() {
+        PhiAccrualDetector regular = new PhiAccrualDetector(1000, 10, 0);
+        PhiAccrualDetector jittery = new PhiAccrualDetector(1000, 10, 0);
+        long time = 0;
+        for (int i = 0; i < 100; i++) {
+            regular.heartbeat(millis(i * 1000L));
+            time += i % 2 == 0 ? 500 : 1500;
+            jittery.heartbeat(millis(time));
+        }
+        Assertions.assertTrue(jittery.phi(millis(time + 1800)) < regular.phi(millis(99_000 + 1800)));
+    }
+}
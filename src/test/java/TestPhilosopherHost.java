@@ -0,0 +1,48 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestPhilosopherHost {
+
+    /**
+     * Test if a ring split over two hosts keeps neighbors out of the critical section at the same time,
+     * across the shared connection between the hosts as well as within a host
+     */
+    @Test
+    void philosopherHostTestRingOverTwoHosts() throws IOException, InterruptedException {
+        int size = 8;
+        int rounds = 3;
+        PhilosopherHost first = new PhilosopherHost(49400, 1, 4, size, new InetSocketAddress("localhost", 49401), new InetSocketAddress("localhost", 49401));
+        PhilosopherHost second = new PhilosopherHost(49401, 5, 8, size, new InetSocketAddress("localhost", 49400), new InetSocketAddress("localhost", 49400));
+        second.open();
+        first.open();
+        first.awaitConnected();
+        second.awaitConnected();
+        List<Philosopher> philosophers = new ArrayList<>(first.getPhilosophers());
+        philosophers.addAll(second.getPhilosophers());
+        for (int i = 0; i < size; i++) {
+            Assertions.assertEquals(i + 1, philosophers.get(i).getPhilosopherId());
+        }
+        RingFixture.withShortMeals(philosophers.toArray(new Philosopher[0]));
+        RingFixture.assertMutualExclusion(philosophers, rounds, 60000);
+    }
+
+    /**
+     * Test if the seats fill a bank before moving to the next loopback address and the range of a host is validated
+     */
+    @Test
+    void philosopherHostTestSeats() {
+        Assertions.assertEquals(new InetSocketAddress("127.0.0.1", 49152), PhilosopherHost.seatAddress(1));
+        Assertions.assertEquals(new InetSocketAddress("127.0.0.1", 65535), PhilosopherHost.seatAddress(PhilosopherHost.BANK_SIZE));
+        Assertions.assertEquals(new InetSocketAddress("127.0.0.2", 49152), PhilosopherHost.seatAddress(PhilosopherHost.BANK_SIZE + 1));
+        Assertions.assertEquals(new InetSocketAddress("127.0.1.1", 49152), PhilosopherHost.seatAddress(256 * PhilosopherHost.BANK_SIZE + 1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new PhilosopherHost(49402, 3, 2, 8, null, null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new PhilosopherHost(49402, 1, 4, 8, null, null));
+        Assertions.assertDoesNotThrow(() -> new PhilosopherHost(49402, 1, PhilosopherHost.BANK_SIZE + 10, PhilosopherHost.BANK_SIZE + 20,
+                new InetSocketAddress("localhost", 49403), new InetSocketAddress("localhost", 49403)));
+    }
+}
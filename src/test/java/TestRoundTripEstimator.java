@@ -0,0 +1,81 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class TestRoundTripEstimator {
+
+    /**
+     * Util method to convert milliseconds to nanoseconds
+     */
+    private long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    /**
+     * Test if the estimate follows the samples smoothly and its bound covers a jittery link
+     */
+    @Test
+    void roundTripEstimatorTestSmoothing() {
+        RoundTripEstimator estimator = new RoundTripEstimator();
+        Assertions.assertFalse(estimator.hasSample());
+        Assertions.assertEquals(0, estimator.getBound());
+        estimator.sample(millis(10));
+        Assertions.assertEquals(millis(10), estimator.getSmoothed());
+        Assertions.assertEquals(millis(30), estimator.getBound());
+        // One slow sample moves the estimate by an eighth of the error
+        estimator.sample(millis(90));
+        Assertions.assertEquals(millis(20), estimator.getSmoothed());
+        for (int i = 0; i < 200; i++) {
+            estimator.sample(millis(i % 2 == 0 ? 8 : 12));
+        }
+        Assertions.assertEquals(millis(10), estimator.getSmoothed(), millis(1));
+        Assertions.assertTrue(estimator.getBound() >= millis(12));
+        Assertions.assertTrue(estimator.getBound() <= millis(20));
+        estimator.reset();
+        Assertions.assertFalse(estimator.hasSample());
+    }
+
+    /**
+     * Test if the pings measure the round trips to the neighbors and the prefetch margin follows the configuration
+     */
+    @Test
+    void roundTripEstimatorTestPingsMeasureNeighbors() throws InterruptedException {
+        InMemoryTransport transport = new InMemoryTransport();
+        Philosopher philosopher1 = new Philosopher(2501, "localhost", 50752, "localhost", 50751, transport);
+        Philosopher philosopher2 = new Philosopher(2502, "localhost", 50750, "localhost", 50752, transport);
+        Philosopher philosopher3 = new Philosopher(2503, "localhost", 50751, "localhost", 50750, transport);
+        Server server1 = new Server(philosopher1, 50750);
+        Server server2 = new Server(philosopher2, 50751);
+        Server server3 = new Server(philosopher3, 50752);
+        server1.getServerLatch().await();
+        server2.getServerLatch().await();
+        server3.getServerLatch().await();
+        Assertions.assertEquals(0, philosopher1.getPrefetchMargin(Configuration.prefetchMargin()));
+        philosopher1.requestPing();
+        philosopher2.requestPing();
+        philosopher3.requestPing();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!(philosopher1.getRoundTrip(Direction.LEFT).hasSample() && philosopher1.getRoundTrip(Direction.RIGHT).hasSample())
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        for (Direction side : Direction.values()) {
+            RoundTripEstimator roundTrip = philosopher1.getRoundTrip(side);
+            Assertions.assertTrue(roundTrip.hasSample());
+            Assertions.assertTrue(roundTrip.getSmoothed() > 0 && roundTrip.getSmoothed() < TimeUnit.SECONDS.toNanos(1));
+        }
+        try {
+            System.setProperty(Configuration.PREFETCH_MARGIN, "auto");
+            // The pings keep going, so the bounds may move while they are compared
+            long margin = philosopher1.getPrefetchMargin(Configuration.prefetchMargin());
+            Assertions.assertTrue(margin > 0 && margin < TimeUnit.SECONDS.toNanos(5));
+            System.setProperty(Configuration.PREFETCH_MARGIN, "25");
+            Assertions.assertEquals(millis(25), philosopher1.getPrefetchMargin(Configuration.prefetchMargin()));
+            System.setProperty(Configuration.PREFETCH_MARGIN, "-3");
+            Assertions.assertThrows(IllegalArgumentException.class, Configuration::prefetchMargin);
+        } finally {
+            System.clearProperty(Configuration.PREFETCH_MARGIN);
+        }
+    }
+}
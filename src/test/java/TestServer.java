@@ -1,7 +1,12 @@
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
 
+import java.io.IOException;
 import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
@@ -57,7 +62,7 @@ public class TestServer {
             Object philosopherObject = philosopherField.get(server);
 
             if (philosopherObject instanceof Philosopher philosopher) {
-                return philosopher.getLeftNeighborSocket().isConnected() && philosopher.getRightNeighborSocket().isConnected();
+                return philosopher.getLeftNeighborChannel().isConnected() && philosopher.getRightNeighborChannel().isConnected();
             }
         } catch (Exception e) {
             throw new RuntimeException("Reflection failed", e);
@@ -229,8 +234,8 @@ public class TestServer {
             philosopher2.eat();
             philosopher2.eat();
         }
-        philosopher1.sendCounter(philosopher1.getLeftNeighborSocket(), Direction.RIGHT, philosopher1.getLocalGCounter());
-        philosopher2.sendCounter(philosopher2.getLeftNeighborSocket(), Direction.RIGHT, philosopher2.getLocalGCounter());
+        philosopher1.sendCounter(philosopher1.getLeftNeighborChannel(), Direction.RIGHT, philosopher1.getLocalGCounter());
+        philosopher2.sendCounter(philosopher2.getLeftNeighborChannel(), Direction.RIGHT, philosopher2.getLocalGCounter());
         while (philosopher1.getLocalGCounter().query() != 30) {
             try {
                 Thread.sleep(1000);
@@ -262,8 +267,8 @@ public class TestServer {
             throw new RuntimeException("Error while waiting for server to finish", e);
         }
         philosopher1.requestForks();
-        Assertions.assertTrue(philosopher2.hasReply());
-        Assertions.assertTrue(philosopher3.hasReply());
+        Assertions.assertTrue(((RicartAgrawala) philosopher2.getForkProtocol()).hasReply());
+        Assertions.assertTrue(((RicartAgrawala) philosopher3.getForkProtocol()).hasReply());
     }
 
     /**
@@ -299,7 +304,7 @@ public class TestServer {
     }
 
     /**
-     * Test if philosophers have received a ping from all neighbors
+     * Test if philosophers have received a ping from all neighbors within the first round of their ping loops
      */
     @Test
     void serverTestPhilosopherHasReceivedPing() {
@@ -321,14 +326,22 @@ public class TestServer {
         philosopher1.requestPing();
         philosopher2.requestPing();
         philosopher3.requestPing();
-        try {
-            Thread.sleep(1000);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
+        // A frame sent right after the loops started must not hold back their first pings
+        philosopher1.requestForks();
+        // The first round probes both links even if an answer was sent on one of them, so no second round is needed
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(500);
+        List<Philosopher> philosophers = List.of(philosopher1, philosopher2, philosopher3);
+        while (System.nanoTime() < deadline && !philosophers.stream().allMatch(p -> p.isReceivedPingLeft() && p.isReceivedPingRight())) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
         }
         Assertions.assertTrue(philosopher1.isReceivedPingLeft() && philosopher1.isReceivedPingRight());
         Assertions.assertTrue(philosopher2.isReceivedPingLeft() && philosopher2.isReceivedPingRight());
         Assertions.assertTrue(philosopher3.isReceivedPingLeft() && philosopher3.isReceivedPingRight());
+        philosopher1.releaseForks();
     }
 
     /**
@@ -420,4 +433,182 @@ public class TestServer {
         }
         Assertions.assertFalse(philosopher1.isRequesting());
     }
+
+    /**
+     * Test if philosophers exchange forks when the servers run on the NIO engine
+     */
+    @Test
+    void serverTestNioEngineHasForks() {
+        System.setProperty(Configuration.SERVER_ENGINE, "nio");
+        try {
+            Philosopher philosopher1 = new Philosopher(1, "localhost", 49182, "localhost", 49181);
+            Philosopher philosopher2 = new Philosopher(2, "localhost", 49180, "localhost", 49182);
+            Philosopher philosopher3 = new Philosopher(3, "localhost", 49181, "localhost", 49180);
+
+            Server server1 = new Server(philosopher1, 49180);
+            Server server2 = new Server(philosopher2, 49181);
+            Server server3 = new Server(philosopher3, 49182);
+            try {
+                // Wait for the server to finish
+                server1.getServerLatch().await();
+                server2.getServerLatch().await();
+                server3.getServerLatch().await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException("Error while waiting for server to finish", e);
+            }
+            philosopher1.requestForks();
+            philosopher1.releaseForks();
+            philosopher2.requestForks();
+            Assertions.assertTrue(philosopher2.hasLeftFork() && philosopher2.hasRightFork());
+            Assertions.assertFalse(philosopher1.hasLeftFork() || philosopher1.hasRightFork());
+        } finally {
+            System.clearProperty(Configuration.SERVER_ENGINE);
+        }
+    }
+
+    /**
+     * Test if a timed fork request gives up while a neighbor eats and releases the forks once they arrive
+     */
+    @Test
+    void serverTestPhilosopherTimedRequestForks() {
+        Philosopher philosopher1 = new Philosopher(1, "localhost", 49185, "localhost", 49184);
+        Philosopher philosopher2 = new Philosopher(2, "localhost", 49183, "localhost", 49185);
+        Philosopher philosopher3 = new Philosopher(3, "localhost", 49184, "localhost", 49183);
+
+        Server server1 = new Server(philosopher1, 49183);
+        Server server2 = new Server(philosopher2, 49184);
+        Server server3 = new Server(philosopher3, 49185);
+        try {
+            // Wait for the server to finish
+            server1.getServerLatch().await();
+            server2.getServerLatch().await();
+            server3.getServerLatch().await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException("Error while waiting for server to finish", e);
+        }
+        Assertions.assertTrue(philosopher2.requestForks(5, TimeUnit.SECONDS));
+        Assertions.assertFalse(philosopher1.requestForks(200, TimeUnit.MILLISECONDS));
+        Assertions.assertFalse(philosopher1.inCriticalSection());
+        philosopher2.releaseForks();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (philosopher1.isRequesting() && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        Assertions.assertFalse(philosopher1.isRequesting());
+        Assertions.assertFalse(philosopher1.inCriticalSection());
+        Assertions.assertTrue(philosopher3.requestForks(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Test if the handshake leaves one connection per neighbor pair, used by both neighbors
+     */
+    @Test
+    void serverTestOneConnectionPerNeighborPair() throws IOException {
+        Philosopher philosopher1 = new Philosopher(1, "localhost", 49188, "localhost", 49187);
+        Philosopher philosopher2 = new Philosopher(2, "localhost", 49186, "localhost", 49188);
+        Philosopher philosopher3 = new Philosopher(3, "localhost", 49187, "localhost", 49186);
+
+        Server server1 = new Server(philosopher1, 49186);
+        Server server2 = new Server(philosopher2, 49187);
+        Server server3 = new Server(philosopher3, 49188);
+        try {
+            // Wait for the server to finish
+            server1.getServerLatch().await();
+            server2.getServerLatch().await();
+            server3.getServerLatch().await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException("Error while waiting for server to finish", e);
+        }
+        assertSameConnection(philosopher1.getRightNeighborChannel(), philosopher2.getLeftNeighborChannel());
+        assertSameConnection(philosopher2.getRightNeighborChannel(), philosopher3.getLeftNeighborChannel());
+        assertSameConnection(philosopher3.getRightNeighborChannel(), philosopher1.getLeftNeighborChannel());
+        // Requests and replies travel on the shared connections
+        philosopher2.requestForks();
+        Assertions.assertTrue(philosopher2.hasLeftFork() && philosopher2.hasRightFork());
+    }
+
+    /**
+     * Util method to check if two channels are the ends of the same TCP connection
+     */
+    private void assertSameConnection(TransportChannel channel, TransportChannel other) throws IOException {
+        TcpTransport.TcpChannel tcpChannel = (TcpTransport.TcpChannel) channel;
+        TcpTransport.TcpChannel otherTcpChannel = (TcpTransport.TcpChannel) other;
+        Assertions.assertEquals(tcpChannel.getLocalAddress(), otherTcpChannel.getRemoteAddress());
+        Assertions.assertEquals(tcpChannel.getRemoteAddress(), otherTcpChannel.getLocalAddress());
+    }
+
+    /**
+     * Test if a ring of philosophers started against each other becomes ready, and report how long it took
+     * The time is reported rather than asserted, it depends on the load of the machine
+     */
+    @Test
+    void serverTestRingBootstrap(TestReporter reporter) throws InterruptedException {
+        int size = 100;
+        Server[] servers = new Server[size];
+        // Start in reverse order, so every philosopher first dials a neighbor that is not listening yet
+        // The ports are above the usual ephemeral range, so no outgoing connection of the ring occupies them
+        long start = System.nanoTime();
+        for (int i = size - 1; i >= 0; i--) {
+            int left = 61000 + (i + size - 1) % size;
+            int right = 61000 + (i + 1) % size;
+            servers[i] = new Server(new Philosopher(301 + i, "localhost", left, "localhost", right), 61000 + i);
+        }
+        for (Server server : servers) {
+            server.getServerLatch().await();
+        }
+        reporter.publishEntry("ringBootstrapMillis", String.valueOf(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+        for (Server server : servers) {
+            Assertions.assertTrue(areNeighborsConnected(server));
+        }
+    }
+
+    /**
+     * Test if the counter of a neighbor is merged while the fork handlers are held up, and the held up REQUEST is recorded as a wait
+     */
+    @Test
+    void serverTestStripedDispatch() throws InterruptedException {
+        InMemoryTransport transport = new InMemoryTransport();
+        Philosopher philosopher1 = new Philosopher(2601, "localhost", 50762, "localhost", 50761, transport);
+        Philosopher philosopher2 = new Philosopher(2602, "localhost", 50760, "localhost", 50762, transport);
+        Philosopher philosopher3 = new Philosopher(2603, "localhost", 50761, "localhost", 50760, transport);
+        Server server1 = new Server(philosopher1, 50760);
+        Server server2 = new Server(philosopher2, 50761);
+        Server server3 = new Server(philosopher3, 50762);
+        server1.getServerLatch().await();
+        server2.getServerLatch().await();
+        server3.getServerLatch().await();
+
+        ReentrantLock forkLock = server1.getForkLock();
+        forkLock.lock();
+        Thread requester = new Thread(philosopher2::requestForks);
+        try {
+            // The REQUEST of the right neighbor waits for the fork handlers of philosopher 1
+            requester.start();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!forkLock.hasQueuedThreads() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            Assertions.assertTrue(forkLock.hasQueuedThreads());
+            // The counter of the left neighbor is merged meanwhile
+            philosopher3.eat(1);
+            philosopher3.sendCounter(philosopher3.getRightNeighborChannel(), Direction.LEFT, philosopher3.getLocalGCounter());
+            while (philosopher1.getLocalGCounter().get(2603) != 1 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            Assertions.assertEquals(1, philosopher1.getLocalGCounter().get(2603));
+            Assertions.assertTrue(requester.isAlive());
+        } finally {
+            forkLock.unlock();
+        }
+        requester.join(5000);
+        Assertions.assertFalse(requester.isAlive());
+        Assertions.assertTrue(philosopher2.hasLeftFork() && philosopher2.hasRightFork());
+        Assertions.assertEquals(1, philosopher1.getMetrics().getForkDispatchWait(Direction.RIGHT).getCount());
+        Assertions.assertEquals(0, philosopher1.getMetrics().getForkDispatchWait(Direction.LEFT).getCount());
+        philosopher2.releaseForks();
+    }
 }
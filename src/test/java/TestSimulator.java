@@ -0,0 +1,68 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class TestSimulator {
+
+    /**
+     * Test if runs with the same seed produce the same result
+     */
+    @Test
+    void simulatorTestDeterministic() {
+        Simulator.Result first = new Simulator(100, 42).run(1, TimeUnit.HOURS);
+        Simulator.Result second = new Simulator(100, 42).run(1, TimeUnit.HOURS);
+        Assertions.assertEquals(first.getEvents(), second.getEvents());
+        Assertions.assertEquals(first.getMeals(), second.getMeals());
+        Assertions.assertEquals(first.getMessages(MessageType.REQUEST), second.getMessages(MessageType.REQUEST));
+        Assertions.assertEquals(first.getFairness(), second.getFairness());
+        Assertions.assertNotEquals(first.getEvents(), new Simulator(100, 43).run(1, TimeUnit.HOURS).getEvents());
+    }
+
+    /**
+     * Test if neighbors never eat at the same time and every request is answered
+     */
+    @Test
+    void simulatorTestMutualExclusion() {
+        Simulator simulator = new Simulator(1000, 7);
+        simulator.setThinkInterval(1, 20, TimeUnit.MILLISECONDS);
+        simulator.setEatInterval(1, 10, TimeUnit.MILLISECONDS);
+        simulator.setNetworkDelay(0, 5, TimeUnit.MILLISECONDS);
+        Simulator.Result result = simulator.run(2, TimeUnit.MINUTES);
+        Assertions.assertEquals(0, result.getViolations());
+        Assertions.assertTrue(result.getMeals() > 10_000);
+        // A reply for every request, except for those still in flight at the end of the run
+        long requests = result.getMessages(MessageType.REQUEST);
+        long replies = result.getMessages(MessageType.REPLY);
+        Assertions.assertTrue(replies <= requests && requests - replies <= 4L * result.getPhilosophers());
+        Assertions.assertTrue(result.getFairness() > 0.9);
+    }
+
+    /**
+     * Test if two philosophers take turns
+     */
+    @Test
+    void simulatorTestTwoPhilosophers() {
+        Simulator simulator = new Simulator(2, 1);
+        simulator.setThinkInterval(1, 1, TimeUnit.MILLISECONDS);
+        Simulator.Result result = simulator.run(1, TimeUnit.HOURS);
+        Assertions.assertEquals(0, result.getViolations());
+        Assertions.assertTrue(result.getMeals() > 0);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new Simulator(1, 1));
+    }
+
+    /**
+     * Test if the coloring schedule keeps more philosophers eating at the same time than random think times
+     */
+    @Test
+    void simulatorTestColoringSchedule() {
+        Simulator.Result free = new Simulator(100, 3).run(1, TimeUnit.HOURS);
+        Simulator simulator = new Simulator(100, 3);
+        simulator.setColoringSchedule(true);
+        Simulator.Result coloring = simulator.run(1, TimeUnit.HOURS);
+        Assertions.assertEquals(0, coloring.getViolations());
+        Assertions.assertTrue(coloring.getAverageEaters() <= coloring.getPhilosophers() / 2.0);
+        Assertions.assertTrue(coloring.getAverageEaters() > free.getAverageEaters());
+        Assertions.assertTrue(coloring.getFairness() > 0.99);
+    }
+}